@@ -0,0 +1,81 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.repository.codec.ActionCodec;
+import com.bourse.wealthwise.repository.codec.BinaryReader;
+import com.bourse.wealthwise.repository.codec.BinaryWriter;
+import com.bourse.wealthwise.repository.codec.CodecDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of {@link ActionCodec} over a stream of {@value #STREAM} mixed
+ * actions, as the journal and snapshots use it: one dictionary per stream and one reusable writer.
+ * Scores are per action; {@code -prof gc} shows the allocation per action.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ActionCodec -prof gc"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActionCodecBenchmark {
+
+    private static final int STREAM = 100_000;
+
+    @Param({"100"})
+    public int portfolios;
+
+    @Param({"50"})
+    public int securities;
+
+    private List<BaseAction> actions;
+    private ByteBuffer encoded;
+    private BinaryWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = BenchmarkData.generate(portfolios, securities, 2520, STREAM, 42L);
+        actions = new ArrayList<>(STREAM);
+        for (Portfolio portfolio : data.portfolios) {
+            actions.addAll(data.actionRepository.findAllActionsOf(portfolio.getUuid()));
+        }
+        writer = new BinaryWriter(64 * STREAM);
+        ActionCodec codec = new ActionCodec(new CodecDictionary());
+        for (BaseAction action : actions) {
+            codec.encode(action, writer);
+        }
+        encoded = ByteBuffer.wrap(writer.toByteArray());
+        System.out.printf("%n%d actions encoded in %d bytes, %.1f bytes per action%n",
+                actions.size(), writer.size(), (double) writer.size() / actions.size());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM)
+    public int encode() {
+        ActionCodec codec = new ActionCodec(new CodecDictionary());
+        writer.reset();
+        for (BaseAction action : actions) {
+            codec.encode(action, writer);
+        }
+        return writer.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM)
+    public void decode(Blackhole blackhole) {
+        ActionCodec codec = new ActionCodec(new CodecDictionary());
+        BinaryReader in = new BinaryReader(encoded.duplicate());
+        while (in.hasRemaining()) {
+            blackhole.consume(codec.decode(in));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.action.Withdrawal;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.projection.BalanceLedger;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.domain.services.ActionCommandService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validated withdrawals through {@link ActionCommandService}, each removed again so that histories
+ * stay the same size.  Every JMH thread writes to its own portfolio, so throughput should grow
+ * linearly with {@code -t}; with {@code -p sharedPortfolio=true} all threads write to one portfolio
+ * and are serialized by its lock stripe.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ActionCommand -t 8"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActionCommandBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"false", "true"})
+    public boolean sharedPortfolio;
+
+    private final ActionRepository actionRepository = new ActionRepository();
+    private final PortfolioRepository portfolioRepository = new PortfolioRepository();
+    private ActionCommandService actionCommandService;
+    private Portfolio shared;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        actionCommandService = new ActionCommandService(actionRepository, portfolioRepository,
+                new BalanceLedger(actionRepository), new HoldingsProjection(actionRepository, 256), 256);
+        shared = fundedPortfolio();
+    }
+
+    private Portfolio fundedPortfolio() {
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "bench"));
+        actionCommandService.submit(Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio)
+                .datetime(START).amount(BigInteger.valueOf(Long.MAX_VALUE)).actionType(ActionType.DEPOSIT).build());
+        return portfolio;
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private Portfolio portfolio;
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(ActionCommandBenchmark benchmark) {
+            portfolio = benchmark.sharedPortfolio ? benchmark.shared : benchmark.fundedPortfolio();
+        }
+    }
+
+    @Benchmark
+    public void submitWithdrawal(Writer writer) {
+        Withdrawal withdrawal = Withdrawal.builder().uuid(UUID.randomUUID().toString()).portfolio(writer.portfolio)
+                .datetime(START.plusSeconds(1 + writer.sequence++ % 1000)).amount(BigInteger.ONE)
+                .actionType(ActionType.WITHDRAWAL).build();
+        actionCommandService.submit(withdrawal);
+        actionRepository.deleteById(withdrawal.getUuid());
+    }
+}
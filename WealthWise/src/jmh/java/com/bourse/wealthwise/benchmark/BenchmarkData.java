@@ -0,0 +1,157 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.BalanceLedger;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.PriceSeries;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Synthetic, reproducible data set for benchmarks: securities with a daily price series, portfolios,
+ * and a time-ordered mixed stream of deposits, buys, sales, withdrawals and capital raises spread
+ * evenly over the trading days.  Sales and withdrawals never exceed what the portfolio holds, so
+ * the resulting histories are valid.  Repositories and projections are wired by hand, without a
+ * Spring context.
+ */
+public final class BenchmarkData {
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+
+    public final ActionRepository actionRepository = new ActionRepository();
+    public final PortfolioRepository portfolioRepository = new PortfolioRepository();
+    public final SecurityRepository securityRepository = new SecurityRepository();
+    public final SecurityPriceRepository securityPriceRepository = new SecurityPriceRepository();
+    public final HoldingsProjection holdingsProjection;
+    public final BalanceLedger balanceLedger;
+
+    public final List<Portfolio> portfolios = new ArrayList<>();
+    public final List<Security> securities = new ArrayList<>();
+    public final int days;
+
+    private final SplittableRandom random;
+
+    private BenchmarkData(int days, long seed, int checkpointInterval) {
+        this.days = days;
+        this.random = new SplittableRandom(seed);
+        this.holdingsProjection = new HoldingsProjection(actionRepository, checkpointInterval);
+        this.balanceLedger = new BalanceLedger(actionRepository);
+    }
+
+    public static BenchmarkData generate(int portfolioCount, int securityCount, int days, long actionCount, long seed) {
+        BenchmarkData data = new BenchmarkData(days, seed, 256);
+        data.addSecurities(securityCount);
+        data.addPortfolios(portfolioCount);
+        data.addActions(actionCount);
+        return data;
+    }
+
+    /** Instant just after the last generated action. */
+    public LocalDateTime end() {
+        return FIRST_DAY.plusDays(days).atStartOfDay();
+    }
+
+    private void addSecurities(int count) {
+        Map<String, PriceSeries> series = new HashMap<>();
+        for (int s = 0; s < count; s++) {
+            Security security = Security.builder()
+                    .name("Security-" + s)
+                    .symbol("SYM" + s)
+                    .isin(String.format("IRO1B%07d", s))
+                    .build();
+            securityRepository.addSecurity(security);
+            securities.add(security);
+            // Random walk of daily closes around 1000
+            int[] epochDays = new int[days];
+            double[] prices = new double[days];
+            double price = 500 + random.nextDouble(1000);
+            for (int d = 0; d < days; d++) {
+                price = Math.max(1.0, price * (1 + (random.nextDouble() - 0.5) * 0.04));
+                epochDays[d] = (int) FIRST_DAY.plusDays(d).toEpochDay();
+                prices[d] = Math.rint(price);
+            }
+            series.put(security.getIsin(), PriceSeries.of(epochDays, prices));
+        }
+        securityPriceRepository.putAllSeries(series);
+    }
+
+    private void addPortfolios(int count) {
+        for (int p = 0; p < count; p++) {
+            User manager = User.builder().firstName("Manager").lastName(String.valueOf(p)).uuid(UUID.randomUUID().toString()).build();
+            Portfolio portfolio = new Portfolio(new UUID(0L, p).toString(), manager, "portfolio-" + p);
+            portfolioRepository.save(portfolio);
+            portfolios.add(portfolio);
+        }
+    }
+
+    private void addActions(long count) {
+        int portfolioCount = portfolios.size();
+        int securityCount = securities.size();
+        long[] cash = new long[portfolioCount];
+        long[][] volumes = new long[portfolioCount][securityCount];
+        long spanSeconds = days * 86_400L;
+        LocalDateTime start = FIRST_DAY.atStartOfDay();
+
+        for (long i = 0; i < count; i++) {
+            int p = random.nextInt(portfolioCount);
+            int s = random.nextInt(securityCount);
+            Portfolio portfolio = portfolios.get(p);
+            Security security = securities.get(s);
+            LocalDateTime datetime = start.plusSeconds(i * spanSeconds / count);
+            int day = (int) (i * days / count);
+            double price = securityPriceRepository.getPrice(security.getIsin(), FIRST_DAY.plusDays(day));
+            String uuid = new UUID(1L, i).toString();
+
+            BaseAction action;
+            int roll = random.nextInt(100);
+            if (roll < 15 || cash[p] < price) {
+                long amount = 100_000L + random.nextInt(1_000_000);
+                cash[p] += amount;
+                action = Deposit.builder().uuid(uuid).portfolio(portfolio).datetime(datetime)
+                        .amount(BigInteger.valueOf(amount)).actionType(ActionType.DEPOSIT).build();
+            } else if (roll < 60) {
+                long volume = 1 + random.nextLong(Math.max(1, (long) (cash[p] / price) / 4 + 1));
+                long total = (long) (volume * price);
+                cash[p] -= total;
+                volumes[p][s] += volume;
+                action = Buy.builder().uuid(uuid).portfolio(portfolio).datetime(datetime).security(security)
+                        .volume(BigInteger.valueOf(volume)).price(price).totalValue(BigInteger.valueOf(total))
+                        .actionType(ActionType.BUY).build();
+            } else if (roll < 90 && volumes[p][s] > 0) {
+                long volume = 1 + random.nextLong(volumes[p][s]);
+                long total = (long) (volume * price);
+                cash[p] += total;
+                volumes[p][s] -= volume;
+                action = Sale.builder().uuid(uuid).portfolio(portfolio).datetime(datetime).security(security)
+                        .volume(BigInteger.valueOf(volume)).price(price).totalValue(BigInteger.valueOf(total))
+                        .actionType(ActionType.SALE).build();
+            } else if (roll < 98 || volumes[p][s] == 0) {
+                long amount = 1 + random.nextLong(cash[p] / 10 + 1);
+                cash[p] -= amount;
+                action = Withdrawal.builder().uuid(uuid).portfolio(portfolio).datetime(datetime)
+                        .amount(BigInteger.valueOf(amount)).actionType(ActionType.WITHDRAWAL).build();
+            } else {
+                action = CapitalRaise.builder().uuid(uuid).portfolio(portfolio).datetime(datetime)
+                        .HSecurity(security).securityCurrentVolume(BigInteger.valueOf(volumes[p][s]))
+                        .stockRightAmountPerShare(0.1).actionType(ActionType.CAPITAL_RAISE).build();
+                volumes[p][s] += (long) (volumes[p][s] * 0.1);
+            }
+            actionRepository.save(action);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.WealthWiseApplication;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.services.CapitalRaiseListenerService;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.core.JmsTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the capital raise listener on an embedded Artemis broker.  Fills
+ * {@link CapitalRaiseListenerService#IN_QUEUE} with {@code messages} announcements, every tenth one
+ * malformed, while the listener is stopped, then starts it and times how long it takes to consume
+ * them all.
+ * <p>
+ * Run once per logging path and compare the rates:
+ * {@code mvn -Pbenchmarks test-compile exec:exec
+ * -Dbenchmark.main=com.bourse.wealthwise.benchmark.CapitalRaiseConsumerLoadTest -Djmh.args="100000 ASYNC"},
+ * then with {@code JSON} for the synchronous appender.  A third argument {@code DEBUG} also logs
+ * every message, as the listener used to print it to the console.
+ */
+public final class CapitalRaiseConsumerLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String appender = args.length > 1 ? args[1] : "ASYNC";
+        String level = args.length > 2 ? args[2] : "INFO";
+
+        ConfigurableApplicationContext context = SpringApplication.run(WealthWiseApplication.class,
+                "--spring.profiles.active=test", "--server.port=0",
+                "--wealthwise.logging.appender=" + appender,
+                "--logging.level.com.bourse.wealthwise=" + level);
+        try {
+            run(context, messages);
+        } finally {
+            context.close();
+        }
+        System.out.printf("appender=%s level=%s%n", appender, level);
+    }
+
+    private static void run(ConfigurableApplicationContext context, int messages) throws InterruptedException {
+        context.getBean(SecurityRepository.class).addSecurity(
+                Security.builder().name("Load Co").symbol("LOAD1").isin("IRO1LOAD0001").build());
+        JmsListenerEndpointRegistry listeners = context.getBean(JmsListenerEndpointRegistry.class);
+        JmsTemplate jmsTemplate = context.getBean(JmsTemplate.class);
+        Counter consumed = context.getBean(MeterRegistry.class).get("wealthwise.capital_raise.messages").counter();
+
+        listeners.stop();
+        for (int i = 0; i < messages; i++) {
+            jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE,
+                    i % 10 == 9 ? "CAPITAL_RAISE" : "CAPITAL_RAISE LOAD1 0." + (1 + i % 9));
+        }
+        double before = consumed.count();
+
+        long started = System.nanoTime();
+        listeners.start();
+        while (consumed.count() - before < messages) {
+            Thread.sleep(10);
+        }
+        long elapsed = System.nanoTime() - started;
+
+        System.out.printf("%nConsumed %,d messages in %d ms: %,.0f messages/s%n",
+                messages, TimeUnit.NANOSECONDS.toMillis(elapsed), messages / (elapsed / 1e9));
+    }
+}
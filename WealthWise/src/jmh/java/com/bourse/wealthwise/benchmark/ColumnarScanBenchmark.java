@@ -0,0 +1,84 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.columnar.ColumnarActionStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-history holdings of one portfolio, folded from the action objects of the heap store versus
+ * summed over the columns of {@link ColumnarActionStore}, plus the columnar balance scan.  No
+ * checkpoints are involved, so this is the cost of a cold analytics pass over each history.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ColumnarScan -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ColumnarScanBenchmark {
+
+    @Param({"100000", "1000000"})
+    public long actions;
+
+    @Param({"100"})
+    public int portfolios;
+
+    @Param({"50"})
+    public int securities;
+
+    private BenchmarkData data;
+    private ColumnarActionStore store;
+    private LocalDateTime at;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.generate(portfolios, securities, 2520, actions, 42L);
+        store = new ColumnarActionStore();
+        ActionRepository columnar = new ActionRepository(store);
+        data.actionRepository.forEachTimeline((portfolioId, timeline) -> columnar.saveAll(timeline));
+        at = data.end();
+        System.out.printf("%n%d actions in %d bytes off-heap%n", actions, store.offHeapBytes());
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextPortfolio(ColumnarScanBenchmark benchmark) {
+            next = (next + 1) % benchmark.portfolios;
+            return benchmark.data.portfolios.get(next).getUuid();
+        }
+    }
+
+    @Benchmark
+    public Map<Security, BigInteger> heapHoldings(Cursor cursor) {
+        Map<Security, BigInteger> volumes = new LinkedHashMap<>();
+        for (BaseAction action : data.actionRepository.findActionsOfBefore(cursor.nextPortfolio(this), at)) {
+            for (SecurityChange change : action.getSecurityChanges()) {
+                volumes.merge(change.getSecurity(), change.getVolumeChange(), BigInteger::add);
+            }
+        }
+        return volumes;
+    }
+
+    @Benchmark
+    public Map<Security, BigInteger> columnarHoldings(Cursor cursor) {
+        return store.holdingsBefore(cursor.nextPortfolio(this), at);
+    }
+
+    @Benchmark
+    public BigInteger columnarBalance(Cursor cursor) {
+        return store.balanceBefore(cursor.nextPortfolio(this), at);
+    }
+}
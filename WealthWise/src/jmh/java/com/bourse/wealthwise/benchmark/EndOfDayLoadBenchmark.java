@@ -0,0 +1,97 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.repository.PriceSeries;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import com.bourse.wealthwise.repository.ingest.BinaryPriceFile;
+import com.bourse.wealthwise.repository.ingest.EndOfDayPriceLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a market's daily price file, one new trading day per invocation, into a repository that
+ * already holds ten years of history, in CSV or the binary format.  The first warmup invocation
+ * pays for giving every history spare capacity; the days after it are appended in place.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="EndOfDayLoad -prof gc"}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 20)
+@Measurement(iterations = 100)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EndOfDayLoadBenchmark {
+
+    private static final int HISTORY_DAYS = 2520;
+
+    @Param({"csv", "binary"})
+    public String format;
+
+    @Param({"5000"})
+    public int securities;
+
+    private EndOfDayPriceLoader loader;
+    private final List<Path> files = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] isins = new String[securities];
+        Map<String, PriceSeries> history = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int s = 0; s < securities; s++) {
+            isins[s] = String.format("IRO1S%07d", s);
+            int[] days = new int[HISTORY_DAYS];
+            double[] prices = new double[HISTORY_DAYS];
+            for (int d = 0; d < HISTORY_DAYS; d++) {
+                days[d] = (int) BenchmarkData.FIRST_DAY.plusDays(d).toEpochDay();
+                prices[d] = 500 + random.nextInt(1000);
+            }
+            history.put(isins[s], PriceSeries.of(days, prices));
+        }
+        SecurityPriceRepository repository = new SecurityPriceRepository();
+        repository.putAllSeries(history);
+        loader = new EndOfDayPriceLoader(repository);
+
+        for (int d = 0; d < 120; d++) {
+            LocalDate date = BenchmarkData.FIRST_DAY.plusDays(HISTORY_DAYS + d);
+            Map<String, Double> day = new LinkedHashMap<>();
+            for (String isin : isins) {
+                day.put(isin, (500 + random.nextInt(100_000)) / 100.0);
+            }
+            Path file = Files.createTempFile("prices-" + date, "." + format);
+            if (format.equals("csv")) {
+                StringBuilder csv = new StringBuilder("isin,date,close\n");
+                day.forEach((isin, price) -> csv.append(isin).append(',').append(date).append(',').append(price).append('\n'));
+                Files.writeString(file, csv);
+            } else {
+                BinaryPriceFile.write(file, Map.of(date, day));
+            }
+            files.add(file);
+        }
+        System.out.printf("%n%s: %d KB per day%n", format, Files.size(files.get(0)) >> 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public EndOfDayPriceLoader.LoadResult loadDay() {
+        return loader.load(files.get(next++));
+    }
+}
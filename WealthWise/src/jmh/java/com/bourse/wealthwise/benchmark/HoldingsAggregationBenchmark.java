@@ -0,0 +1,71 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.domain.projection.SecurityVolumes;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replay of one portfolio's security changes into per-security volumes: the {@code BigInteger}
+ * map merge the projection used to do versus {@link SecurityVolumes}.  Scores are per replayed
+ * action; with {@code -prof gc}, {@code gc.alloc.rate.norm} of {@code securityVolumes} should be 0.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="HoldingsAggregation -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HoldingsAggregationBenchmark {
+
+    // Actions of the replayed portfolio; trades carry one security change, cash movements none
+    private static final int ACTIONS = 10_000;
+
+    @Param({"50"})
+    public int securities;
+
+    private BenchmarkData data;
+    private List<BaseAction> actions;
+    private SecurityVolumes volumes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.generate(1, securities, 2520, ACTIONS, 42L);
+        actions = data.actionRepository.findAllActionsOf(data.portfolios.get(0).getUuid());
+        for (BaseAction action : actions) {
+            action.getSecurityChanges(); // derive once, as the projection's repeated queries do
+        }
+        volumes = new SecurityVolumes(securities);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACTIONS)
+    public Map<Security, BigInteger> bigIntegerMerge() {
+        Map<Security, BigInteger> merged = new LinkedHashMap<>();
+        for (BaseAction action : actions) {
+            for (SecurityChange change : action.getSecurityChanges()) {
+                merged.merge(change.getSecurity(), change.getVolumeChange(), BigInteger::add);
+            }
+        }
+        return merged;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACTIONS)
+    public SecurityVolumes securityVolumes() {
+        volumes.clear();
+        for (int i = 0; i < actions.size(); i++) {
+            data.holdingsProjection.replay(actions.get(i), volumes);
+        }
+        return volumes;
+    }
+}
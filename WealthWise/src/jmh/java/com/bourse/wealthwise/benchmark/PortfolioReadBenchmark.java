@@ -0,0 +1,103 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.services.BalanceActionService;
+import com.bourse.wealthwise.domain.services.PortfolioActionService;
+import com.bourse.wealthwise.domain.services.PositionOrdering;
+import com.bourse.wealthwise.domain.services.ViewPortfolioSecuritiesService;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of a single portfolio against books of 10^3 to 10^7 actions.  Actions are spread over
+ * {@code portfolios} portfolios, so each query sees about {@code actions / portfolios} of them.
+ * Queries rotate through the portfolios and ask for the state at the end of the history.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="PortfolioRead -prof gc"};
+ * add {@code -p actions=1000,10000} to limit the sizes.  The largest size needs a large heap, which
+ * the fork arguments below provide.  {@code -p metrics=true} times the services into a Prometheus
+ * registry, to compare with the disabled timers that {@code -prof gc} should show allocate nothing.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class PortfolioReadBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public long actions;
+
+    @Param({"100"})
+    public int portfolios;
+
+    @Param({"50"})
+    public int securities;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private BenchmarkData data;
+    private ViewPortfolioSecuritiesService viewPortfolioSecuritiesService;
+    private BalanceActionService balanceActionService;
+    private PortfolioActionService portfolioActionService;
+    private LocalDateTime at;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.generate(portfolios, securities, 2520, actions, 42L);
+        WealthWiseMetrics meters = metrics
+                ? WealthWiseMetrics.of(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT))
+                : WealthWiseMetrics.disabled();
+        viewPortfolioSecuritiesService = new ViewPortfolioSecuritiesService(
+                data.portfolioRepository, data.securityPriceRepository, data.holdingsProjection, meters);
+        balanceActionService = new BalanceActionService(data.balanceLedger, data.portfolioRepository, meters);
+        portfolioActionService = new PortfolioActionService(data.actionRepository, data.portfolioRepository, meters);
+        at = data.end();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextPortfolio(PortfolioReadBenchmark benchmark) {
+            next = (next + 1) % benchmark.portfolios;
+            return benchmark.data.portfolios.get(next).getUuid();
+        }
+    }
+
+    @Benchmark
+    public Object getPortfolioSecurities(Cursor cursor) {
+        return viewPortfolioSecuritiesService.getPortfolioSecurities(cursor.nextPortfolio(this), at);
+    }
+
+    @Benchmark
+    public Object getTopPositionsByValue(Cursor cursor) {
+        return viewPortfolioSecuritiesService.getPortfolioSecurities(cursor.nextPortfolio(this), at, PositionOrdering.VALUE, 20);
+    }
+
+    @Benchmark
+    public Object getBalanceForPortfolio(Cursor cursor) {
+        return balanceActionService.getBalanceForPortfolio(cursor.nextPortfolio(this), at);
+    }
+
+    @Benchmark
+    public Object getActionsForPortfolio(Cursor cursor) {
+        return portfolioActionService.getActionsForPortfolio(cursor.nextPortfolio(this), at);
+    }
+
+    @Benchmark
+    public Object getActionPage(Cursor cursor) {
+        return portfolioActionService.getActionPage(cursor.nextPortfolio(this), at, null, 50, true);
+    }
+
+    @Benchmark
+    public Object findAllActionsOf(Cursor cursor) {
+        return data.actionRepository.findAllActionsOf(cursor.nextPortfolio(this));
+    }
+}
@@ -0,0 +1,138 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.repository.PriceMatrix;
+import com.bourse.wealthwise.repository.PriceSeries;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price lookups over a market's history held as heap {@link PriceSeries} versus a memory-mapped
+ * {@link PriceMatrix}, with about one security in ten not priced on a given day.  Setup prints the
+ * heap each store retains, measured after a full GC, and the matrix's off-heap bytes.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="PriceStore -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PriceStoreBenchmark {
+
+    @Param({"heap", "matrix"})
+    public String store;
+
+    @Param({"5000"})
+    public int securities;
+
+    // Ten years of trading days
+    @Param({"2520"})
+    public int days;
+
+    private SecurityPriceRepository repository;
+    private String[] isins;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        isins = new String[securities];
+        for (int s = 0; s < securities; s++) {
+            isins[s] = String.format("IRO1S%07d", s);
+        }
+        if (store.equals("matrix")) {
+            file = Files.createTempFile("prices", ".matrix");
+            writeMatrix(file);
+        }
+        long before = usedHeapAfterGc();
+        repository = new SecurityPriceRepository();
+        if (file == null) {
+            fill(repository);
+        } else {
+            repository.loadMatrix(file);
+        }
+        System.out.printf("%n%s: %d prices, %d KB retained on heap%s%n", store, repository.pricePointCount(),
+                (usedHeapAfterGc() - before) >> 10,
+                file == null ? "" : ", " + (Files.size(file) >> 10) + " KB mapped");
+    }
+
+    // The heap series it is written from are garbage once it returns
+    private void writeMatrix(Path target) {
+        SecurityPriceRepository source = new SecurityPriceRepository();
+        fill(source);
+        Map<String, PriceSeries> series = new HashMap<>();
+        source.forEachSeries(series::put);
+        PriceMatrix.write(target, series);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void fill(SecurityPriceRepository target) {
+        Map<String, PriceSeries> series = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42L);
+        for (String isin : isins) {
+            int[] epochDays = new int[days];
+            double[] prices = new double[days];
+            int size = 0;
+            double price = 500 + random.nextDouble(1000);
+            for (int d = 0; d < days; d++) {
+                price = Math.max(1.0, price * (1 + (random.nextDouble() - 0.5) * 0.04));
+                if (random.nextInt(10) > 0) {
+                    epochDays[size] = (int) BenchmarkData.FIRST_DAY.plusDays(d).toEpochDay();
+                    prices[size++] = Math.rint(price);
+                }
+            }
+            series.put(isin, PriceSeries.of(Arrays.copyOf(epochDays, size), Arrays.copyOf(prices, size)));
+        }
+        target.putAllSeries(series);
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        private final SplittableRandom random = new SplittableRandom(7L);
+
+        String isin(PriceStoreBenchmark benchmark) {
+            return benchmark.isins[random.nextInt(benchmark.isins.length)];
+        }
+
+        LocalDate date(PriceStoreBenchmark benchmark) {
+            return BenchmarkData.FIRST_DAY.plusDays(random.nextInt(benchmark.days));
+        }
+    }
+
+    @Benchmark
+    public Double getPrice(Lookup lookup) {
+        return repository.getPrice(lookup.isin(this), lookup.date(this));
+    }
+
+    @Benchmark
+    public double getPriceAsOfOrNaN(Lookup lookup) {
+        return repository.getPriceAsOfOrNaN(lookup.isin(this), lookup.date(this));
+    }
+}
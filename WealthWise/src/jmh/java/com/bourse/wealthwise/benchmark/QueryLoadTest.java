@@ -0,0 +1,149 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.WealthWiseApplication;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.PriceSeries;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local load test of the HTTP query layer.  Starts the application on a random port with an
+ * embedded broker, loads a {@link BenchmarkData} book into it, then keeps {@code concurrency}
+ * requests in flight for {@code seconds}, each on its own virtual thread, rotating through the
+ * holdings, balance and actions endpoints of every portfolio.  Prints throughput, status codes and
+ * latency percentiles, and the server's live platform thread count, which should stay flat however
+ * high the concurrency goes.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec
+ * -Dbenchmark.main=com.bourse.wealthwise.benchmark.QueryLoadTest -Djmh.args="20000 30"}; the
+ * arguments are concurrency, seconds, portfolios and actions.  High concurrency needs a raised
+ * open file limit ({@code ulimit -n}).
+ */
+public final class QueryLoadTest {
+
+    private static final String[] ENDPOINTS = {"holdings", "balance", "actions"};
+    // Latencies kept for percentiles; later samples only count towards throughput
+    private static final int MAX_SAMPLES = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int portfolioCount = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        long actionCount = args.length > 3 ? Long.parseLong(args[3]) : 1_000_000;
+
+        ConfigurableApplicationContext context = SpringApplication.run(WealthWiseApplication.class,
+                "--server.port=0", "--spring.artemis.mode=embedded");
+        try {
+            load(context, BenchmarkData.generate(portfolioCount, 50, 2520, actionCount, 42L));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<Portfolio> portfolios = context.getBean(PortfolioRepository.class).findAll();
+            run(URI.create("http://localhost:" + port), portfolios, concurrency, Duration.ofSeconds(seconds));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void load(ConfigurableApplicationContext context, BenchmarkData data) {
+        PortfolioRepository portfolioRepository = context.getBean(PortfolioRepository.class);
+        SecurityRepository securityRepository = context.getBean(SecurityRepository.class);
+        SecurityPriceRepository securityPriceRepository = context.getBean(SecurityPriceRepository.class);
+        ActionRepository actionRepository = context.getBean(ActionRepository.class);
+        data.portfolios.forEach(portfolioRepository::save);
+        for (Security security : data.securities) {
+            securityRepository.addSecurity(security);
+        }
+        Map<String, PriceSeries> series = new HashMap<>();
+        data.securityPriceRepository.forEachSeries(series::put);
+        securityPriceRepository.putAllSeries(series);
+        data.actionRepository.forEachTimeline((portfolioId, timeline) -> actionRepository.saveAll(timeline));
+        System.out.printf("Loaded %d portfolios and %d securities%n", data.portfolios.size(), data.securities.size());
+    }
+
+    private static void run(URI server, List<Portfolio> portfolios, int concurrency, Duration duration) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String at = BenchmarkData.FIRST_DAY.plusYears(10).atStartOfDay().toString();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicInteger samples = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        LongAdder completed = new LongAdder();
+        ConcurrentHashMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        int peakPlatformThreads = Thread.activeCount();
+
+        // Closed loop: every virtual thread sends its next request as soon as the previous one returns
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        int n = next.getAndIncrement();
+                        Portfolio portfolio = portfolios.get(Math.floorMod(n, portfolios.size()));
+                        String endpoint = ENDPOINTS[Math.floorMod(n, ENDPOINTS.length)];
+                        HttpRequest request = HttpRequest.newBuilder(server.resolve(
+                                        "/api/portfolios/" + portfolio.getUuid() + "/" + endpoint + "?at=" + at))
+                                .timeout(Duration.ofSeconds(60))
+                                .build();
+                        long start = System.nanoTime();
+                        String outcome;
+                        try {
+                            outcome = Integer.toString(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+                        } catch (Exception e) {
+                            outcome = e.getClass().getSimpleName();
+                        }
+                        int sample = samples.getAndIncrement();
+                        if (sample < MAX_SAMPLES) {
+                            latencies[sample] = System.nanoTime() - start;
+                        }
+                        completed.increment();
+                        outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+                    }
+                    return null;
+                });
+            }
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(1000);
+                peakPlatformThreads = Math.max(peakPlatformThreads, Thread.activeCount());
+                System.out.printf("%,d requests completed%n", completed.sum());
+            }
+        }
+
+        int recorded = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        System.out.printf("%nConcurrency %,d for %ds: %,d requests, %,.0f req/s%n",
+                concurrency, duration.toSeconds(), completed.sum(), completed.sum() / (double) duration.toSeconds());
+        System.out.println("Outcomes: " + outcomes);
+        if (recorded > 0) {
+            System.out.printf("Latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted[recorded - 1] / 1e6);
+        }
+        System.out.printf("Peak live platform threads in this JVM: %d%n", peakPlatformThreads);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1e6;
+    }
+}
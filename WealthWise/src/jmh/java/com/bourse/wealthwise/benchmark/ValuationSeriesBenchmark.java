@@ -0,0 +1,82 @@
+package com.bourse.wealthwise.benchmark;
+
+import com.bourse.wealthwise.domain.services.ValuationSeriesService;
+import com.bourse.wealthwise.domain.services.ViewPortfolioSecuritiesService;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A year of daily valuations for one portfolio, ending at the end of the history: one
+ * {@link ValuationSeriesService} sweep against a {@link ViewPortfolioSecuritiesService} query per
+ * day, which is what a chart had to do before.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ValuationSeries -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ValuationSeriesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public long actions;
+
+    @Param({"100"})
+    public int portfolios;
+
+    @Param({"50"})
+    public int securities;
+
+    @Param({"365"})
+    public int days;
+
+    private BenchmarkData data;
+    private ViewPortfolioSecuritiesService viewPortfolioSecuritiesService;
+    private ValuationSeriesService valuationSeriesService;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.generate(portfolios, securities, 2520, actions, 42L);
+        viewPortfolioSecuritiesService = new ViewPortfolioSecuritiesService(
+                data.portfolioRepository, data.securityPriceRepository, data.holdingsProjection, WealthWiseMetrics.disabled());
+        valuationSeriesService = new ValuationSeriesService(
+                data.portfolioRepository, data.actionRepository, data.securityPriceRepository, data.holdingsProjection);
+        to = data.end().toLocalDate();
+        from = to.minusDays(days - 1);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextPortfolio(ValuationSeriesBenchmark benchmark) {
+            next = (next + 1) % benchmark.portfolios;
+            return benchmark.data.portfolios.get(next).getUuid();
+        }
+    }
+
+    @Benchmark
+    public Object sweep(Cursor cursor) {
+        return valuationSeriesService.getValuationSeries(cursor.nextPortfolio(this), from, to, Period.ofDays(1));
+    }
+
+    @Benchmark
+    public Object queryPerDay(Cursor cursor) {
+        String portfolioId = cursor.nextPortfolio(this);
+        List<Object> points = new ArrayList<>(days);
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            points.add(viewPortfolioSecuritiesService.getPortfolioSecurities(portfolioId, date.plusDays(1).atStartOfDay()));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bourse.wealthwise.domain.entity.action;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading an action's change events.  {@code before*} reproduces what every call did before
+ * memoization (fresh Lombok objects plus a SecureRandom-backed uuid per change), {@code derive*}
+ * is one uncached derivation with stable uuids, and {@code after*} is the memoized getter the read
+ * paths use now.  Run with {@code -prof gc} to compare allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeDerivationBenchmark {
+
+    private Portfolio portfolio;
+    private Security security;
+    private Buy buy;
+
+    @Setup
+    public void setUp() {
+        portfolio = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "bench");
+        security = Security.builder().name("BaseCo").symbol("BASE1").isin("IR0BASE00001").build();
+        buy = Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.of(2025, 1, 1, 10, 0))
+                .security(security)
+                .volume(BigInteger.valueOf(100))
+                .price(3.0)
+                .totalValue(BigInteger.valueOf(300))
+                .actionType(ActionType.BUY)
+                .build();
+        // Warm the memoized lists so after* measures the steady state
+        buy.getBalanceChanges();
+        buy.getSecurityChanges();
+    }
+
+    @Benchmark
+    public void before(Blackhole bh) {
+        readAsBefore(bh);
+    }
+
+    @Benchmark
+    public void derive(Blackhole bh) {
+        bh.consume(buy.deriveBalanceChanges());
+        bh.consume(buy.deriveSecurityChanges());
+    }
+
+    @Benchmark
+    public void after(Blackhole bh) {
+        bh.consume(buy.getBalanceChanges());
+        bh.consume(buy.getSecurityChanges());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void beforeContended(Blackhole bh) {
+        readAsBefore(bh);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void afterContended(Blackhole bh) {
+        bh.consume(buy.getBalanceChanges());
+        bh.consume(buy.getSecurityChanges());
+    }
+
+    private void readAsBefore(Blackhole bh) {
+        bh.consume(List.of(
+                BalanceChange.builder()
+                        .uuid(UUID.randomUUID())
+                        .portfolio(portfolio)
+                        .datetime(buy.getDatetime())
+                        .change_amount(buy.getTotalValue().negate())
+                        .action(buy)
+                        .build()
+        ));
+        bh.consume(List.of(
+                SecurityChange.builder()
+                        .uuid(UUID.randomUUID())
+                        .portfolio(portfolio)
+                        .datetime(buy.getDatetime())
+                        .security(security)
+                        .volumeChange(buy.getVolume())
+                        .action(buy)
+                        .build()
+        ));
+    }
+}
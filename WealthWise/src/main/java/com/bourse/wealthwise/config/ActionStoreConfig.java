@@ -0,0 +1,25 @@
+package com.bourse.wealthwise.config;
+
+import com.bourse.wealthwise.repository.ActionStore;
+import com.bourse.wealthwise.repository.HeapActionStore;
+import com.bourse.wealthwise.repository.columnar.ColumnarActionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ActionStoreConfig {
+
+    /**
+     * Storage behind {@code ActionRepository}: {@code heap} keeps the action objects,
+     * {@code columnar} keeps off-heap columns and decodes actions on read.
+     */
+    @Bean
+    public ActionStore actionStore(@Value("${wealthwise.actions.store:heap}") String store) {
+        return switch (store) {
+            case "heap" -> new HeapActionStore();
+            case "columnar" -> new ColumnarActionStore();
+            default -> throw new IllegalArgumentException("Unknown wealthwise.actions.store: " + store);
+        };
+    }
+}
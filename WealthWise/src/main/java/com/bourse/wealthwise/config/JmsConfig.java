@@ -0,0 +1,34 @@
+package com.bourse.wealthwise.config;
+
+import jakarta.jms.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+
+@Configuration
+public class JmsConfig {
+
+    /**
+     * Container factory of the capital raise listener: Spring Boot's {@code spring.jms.listener.*}
+     * settings with the configured number of consumers.  Sessions are transacted, so a message whose
+     * allocation throws is rolled back and redelivered rather than acknowledged.  In batch mode the
+     * container is not started, as {@code CapitalRaiseBatchConsumer} drains the queue instead.
+     */
+    @Bean
+    public DefaultJmsListenerContainerFactory capitalRaiseListenerContainerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${wealthwise.capital-raise.listener.concurrency:1}") String concurrency,
+            @Value("${wealthwise.capital-raise.batch.enabled:false}") boolean batchEnabled) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrency(concurrency);
+        factory.setSessionTransacted(true);
+        if (batchEnabled) {
+            factory.setAutoStartup(false);
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,45 @@
+package com.bourse.wealthwise.config;
+
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "wealthwise.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    /**
+     * Size of each in-memory repository as {@code wealthwise.repository.entries}, tagged by
+     * repository.  Gauges are read on scrape, so they cost nothing on the write path.
+     */
+    @Bean
+    public MeterBinder repositoryMetrics(ActionRepository actionRepository,
+                                         PortfolioRepository portfolioRepository,
+                                         SecurityRepository securityRepository,
+                                         SecurityPriceRepository securityPriceRepository) {
+        return registry -> {
+            Gauge.builder("wealthwise.repository.entries", actionRepository, ActionRepository::count)
+                    .description("Entries held by an in-memory repository")
+                    .tag("repository", "actions")
+                    .register(registry);
+            Gauge.builder("wealthwise.repository.entries", portfolioRepository, PortfolioRepository::count)
+                    .description("Entries held by an in-memory repository")
+                    .tag("repository", "portfolios")
+                    .register(registry);
+            Gauge.builder("wealthwise.repository.entries", securityRepository, SecurityRepository::count)
+                    .description("Entries held by an in-memory repository")
+                    .tag("repository", "securities")
+                    .register(registry);
+            Gauge.builder("wealthwise.repository.entries", securityPriceRepository, SecurityPriceRepository::pricePointCount)
+                    .description("Entries held by an in-memory repository")
+                    .tag("repository", "price_points")
+                    .register(registry);
+        };
+    }
+}
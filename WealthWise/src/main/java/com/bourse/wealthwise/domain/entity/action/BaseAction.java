@@ -5,13 +5,16 @@ import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
 import com.bourse.wealthwise.domain.entity.security.SecurityChange;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @SuperBuilder
 @Getter
@@ -30,8 +33,37 @@ public abstract class BaseAction {
     @Setter
     protected Actor actor;
 
-    public abstract List<BalanceChange> getBalanceChanges();
-    public abstract List<SecurityChange> getSecurityChanges();
+    // Final and initialized, so the builders leave it out; holds the derived change events once computed
+    @Getter(AccessLevel.NONE)
+    private final DerivedChanges derivedChanges = new DerivedChanges();
+
+    /**
+     * Balance change events of this action.  They are derived on first use and then reused, so
+     * repeated queries over the same action allocate nothing.
+     */
+    public final List<BalanceChange> getBalanceChanges() {
+        List<BalanceChange> changes = derivedChanges.balanceChanges;
+        if (changes == null) {
+            changes = deriveBalanceChanges();
+            derivedChanges.balanceChanges = changes;
+        }
+        return changes;
+    }
+
+    /**
+     * Security change events of this action, derived on first use like {@link #getBalanceChanges()}.
+     */
+    public final List<SecurityChange> getSecurityChanges() {
+        List<SecurityChange> changes = derivedChanges.securityChanges;
+        if (changes == null) {
+            changes = deriveSecurityChanges();
+            derivedChanges.securityChanges = changes;
+        }
+        return changes;
+    }
+
+    protected abstract List<BalanceChange> deriveBalanceChanges();
+    protected abstract List<SecurityChange> deriveSecurityChanges();
     public abstract String accept(ActionVisitor visitor);
 
 
@@ -39,4 +71,18 @@ public abstract class BaseAction {
 
 
 
+    /**
+     * Stable uuid of the {@code index}-th change of the given kind.  It depends only on this action's
+     * uuid, so a change derived twice (e.g. by racing threads) keeps the same identity.
+     */
+    protected final UUID changeUuid(String kind, int index) {
+        return UUID.nameUUIDFromBytes((uuid + "/" + kind + "/" + index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Racing first calls may both derive; the results are equal, so the last write winning is harmless
+    private static final class DerivedChanges {
+        private volatile List<BalanceChange> balanceChanges;
+        private volatile List<SecurityChange> securityChanges;
+    }
+
 }
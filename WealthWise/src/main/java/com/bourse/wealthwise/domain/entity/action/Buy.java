@@ -9,7 +9,6 @@ import lombok.experimental.SuperBuilder;
 
 import java.math.BigInteger;
 import java.util.List;
-import java.util.UUID;
 
 @SuperBuilder
 @Getter
@@ -20,10 +19,10 @@ public class Buy extends BaseAction {
     private final BigInteger totalValue;
 
     @Override
-    public List<BalanceChange> getBalanceChanges() {
+    protected List<BalanceChange> deriveBalanceChanges() {
         return List.of(
                 BalanceChange.builder()
-                        .uuid(UUID.randomUUID())
+                        .uuid(changeUuid("balance", 0))
                         .portfolio(this.portfolio)
                         .datetime(this.datetime)
                         .change_amount(this.totalValue.negate()) // Deduct total cost
@@ -33,10 +32,10 @@ public class Buy extends BaseAction {
     }
 
     @Override
-    public List<SecurityChange> getSecurityChanges() {
+    protected List<SecurityChange> deriveSecurityChanges() {
         return List.of(
                 SecurityChange.builder()
-                        .uuid(UUID.randomUUID())
+                        .uuid(changeUuid("security", 0))
                         .portfolio(this.portfolio)
                         .datetime(this.datetime)
                         .security(this.security)
@@ -9,7 +9,6 @@ import lombok.experimental.SuperBuilder;
 
 import java.math.BigInteger;
 import java.util.List;
-import java.util.UUID;
 
 @SuperBuilder
 @Getter
@@ -19,10 +18,10 @@ public class CapitalRaise extends BaseAction {
     private BigInteger securityCurrentVolume;
     private double stockRightAmountPerShare;
     @Override
-    public List<BalanceChange> getBalanceChanges() {
+    protected List<BalanceChange> deriveBalanceChanges() {
         return List.of(
                 BalanceChange.builder()
-                        .uuid(UUID.randomUUID())
+                        .uuid(changeUuid("balance", 0))
                         .portfolio(this.portfolio)
                         .datetime(this.datetime)
                         .change_amount(BigInteger.valueOf(0)) // Deduct total cost
@@ -32,7 +31,7 @@ public class CapitalRaise extends BaseAction {
     }
 
     @Override
-    public List<SecurityChange> getSecurityChanges() {
+    protected List<SecurityChange> deriveSecurityChanges() {
         if(securityCurrentVolume.equals(BigInteger.valueOf(0))){
             return List.of();
         }
@@ -40,7 +39,7 @@ public class CapitalRaise extends BaseAction {
         var volumeChange = securityCurrentVolume.doubleValue() * stockRightAmountPerShare;
         return List.of(
                 SecurityChange.builder()
-                        .uuid(UUID.randomUUID())
+                        .uuid(changeUuid("security", 0))
                         .portfolio(this.portfolio)
                         .datetime(this.datetime)
                         .security(this.HSecurity)
@@ -11,7 +11,6 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.List;
-import java.util.UUID;
 
 @SuperBuilder
 @Getter
@@ -19,10 +18,10 @@ public class Deposit extends BaseAction {
     private BigInteger amount;
 
     @Override
-    public List<BalanceChange> getBalanceChanges() {
+    protected List<BalanceChange> deriveBalanceChanges() {
         return List.of(
                 BalanceChange.builder()
-                    .uuid(UUID.randomUUID())
+                    .uuid(changeUuid("balance", 0))
                     .portfolio(this.portfolio)
                     .datetime(this.datetime)
                     .change_amount(this.amount)
@@ -31,7 +30,7 @@ public class Deposit extends BaseAction {
     }
 
     @Override
-    public List<SecurityChange> getSecurityChanges(){
+    protected List<SecurityChange> deriveSecurityChanges(){
         return List.of();
     }
 
@@ -9,7 +9,6 @@ import lombok.experimental.SuperBuilder;
 
 import java.math.BigInteger;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Represents the use of stock rights by a portfolio holder.  When a user decides to
@@ -33,12 +32,12 @@ public class StockRightUsage extends BaseAction {
     private final BigInteger pricePerRight;
 
     @Override
-    public List<BalanceChange> getBalanceChanges() {
+    protected List<BalanceChange> deriveBalanceChanges() {
         // Calculate total payment and record it as a negative balance change
         BigInteger totalPayment = pricePerRight.multiply(volume);
         return List.of(
                 BalanceChange.builder()
-                        .uuid(UUID.randomUUID())
+                        .uuid(changeUuid("balance", 0))
                         .portfolio(this.portfolio)
                         .datetime(this.datetime)
                         .change_amount(totalPayment.negate())
@@ -48,10 +47,10 @@ public class StockRightUsage extends BaseAction {
     }
 
     @Override
-    public List<SecurityChange> getSecurityChanges() {
+    protected List<SecurityChange> deriveSecurityChanges() {
         // Two events: remove rights and add underlying shares; both untradable until finalization
         SecurityChange rightsRemoval = SecurityChange.builder()
-                .uuid(UUID.randomUUID())
+                .uuid(changeUuid("security", 0))
                 .portfolio(this.portfolio)
                 .datetime(this.datetime)
                 .security(this.stockRightSecurity)
@@ -61,7 +60,7 @@ public class StockRightUsage extends BaseAction {
                 .build();
 
         SecurityChange sharesAddition = SecurityChange.builder()
-                .uuid(UUID.randomUUID())
+                .uuid(changeUuid("security", 1))
                 .portfolio(this.portfolio)
                 .datetime(this.datetime)
                 .security(this.mainSecurity)
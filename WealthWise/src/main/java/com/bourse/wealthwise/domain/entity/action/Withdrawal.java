@@ -9,7 +9,6 @@ import lombok.experimental.SuperBuilder;
 
 import java.math.BigInteger;
 import java.util.List;
-import java.util.UUID;
 
 @SuperBuilder
 @Getter
@@ -17,10 +16,10 @@ public class Withdrawal extends BaseAction {
     private BigInteger amount;
 
     @Override
-    public List<BalanceChange> getBalanceChanges() {
+    protected List<BalanceChange> deriveBalanceChanges() {
         return List.of(
                 BalanceChange.builder()
-                        .uuid(UUID.randomUUID())
+                        .uuid(changeUuid("balance", 0))
                         .portfolio(this.portfolio)
                         .datetime(this.datetime)
                         .change_amount(this.amount.negate()) // -1 * amount
@@ -29,7 +28,7 @@ public class Withdrawal extends BaseAction {
     }
 
     @Override
-    public List<SecurityChange> getSecurityChanges(){
+    protected List<SecurityChange> deriveSecurityChanges(){
         return List.of();
     }
 
@@ -3,44 +3,41 @@ package com.bourse.wealthwise.domain.entity.action.utils;
 import com.bourse.wealthwise.domain.entity.action.*;
 
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * One-line descriptions of actions.  Each description is appended to a single reusable
+ * {@link StringBuilder} instead of going through {@code String.format}, so describing a page of
+ * actions creates little more than the strings returned.  Not thread-safe: use one visitor per
+ * call or stream.
+ */
 public class ActionDescriptionVisitor implements ActionVisitor {
 
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final StringBuilder sb = new StringBuilder(96);
 
     @Override
     public String visit(Buy buy) {
-        return String.format("[%s] Bought %s of %s @ %f/unit (Total: %s)",
-                buy.getDatetime().format(formatter),
-                buy.getVolume(),
-                buy.getSecurity().getSymbol(),
-                buy.getPrice(),
-                buy.getTotalValue());
+        return trade("Bought ", buy.getDatetime(), buy.getVolume(), buy.getSecurity().getSymbol(), buy.getPrice(), buy.getTotalValue());
     }
 
     @Override
     public String visit(Sale sale) {
-        return String.format("[%s] Sold %s of %s @ %f/unit (Total: %s)",
-                sale.getDatetime().format(formatter),
-                sale.getVolume(),
-                sale.getSecurity().getSymbol(),
-                sale.getPrice(),
-                sale.getTotalValue());
+        return trade("Sold ", sale.getDatetime(), sale.getVolume(), sale.getSecurity().getSymbol(), sale.getPrice(), sale.getTotalValue());
     }
 
     @Override
     public String visit(Deposit deposit) {
-        return String.format("[%s] Deposited amount: %s",
-                deposit.getDatetime().format(formatter),
-                deposit.getAmount());
+        return start(deposit.getDatetime()).append("Deposited amount: ").append(deposit.getAmount()).toString();
     }
 
     @Override
     public String visit(Withdrawal withdrawal) {
-        return String.format("[%s] Withdrew amount: %s",
-                withdrawal.getDatetime().format(formatter),
-                withdrawal.getAmount());
+        return start(withdrawal.getDatetime()).append("Withdrew amount: ").append(withdrawal.getAmount()).toString();
     }
 
     @Override
@@ -52,4 +49,32 @@ public class ActionDescriptionVisitor implements ActionVisitor {
     public String visit(StockRightUsage stockRightUsage) {
         return "Stock right usage";
     }
+
+    // [yyyy-MM-dd HH:mm] Bought <volume> of <symbol> @ <price>/unit (Total: <total>)
+    private String trade(String verb, LocalDateTime datetime, Object volume, String symbol, Double price, Object total) {
+        start(datetime).append(verb).append(volume).append(" of ").append(symbol).append(" @ ");
+        appendFixed6(price);
+        return sb.append("/unit (Total: ").append(total).append(')').toString();
+    }
+
+    private StringBuilder start(LocalDateTime datetime) {
+        sb.setLength(0);
+        sb.append('[');
+        FORMATTER.formatTo(datetime, sb);
+        return sb.append("] ");
+    }
+
+    /** What {@code %f} printed: six decimals, rounded half-up from the shortest decimal form. */
+    private void appendFixed6(Double value) {
+        if (value == null || value.isNaN() || value.isInfinite()) {
+            sb.append(value);
+            return;
+        }
+        BigDecimal fixed = BigDecimal.valueOf(value).setScale(6, RoundingMode.HALF_UP);
+        // A negative value that rounds to zero keeps its sign, as in -0.000000
+        if (fixed.signum() == 0 && Math.copySign(1.0, value) < 0) {
+            sb.append('-');
+        }
+        sb.append(fixed.toPlainString());
+    }
 }
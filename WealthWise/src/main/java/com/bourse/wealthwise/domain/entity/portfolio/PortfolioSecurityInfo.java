@@ -13,6 +13,8 @@ public class PortfolioSecurityInfo {
     private BigInteger volume;
     private Double price;
     private Double value;
+    // Share of the portfolio's priced value, null like value for a security without a price
+    private Double weight;
     public PortfolioSecurityInfo(Security security, BigInteger volume, Double price){
         this.security = security;
         this.volume = volume;
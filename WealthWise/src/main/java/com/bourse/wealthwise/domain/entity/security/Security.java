@@ -1,24 +1,52 @@
 package com.bourse.wealthwise.domain.entity.security;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
 
 @Getter
 @ToString
-@Builder
 public class Security {
 
+    // getCollationKey is synchronized on the collator, so one instance serves every thread
+    private static final Collator NAME_COLLATOR = Collator.getInstance(Locale.ROOT);
+
     private String name ;
 
     private String symbol;
 
-    @Builder.Default
-    private SecurityType securityType = SecurityType.STOCK;
+    private SecurityType securityType;
 
     private String isin;
 
+    // Computed on first use; racing threads compute equal keys
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile CollationKey nameKey;
+
+    @Builder
+    private Security(String name, String symbol, SecurityType securityType, String isin) {
+        this.name = name;
+        this.symbol = symbol;
+        this.securityType = securityType != null ? securityType : SecurityType.STOCK;
+        this.isin = isin;
+    }
+
+    /**
+     * Collation key of the name, so that ordering positions by name compares precomputed bytes
+     * rather than collating the strings on every comparison.  A security without a name sorts first.
+     */
+    public CollationKey nameKey() {
+        CollationKey key = nameKey;
+        if (key == null) {
+            key = NAME_COLLATOR.getCollationKey(name != null ? name : "");
+            nameKey = key;
+        }
+        return key;
+    }
 }
@@ -0,0 +1,186 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import com.bourse.wealthwise.repository.ActionChangeListener;
+import com.bourse.wealthwise.repository.ActionKey;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.columnar.ColumnarActionStore;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running cash balance of every portfolio.  For each action the ledger stores the cumulative balance
+ * right after it, in time order, so the balance as of any instant is one binary search.  Sums are
+ * kept in a {@code long[]} and the portfolio switches to {@link BigInteger} sums the first time a
+ * value does not fit.  The ledger follows {@link ActionRepository} writes, including back-dated
+ * inserts, which shift the sums of every later action.
+ * <p>
+ * With a {@link ColumnarActionStore} the ledger keeps nothing and sums the store's cash column
+ * instead, so no per-action key stays on the heap.
+ */
+@Component
+public class BalanceLedger implements ActionChangeListener {
+
+    private final Map<String, PortfolioLedger> ledgers = new ConcurrentHashMap<>();
+    // Non-null when the repository stores columns, which answer every query
+    private final ColumnarActionStore columnar;
+
+    public BalanceLedger(ActionRepository actionRepository) {
+        this.columnar = actionRepository.store() instanceof ColumnarActionStore store ? store : null;
+        if (columnar == null) {
+            actionRepository.subscribe(this);
+        }
+    }
+
+    /**
+     * Balance produced by the portfolio's actions strictly before {@code before}.
+     */
+    public BigInteger balanceBefore(String portfolioId, LocalDateTime before) {
+        if (columnar != null) {
+            return columnar.balanceBefore(portfolioId, before);
+        }
+        PortfolioLedger ledger = ledgers.get(portfolioId);
+        return ledger == null ? BigInteger.ZERO : ledger.balanceBefore(ActionKey.lowest(before));
+    }
+
+    @Override
+    public void onSaved(BaseAction action, BaseAction replaced) {
+        if (replaced != null) {
+            onDeleted(replaced);
+        }
+        ledgers.computeIfAbsent(action.getPortfolio().getUuid(), k -> new PortfolioLedger())
+                .insert(ActionKey.of(action), balanceDelta(action));
+    }
+
+    @Override
+    public void onDeleted(BaseAction action) {
+        PortfolioLedger ledger = ledgers.get(action.getPortfolio().getUuid());
+        if (ledger != null) {
+            ledger.remove(ActionKey.of(action));
+        }
+    }
+
+    private static BigInteger balanceDelta(BaseAction action) {
+        BigInteger delta = BigInteger.ZERO;
+        for (BalanceChange change : action.getBalanceChanges()) {
+            delta = delta.add(change.getChange_amount());
+        }
+        return delta;
+    }
+
+    private static final class PortfolioLedger {
+        private ActionKey[] keys = new ActionKey[16];
+        private long[] cumulative = new long[16];
+        // Non-null once some running balance stopped fitting in a long; from then on it is authoritative
+        private BigInteger[] bigCumulative;
+        private int size;
+
+        synchronized BigInteger balanceBefore(ActionKey limit) {
+            int i = Arrays.binarySearch(keys, 0, size, limit);
+            int last = i >= 0 ? i - 1 : -i - 2;
+            return last < 0 ? BigInteger.ZERO : balanceAt(last);
+        }
+
+        synchronized void insert(ActionKey key, BigInteger delta) {
+            int i = Arrays.binarySearch(keys, 0, size, key);
+            if (i >= 0) {
+                removeAt(i);
+                i = -i - 1;
+            }
+            int at = -i - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(keys, at, keys, at + 1, size - at);
+            System.arraycopy(cumulative, at, cumulative, at + 1, size - at);
+            if (bigCumulative != null) {
+                System.arraycopy(bigCumulative, at, bigCumulative, at + 1, size - at);
+            }
+            size++;
+            keys[at] = key;
+            // Start from the balance just before the new action, then shift it and every later entry
+            if (bigCumulative != null) {
+                bigCumulative[at] = at == 0 ? BigInteger.ZERO : bigCumulative[at - 1];
+            } else {
+                cumulative[at] = at == 0 ? 0L : cumulative[at - 1];
+            }
+            addFrom(at, delta);
+        }
+
+        synchronized void remove(ActionKey key) {
+            int i = Arrays.binarySearch(keys, 0, size, key);
+            if (i >= 0) {
+                removeAt(i);
+            }
+        }
+
+        private void removeAt(int i) {
+            BigInteger delta = balanceAt(i).subtract(i == 0 ? BigInteger.ZERO : balanceAt(i - 1));
+            int moved = size - i - 1;
+            System.arraycopy(keys, i + 1, keys, i, moved);
+            System.arraycopy(cumulative, i + 1, cumulative, i, moved);
+            if (bigCumulative != null) {
+                System.arraycopy(bigCumulative, i + 1, bigCumulative, i, moved);
+                bigCumulative[size - 1] = null;
+            }
+            keys[--size] = null;
+            addFrom(i, delta.negate());
+        }
+
+        private void addFrom(int from, BigInteger delta) {
+            if (delta.signum() == 0) {
+                return;
+            }
+            if (bigCumulative == null && delta.bitLength() < Long.SIZE) {
+                long d = delta.longValue();
+                int j = from;
+                try {
+                    for (; j < size; j++) {
+                        cumulative[j] = Math.addExact(cumulative[j], d);
+                    }
+                    return;
+                } catch (ArithmeticException overflow) {
+                    // Entries before j already carry the delta; finish the rest with BigInteger
+                    promote();
+                    for (; j < size; j++) {
+                        bigCumulative[j] = bigCumulative[j].add(delta);
+                    }
+                    return;
+                }
+            }
+            if (bigCumulative == null) {
+                promote();
+            }
+            for (int j = from; j < size; j++) {
+                bigCumulative[j] = bigCumulative[j].add(delta);
+            }
+        }
+
+        private void promote() {
+            bigCumulative = new BigInteger[keys.length];
+            for (int j = 0; j < size; j++) {
+                bigCumulative[j] = BigInteger.valueOf(cumulative[j]);
+            }
+        }
+
+        private BigInteger balanceAt(int i) {
+            return bigCumulative != null ? bigCumulative[i] : BigInteger.valueOf(cumulative[i]);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= keys.length) {
+                return;
+            }
+            int grown = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, grown);
+            cumulative = Arrays.copyOf(cumulative, grown);
+            if (bigCumulative != null) {
+                bigCumulative = Arrays.copyOf(bigCumulative, grown);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.repository.ActionChangeListener;
+import com.bourse.wealthwise.repository.ActionKey;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.columnar.ColumnarActionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-portfolio security volumes as of any point in time.  Instead of replaying a portfolio's whole
+ * history on every query, it keeps checkpoints of the volumes after every
+ * {@code checkpointInterval} actions; a query starts from the nearest checkpoint before the target
+ * time and replays only the actions after it.  Checkpoints are recorded lazily while queries replay
+ * and are dropped as soon as an action at or before them is saved or deleted.  Volumes are summed
+ * as {@link SecurityVolumes} over {@link SecurityIds}, so replaying a change allocates nothing.
+ * <p>
+ * With a {@link ColumnarActionStore} queries sum the store's security and volume columns instead
+ * of decoding actions, and no checkpoints are kept.
+ */
+@Component
+public class HoldingsProjection implements ActionChangeListener {
+
+    private final ActionRepository actionRepository;
+    private final int checkpointInterval;
+    private final SecurityIds securityIds = new SecurityIds();
+    private final Map<String, PortfolioCheckpoints> checkpointsByPortfolio = new ConcurrentHashMap<>();
+    // Non-null when the repository stores columns, which answer every query
+    private final ColumnarActionStore columnar;
+
+    public HoldingsProjection(ActionRepository actionRepository,
+                              @Value("${wealthwise.holdings.checkpoint-interval:256}") int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        this.actionRepository = actionRepository;
+        this.checkpointInterval = checkpointInterval;
+        this.columnar = actionRepository.store() instanceof ColumnarActionStore store ? store : null;
+        if (columnar == null) {
+            actionRepository.subscribe(this);
+        }
+    }
+
+    /**
+     * Volume of every security the portfolio touched through actions strictly before
+     * {@code before}, in the order the securities first appeared.  Securities whose volume went
+     * back to zero are included with a zero volume.
+     */
+    public Map<Security, BigInteger> holdingsBefore(String portfolioId, LocalDateTime before) {
+        if (columnar != null) {
+            return columnar.holdingsBefore(portfolioId, before);
+        }
+        return volumesBefore(portfolioId, before).toMap();
+    }
+
+    /**
+     * {@link #holdingsBefore} as primitive sums: replaying a change allocates nothing, and callers
+     * build whatever they need from the entries once at the end.
+     */
+    public SecurityVolumes volumesBefore(String portfolioId, LocalDateTime before) {
+        if (columnar != null) {
+            Map<Security, BigInteger> holdings = columnar.holdingsBefore(portfolioId, before);
+            SecurityVolumes volumes = new SecurityVolumes(holdings.size());
+            holdings.forEach((security, volume) -> volumes.add(securityIds.idOf(security), security, volume));
+            return volumes;
+        }
+        PortfolioCheckpoints checkpoints = checkpointsByPortfolio.computeIfAbsent(portfolioId, k -> new PortfolioCheckpoints());
+        ActionKey limit = ActionKey.lowest(before);
+
+        long version;
+        Checkpoint start;
+        synchronized (checkpoints) {
+            version = checkpoints.version;
+            Map.Entry<ActionKey, Checkpoint> entry = checkpoints.byKey.lowerEntry(limit);
+            start = entry == null ? null : entry.getValue();
+        }
+
+        // Read the tail only after the version: a concurrent write either shows up in the tail
+        // or bumps the version so that checkpoints recorded below are discarded
+        SecurityVolumes volumes;
+        List<BaseAction> tail;
+        if (start == null) {
+            volumes = new SecurityVolumes();
+            tail = actionRepository.findActionsOfBefore(portfolioId, before);
+        } else {
+            volumes = start.volumes().copy();
+            tail = actionRepository.findActionsOfAfter(portfolioId, start.key(), before);
+        }
+
+        List<Checkpoint> recorded = new ArrayList<>();
+        int sinceCheckpoint = 0;
+        for (BaseAction action : tail) {
+            replay(action, volumes);
+            if (++sinceCheckpoint == checkpointInterval) {
+                recorded.add(new Checkpoint(ActionKey.of(action), volumes.copy()));
+                sinceCheckpoint = 0;
+            }
+        }
+
+        if (!recorded.isEmpty()) {
+            synchronized (checkpoints) {
+                if (checkpoints.version == version) {
+                    for (Checkpoint checkpoint : recorded) {
+                        checkpoints.byKey.put(checkpoint.key(), checkpoint);
+                    }
+                }
+            }
+        }
+        return volumes;
+    }
+
+    /** Adds the security changes of the action to {@code volumes}. */
+    public void replay(BaseAction action, SecurityVolumes volumes) {
+        List<SecurityChange> changes = action.getSecurityChanges();
+        for (int i = 0; i < changes.size(); i++) {
+            SecurityChange change = changes.get(i);
+            volumes.add(securityIds.idOf(change.getSecurity()), change.getSecurity(), change.getVolumeChange());
+        }
+    }
+
+    /**
+     * Records {@code volumes} as the portfolio's holdings after every action up to and including
+     * {@code key}, e.g. when loading them from a snapshot right after those actions.  The caller
+     * vouches that they match the repository; like any checkpoint it is dropped by a later write at
+     * or before {@code key}.
+     */
+    public void restoreCheckpoint(String portfolioId, ActionKey key, Map<Security, BigInteger> volumes) {
+        if (columnar != null) {
+            return;
+        }
+        PortfolioCheckpoints checkpoints = checkpointsByPortfolio.computeIfAbsent(portfolioId, k -> new PortfolioCheckpoints());
+        SecurityVolumes restored = new SecurityVolumes(volumes.size());
+        volumes.forEach((security, volume) -> restored.add(securityIds.idOf(security), security, volume));
+        synchronized (checkpoints) {
+            checkpoints.byKey.put(key, new Checkpoint(key, restored));
+        }
+    }
+
+    @Override
+    public void onSaved(BaseAction action, BaseAction replaced) {
+        if (replaced != null) {
+            invalidateFrom(replaced);
+        }
+        invalidateFrom(action);
+    }
+
+    @Override
+    public void onDeleted(BaseAction action) {
+        invalidateFrom(action);
+    }
+
+    private void invalidateFrom(BaseAction action) {
+        PortfolioCheckpoints checkpoints = checkpointsByPortfolio.get(action.getPortfolio().getUuid());
+        if (checkpoints == null) {
+            return;
+        }
+        synchronized (checkpoints) {
+            checkpoints.version++;
+            checkpoints.byKey.tailMap(ActionKey.of(action), true).clear();
+        }
+    }
+
+    /**
+     * Volumes after applying every action of the portfolio up to and including {@code key}; never
+     * modified, queries start from a copy.
+     */
+    private record Checkpoint(ActionKey key, SecurityVolumes volumes) {
+    }
+
+    private static final class PortfolioCheckpoints {
+        private final TreeMap<ActionKey, Checkpoint> byKey = new TreeMap<>();
+        private long version;
+    }
+}
@@ -0,0 +1,28 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.security.Security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense int ids for securities, handed out in order of first sight, so that per-security state can
+ * live in primitive arrays.  Securities are told apart by identity, as the projections' maps do;
+ * a null security gets id 0.  Looking up a known security allocates nothing.
+ */
+public final class SecurityIds {
+
+    public static final int NULL_SECURITY = 0;
+
+    private final Map<Security, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger(NULL_SECURITY + 1);
+
+    public int idOf(Security security) {
+        if (security == null) {
+            return NULL_SECURITY;
+        }
+        Integer id = ids.get(security);
+        return id != null ? id : ids.computeIfAbsent(security, k -> next.getAndIncrement());
+    }
+}
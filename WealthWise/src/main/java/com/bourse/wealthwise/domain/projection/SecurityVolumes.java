@@ -0,0 +1,169 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.security.Security;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Volume per security, keyed by {@link SecurityIds} id in an open-addressing table, with the
+ * entries in order of first appearance.  Volumes are summed in a {@code long[]}; an entry whose
+ * sum overflows carries the excess in a {@link BigInteger} from then on.  Adding a change of an
+ * already seen security whose volume fits in a long allocates nothing.
+ * <p>
+ * Not thread-safe.
+ */
+public final class SecurityVolumes {
+
+    private static final int MIN_CAPACITY = 8;
+
+    // Buckets hold entry index + 1, 0 for an empty bucket; kept at most half full
+    private int[] table;
+    private int[] ids;
+    private Security[] securities;
+    private long[] volumes;
+    // Non-null once some entry overflowed; the entry's volume is overflow + volumes
+    private BigInteger[] overflow;
+    private int size;
+
+    public SecurityVolumes() {
+        this(MIN_CAPACITY);
+    }
+
+    public SecurityVolumes(int expectedSecurities) {
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSecurities) - 1) << 1);
+        table = new int[capacity * 2];
+        ids = new int[capacity];
+        securities = new Security[capacity];
+        volumes = new long[capacity];
+    }
+
+    private SecurityVolumes(SecurityVolumes other) {
+        table = other.table.clone();
+        ids = other.ids.clone();
+        securities = other.securities.clone();
+        volumes = other.volumes.clone();
+        overflow = other.overflow == null ? null : other.overflow.clone();
+        size = other.size;
+    }
+
+    /**
+     * Adds {@code delta} to the volume of the security, which {@code id} identifies.
+     */
+    public void add(int id, Security security, BigInteger delta) {
+        int entry = entryOf(id, security);
+        if (delta.bitLength() < Long.SIZE) {
+            add(entry, delta.longValue());
+        } else {
+            carry(entry, delta);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Security security(int entry) {
+        return securities[entry];
+    }
+
+    public boolean isZero(int entry) {
+        return overflow == null || overflow[entry] == null
+                ? volumes[entry] == 0
+                : volume(entry).signum() == 0;
+    }
+
+    public BigInteger volume(int entry) {
+        BigInteger volume = BigInteger.valueOf(volumes[entry]);
+        return overflow == null || overflow[entry] == null ? volume : overflow[entry].add(volume);
+    }
+
+    public Map<Security, BigInteger> toMap() {
+        Map<Security, BigInteger> map = new LinkedHashMap<>();
+        for (int entry = 0; entry < size; entry++) {
+            map.put(securities[entry], volume(entry));
+        }
+        return map;
+    }
+
+    /** Empties the volumes, keeping the allocated capacity. */
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(securities, 0, size, null);
+        Arrays.fill(volumes, 0, size, 0L);
+        overflow = null;
+        size = 0;
+    }
+
+    /** Independent copy, e.g. to keep as a checkpoint. */
+    public SecurityVolumes copy() {
+        return new SecurityVolumes(this);
+    }
+
+    private void add(int entry, long delta) {
+        long sum = volumes[entry];
+        long total = sum + delta;
+        if (((sum ^ total) & (delta ^ total)) < 0) {
+            carry(entry, BigInteger.valueOf(sum));
+            total = delta;
+        }
+        volumes[entry] = total;
+    }
+
+    private void carry(int entry, BigInteger excess) {
+        if (overflow == null) {
+            overflow = new BigInteger[ids.length];
+        }
+        overflow[entry] = overflow[entry] == null ? excess : overflow[entry].add(excess);
+    }
+
+    private int entryOf(int id, Security security) {
+        int mask = table.length - 1;
+        for (int bucket = mix(id) & mask; ; bucket = (bucket + 1) & mask) {
+            int slot = table[bucket];
+            if (slot == 0) {
+                return append(bucket, id, security);
+            }
+            if (ids[slot - 1] == id) {
+                return slot - 1;
+            }
+        }
+    }
+
+    private int append(int bucket, int id, Security security) {
+        if (size == ids.length) {
+            grow();
+            return entryOf(id, security);
+        }
+        int entry = size++;
+        ids[entry] = id;
+        securities[entry] = security;
+        table[bucket] = entry + 1;
+        return entry;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        securities = Arrays.copyOf(securities, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        if (overflow != null) {
+            overflow = Arrays.copyOf(overflow, capacity);
+        }
+        table = new int[capacity * 2];
+        int mask = table.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int bucket = mix(ids[entry]) & mask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = entry + 1;
+        }
+    }
+
+    private static int mix(int id) {
+        return id * 0x9E3779B9;
+    }
+}
@@ -0,0 +1,169 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.domain.projection.BalanceLedger;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Command side of action writes: checks that the portfolio can afford an action, then appends it.
+ * Portfolios hash onto a fixed set of fair lock stripes, so commands for one portfolio run one at a
+ * time in arrival order, while portfolios on different stripes proceed in parallel.  The check reads
+ * the incremental projections, {@link BalanceLedger} and {@link HoldingsProjection}, and the save
+ * updates them through the repository's listeners before the stripe is released, so the next
+ * command of the portfolio sees its effect.
+ * <p>
+ * An action that takes cash or securities must leave neither negative at any point from its own
+ * instant on: just before it and after each later action, which a back-dated action shifts too.  Rejected commands raise {@link IllegalStateException}; an
+ * unknown portfolio or a uuid that is already taken raises {@link IllegalArgumentException}.
+ */
+@Service
+public class ActionCommandService {
+
+    private final ActionRepository actionRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final BalanceLedger balanceLedger;
+    private final HoldingsProjection holdingsProjection;
+    private final ReentrantLock[] stripes;
+
+    public ActionCommandService(ActionRepository actionRepository,
+                                PortfolioRepository portfolioRepository,
+                                BalanceLedger balanceLedger,
+                                HoldingsProjection holdingsProjection,
+                                @Value("${wealthwise.commands.lock-stripes:256}") int lockStripes) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("lockStripes must be positive: " + lockStripes);
+        }
+        this.actionRepository = actionRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.balanceLedger = balanceLedger;
+        this.holdingsProjection = holdingsProjection;
+        // Rounded up to a power of two, so that a stripe is picked with a mask
+        int count = Integer.highestOneBit(lockStripes);
+        this.stripes = new ReentrantLock[count < lockStripes ? count << 1 : count];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+    }
+
+    /**
+     * Validates the action against the portfolio's balance and holdings and saves it.
+     */
+    public BaseAction submit(BaseAction action) {
+        Objects.requireNonNull(action.getDatetime(), "action datetime");
+        String portfolioId = action.getPortfolio().getUuid();
+        portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
+
+        ReentrantLock stripe = stripeOf(portfolioId);
+        stripe.lock();
+        try {
+            if (actionRepository.findById(action.getUuid()).isPresent()) {
+                throw new IllegalArgumentException("Action already exists: " + action.getUuid());
+            }
+            if (takesCashOrSecurities(action)) {
+                // The uuid is new, so no earlier version of the action is in the balances and holdings checked
+                List<BaseAction> later = actionRepository.findActionsOfBetween(portfolioId, action.getDatetime(), LocalDateTime.MAX);
+                checkBalance(portfolioId, action, later);
+                checkHoldings(portfolioId, action, later);
+            }
+            return actionRepository.save(action);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ReentrantLock stripeOf(String portfolioId) {
+        int h = portfolioId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void checkBalance(String portfolioId, BaseAction action, List<BaseAction> later) {
+        BigInteger delta = balanceDelta(action);
+        if (delta.signum() >= 0) {
+            return;
+        }
+        // The action shifts the balance just before its instant and after every later action
+        BigInteger balance = balanceLedger.balanceBefore(portfolioId, action.getDatetime());
+        BigInteger available = balance;
+        for (BaseAction next : later) {
+            balance = balance.add(balanceDelta(next));
+            available = available.min(balance);
+        }
+        if (available.add(delta).signum() < 0) {
+            throw new IllegalStateException("Insufficient balance in portfolio " + portfolioId
+                    + ": " + available + " available, " + delta.negate() + " required");
+        }
+    }
+
+    private void checkHoldings(String portfolioId, BaseAction action, List<BaseAction> later) {
+        List<SecurityChange> changes = action.getSecurityChanges();
+        if (changes.stream().allMatch(change -> change.getVolumeChange().signum() >= 0)) {
+            return;
+        }
+        Map<Security, BigInteger> atInstant = holdingsProjection.holdingsBefore(portfolioId, action.getDatetime());
+        for (SecurityChange change : changes) {
+            if (change.getVolumeChange().signum() >= 0) {
+                continue;
+            }
+            Security security = change.getSecurity();
+            BigInteger volume = volumeOf(atInstant, security);
+            BigInteger available = volume;
+            for (BaseAction next : later) {
+                for (SecurityChange laterChange : next.getSecurityChanges()) {
+                    if (isSame(laterChange.getSecurity(), security)) {
+                        volume = volume.add(laterChange.getVolumeChange());
+                        available = available.min(volume);
+                    }
+                }
+            }
+            if (available.add(change.getVolumeChange()).signum() < 0) {
+                throw new IllegalStateException("Insufficient volume of " + (security == null ? null : security.getSymbol())
+                        + " in portfolio " + portfolioId + ": " + available + " available, "
+                        + change.getVolumeChange().negate() + " required");
+            }
+        }
+    }
+
+    private static boolean takesCashOrSecurities(BaseAction action) {
+        return balanceDelta(action).signum() < 0
+                || action.getSecurityChanges().stream().anyMatch(change -> change.getVolumeChange().signum() < 0);
+    }
+
+    private static BigInteger balanceDelta(BaseAction action) {
+        BigInteger delta = BigInteger.ZERO;
+        for (BalanceChange change : action.getBalanceChanges()) {
+            delta = delta.add(change.getChange_amount());
+        }
+        return delta;
+    }
+
+    /** Volume held of the security, matched by ISIN as holdings may carry other instances of it. */
+    private static BigInteger volumeOf(Map<Security, BigInteger> holdings, Security security) {
+        BigInteger volume = BigInteger.ZERO;
+        for (Map.Entry<Security, BigInteger> holding : holdings.entrySet()) {
+            if (isSame(holding.getKey(), security)) {
+                volume = volume.add(holding.getValue());
+            }
+        }
+        return volume;
+    }
+
+    private static boolean isSame(Security held, Security security) {
+        return held == security || (held != null && security != null && security.getIsin() != null
+                && security.getIsin().equals(held.getIsin()));
+    }
+}
@@ -1,29 +1,37 @@
 package com.bourse.wealthwise.domain.services;
 
-import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.domain.projection.BalanceLedger;
+import com.bourse.wealthwise.metrics.QueryTimer;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
 import com.bourse.wealthwise.repository.PortfolioRepository;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
 import java.time.LocalDateTime;
 
 @Service
-@RequiredArgsConstructor
 public class BalanceActionService {
 
-    private final ActionRepository actionRepository;
+    private final BalanceLedger balanceLedger;
     private final PortfolioRepository portfolioRepository;
+    private final QueryTimer timer;
+
+    public BalanceActionService(BalanceLedger balanceLedger, PortfolioRepository portfolioRepository, WealthWiseMetrics metrics) {
+        this.balanceLedger = balanceLedger;
+        this.portfolioRepository = portfolioRepository;
+        this.timer = metrics.queryTimer("wealthwise.portfolio.balance", "Cash balance of a portfolio");
+    }
 
     public BigInteger getBalanceForPortfolio(String portfolioId, LocalDateTime localDateTime) {
-        return actionRepository.findAllActionsOf(
-                        portfolioRepository.findById(portfolioId)
-                                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"))
-                                .getUuid()
-                ).stream()
-                .filter(action -> action.getDatetime() != null && action.getDatetime().isBefore(localDateTime))
-                .map(action -> action.getBalanceChanges().getFirst().getChange_amount())
-                .reduce(BigInteger.ZERO, BigInteger::add);
+        long start = timer.start();
+        BigInteger balance = balanceLedger.balanceBefore(
+                portfolioRepository.findById(portfolioId)
+                        .orElseThrow(() -> new PortfolioNotFoundException(portfolioId))
+                        .getUuid(),
+                localDateTime
+        );
+        timer.stop(start, 1);
+        return balance;
     }
 
 }
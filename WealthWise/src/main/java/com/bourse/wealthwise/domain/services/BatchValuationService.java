@@ -0,0 +1,73 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.domain.projection.SecurityVolumes;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.PriceSnapshot;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values many portfolios at one instant, e.g. for the end-of-day job.  Each portfolio's timeline is
+ * walked once through the holdings projection, portfolios are valued in parallel on the common
+ * ForkJoinPool, and every security is priced once for the whole batch.  Each portfolio gets the
+ * same rows {@link ViewPortfolioSecuritiesService#getPortfolioSecurities} would return.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchValuationService {
+
+    private final PortfolioRepository portfolioRepository;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final HoldingsProjection holdingsProjection;
+
+    /**
+     * Valuation of every portfolio, keyed by portfolio uuid.
+     */
+    public Map<String, List<PortfolioSecurityInfo>> valueAllPortfolios(LocalDateTime targetDateTime) {
+        List<String> portfolioIds = portfolioRepository.findAll().stream().map(Portfolio::getUuid).toList();
+        return value(portfolioIds, targetDateTime);
+    }
+
+    /**
+     * Valuation of the given portfolios, keyed by portfolio uuid in the order given.
+     */
+    public Map<String, List<PortfolioSecurityInfo>> valuePortfolios(Collection<String> portfolioIds, LocalDateTime targetDateTime) {
+        for (String portfolioId : portfolioIds) {
+            portfolioRepository.findById(portfolioId)
+                    .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
+        }
+        return value(List.copyOf(new LinkedHashSet<>(portfolioIds)), targetDateTime);
+    }
+
+    private Map<String, List<PortfolioSecurityInfo>> value(List<String> portfolioIds, LocalDateTime targetDateTime) {
+        LocalDate priceDate = LocalDate.from(targetDateTime);
+        // One as-of lookup per ISIN for the whole batch, all from one version; NaN marks a security
+        // without a price
+        PriceSnapshot prices = securityPriceRepository.snapshot();
+        Map<String, Double> priceByIsin = new ConcurrentHashMap<>();
+
+        List<List<PortfolioSecurityInfo>> valuations = portfolioIds.parallelStream()
+                .map(portfolioId -> {
+                    SecurityVolumes holdings = holdingsProjection.volumesBefore(portfolioId, targetDateTime);
+                    return ViewPortfolioSecuritiesService.toSecurityInfos(holdings, security -> security.getIsin() == null
+                            ? Double.NaN
+                            : priceByIsin.computeIfAbsent(security.getIsin(), isin -> prices.getPriceAsOfOrNaN(isin, priceDate)));
+                })
+                .toList();
+
+        Map<String, List<PortfolioSecurityInfo>> result = new LinkedHashMap<>();
+        for (int i = 0; i < portfolioIds.size(); i++) {
+            result.put(portfolioIds.get(i), valuations.get(i));
+        }
+        return result;
+    }
+}
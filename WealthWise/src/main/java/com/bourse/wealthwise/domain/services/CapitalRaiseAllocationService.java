@@ -0,0 +1,167 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.CapitalRaise;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Allocates the rights of a capital raise to every holder of the underlying stock.  Each holder gets
+ * one {@link CapitalRaise} action at the announcement's effective time, sized from the holding just
+ * before it.  Portfolios are split into chunks that are valued and saved in parallel on the common
+ * ForkJoinPool, and announcements that arrive together are allocated in the same pass.
+ * <p>
+ * Allocation is idempotent per announcement: action uuids are derived from the announcement id and
+ * the portfolio, and a repeated announcement reuses the effective time of its first delivery, so it
+ * only adds what an interrupted earlier run left out.  First delivery times are kept for the last
+ * {@value #REMEMBERED_ANNOUNCEMENTS} announcements only, which bounds the memory of a long-running
+ * consumer.
+ */
+@Service
+public class CapitalRaiseAllocationService {
+
+    // Announcements whose first effective time is remembered; redeliveries follow the first
+    // delivery closely, long before that many newer announcements arrive
+    static final int REMEMBERED_ANNOUNCEMENTS = 10_000;
+
+    // Enough chunks per worker to even out portfolios with long histories
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    private final PortfolioRepository portfolioRepository;
+    private final ActionRepository actionRepository;
+    private final HoldingsProjection holdingsProjection;
+
+    // Announcement id -> effective time of its first delivery, least recently used evicted first
+    private final Map<String, LocalDateTime> effectiveAtByAnnouncement;
+
+    @Autowired
+    public CapitalRaiseAllocationService(PortfolioRepository portfolioRepository, ActionRepository actionRepository,
+                                         HoldingsProjection holdingsProjection) {
+        this(portfolioRepository, actionRepository, holdingsProjection, REMEMBERED_ANNOUNCEMENTS);
+    }
+
+    CapitalRaiseAllocationService(PortfolioRepository portfolioRepository, ActionRepository actionRepository,
+                                  HoldingsProjection holdingsProjection, int rememberedAnnouncements) {
+        this.portfolioRepository = portfolioRepository;
+        this.actionRepository = actionRepository;
+        this.holdingsProjection = holdingsProjection;
+        this.effectiveAtByAnnouncement = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalDateTime> eldest) {
+                return size() > rememberedAnnouncements;
+            }
+        });
+    }
+
+    /**
+     * An announced capital raise: {@code stockRightAmountPerShare} rights of
+     * {@code stockRightSecurity} per share of {@code stockSecurity} held.  {@code id} identifies the
+     * announcement across redeliveries.
+     */
+    public record Announcement(String id, Security stockSecurity, Security stockRightSecurity,
+                               double stockRightAmountPerShare) {
+    }
+
+    /**
+     * Allocates a single announcement.  Holdings are matched by ISIN.  Returns the actions saved by
+     * this call, which is empty when the announcement was already fully allocated.
+     */
+    public List<CapitalRaise> allocate(String announcementId, Security stockSecurity, Security stockRightSecurity,
+                                       double stockRightAmountPerShare, LocalDateTime effectiveAt) {
+        return allocateAll(List.of(new Announcement(announcementId, stockSecurity, stockRightSecurity,
+                stockRightAmountPerShare)), effectiveAt);
+    }
+
+    /**
+     * Allocates several announcements in one pass over the portfolios, reading each portfolio's
+     * holdings once per effective time rather than once per announcement.
+     */
+    public List<CapitalRaise> allocateAll(List<Announcement> announcements, LocalDateTime effectiveAt) {
+        if (announcements.isEmpty()) {
+            return List.of();
+        }
+        // Redelivered announcements keep their first effective time, so a batch may span several
+        Map<LocalDateTime, List<Announcement>> announcementsByTime = new LinkedHashMap<>();
+        for (Announcement announcement : announcements) {
+            LocalDateTime at = effectiveAtByAnnouncement.computeIfAbsent(announcement.id(), id -> effectiveAt);
+            announcementsByTime.computeIfAbsent(at, k -> new ArrayList<>()).add(announcement);
+        }
+        List<Portfolio> portfolios = portfolioRepository.findAll();
+
+        int workers = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_WORKER;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (portfolios.size() + workers - 1) / workers);
+        int chunks = (portfolios.size() + chunkSize - 1) / chunkSize;
+
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    List<Portfolio> part = portfolios.subList(
+                            chunk * chunkSize, Math.min(portfolios.size(), (chunk + 1) * chunkSize));
+                    List<CapitalRaise> allocated = new ArrayList<>();
+                    for (Portfolio portfolio : part) {
+                        announcementsByTime.forEach((at, group) -> allocate(portfolio, group, at, allocated));
+                    }
+                    actionRepository.saveAll(allocated);
+                    return allocated;
+                })
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    private void allocate(Portfolio portfolio, List<Announcement> announcements, LocalDateTime at,
+                          List<CapitalRaise> allocated) {
+        Map<String, BigInteger> volumeByIsin = null;
+        for (Announcement announcement : announcements) {
+            String uuid = allocationUuid(announcement.id(), portfolio.getUuid());
+            if (actionRepository.findById(uuid).isPresent()) {
+                continue; // Allocated by an earlier delivery of this announcement
+            }
+            if (volumeByIsin == null) {
+                volumeByIsin = holdingsByIsin(portfolio.getUuid(), at);
+            }
+            BigInteger volume = volumeByIsin.getOrDefault(announcement.stockSecurity().getIsin(), BigInteger.ZERO);
+            if (volume.signum() <= 0) {
+                continue;
+            }
+            allocated.add(CapitalRaise.builder()
+                    .uuid(uuid)
+                    .portfolio(portfolio)
+                    .datetime(at)
+                    .HSecurity(announcement.stockRightSecurity())
+                    .securityCurrentVolume(volume)
+                    .stockRightAmountPerShare(announcement.stockRightAmountPerShare())
+                    .actionType(ActionType.CAPITAL_RAISE)
+                    .build());
+        }
+    }
+
+    // Several Security instances may share an ISIN, so their volumes are summed
+    private Map<String, BigInteger> holdingsByIsin(String portfolioId, LocalDateTime at) {
+        Map<String, BigInteger> volumeByIsin = new HashMap<>();
+        for (Map.Entry<Security, BigInteger> holding : holdingsProjection.holdingsBefore(portfolioId, at).entrySet()) {
+            volumeByIsin.merge(holding.getKey().getIsin(), holding.getValue(), BigInteger::add);
+        }
+        return volumeByIsin;
+    }
+
+    int rememberedAnnouncements() {
+        return effectiveAtByAnnouncement.size();
+    }
+
+    static String allocationUuid(String announcementId, String portfolioId) {
+        String name = "capital-raise/" + announcementId + "/" + portfolioId;
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -0,0 +1,139 @@
+package com.bourse.wealthwise.domain.services;
+
+import jakarta.jms.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched consumer of {@link CapitalRaiseListenerService#IN_QUEUE}, enabled with
+ * {@code wealthwise.capital-raise.batch.enabled}.  Each consumer thread drains up to
+ * {@code max-messages} messages, or whatever arrives within {@code max-wait-ms} of the first one,
+ * hands them to {@link CapitalRaiseListenerService#onMessages} and commits its transacted session
+ * once per batch.  A failed batch is rolled back and redelivered as a whole.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wealthwise.capital-raise.batch.enabled", havingValue = "true")
+public class CapitalRaiseBatchConsumer implements SmartLifecycle {
+
+    // Upper bound on how long a consumer waits for a first message before re-checking that it should run
+    private static final long POLL_MILLIS = 1000;
+
+    private final ConnectionFactory connectionFactory;
+    private final CapitalRaiseListenerService listenerService;
+    private final int consumers;
+    private final int maxMessages;
+    private final long maxWaitMillis;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public CapitalRaiseBatchConsumer(
+            ConnectionFactory connectionFactory,
+            CapitalRaiseListenerService listenerService,
+            @Value("${wealthwise.capital-raise.batch.consumers:1}") int consumers,
+            @Value("${wealthwise.capital-raise.batch.max-messages:500}") int maxMessages,
+            @Value("${wealthwise.capital-raise.batch.max-wait-ms:200}") long maxWaitMillis
+    ) {
+        if (consumers < 1 || maxMessages < 1 || maxWaitMillis < 1) {
+            throw new IllegalArgumentException("Batch consumers, max-messages and max-wait-ms must be positive");
+        }
+        this.connectionFactory = connectionFactory;
+        this.listenerService = listenerService;
+        this.consumers = consumers;
+        this.maxMessages = maxMessages;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < consumers; i++) {
+            Thread thread = new Thread(this::consume, "capital-raise-batch-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(2 * POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consume() {
+        while (running) {
+            try (Connection connection = connectionFactory.createConnection()) {
+                Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                MessageConsumer consumer = session.createConsumer(session.createQueue(CapitalRaiseListenerService.IN_QUEUE));
+                connection.start();
+                while (running) {
+                    List<CapitalRaiseListenerService.InboundMessage> batch = drain(consumer);
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        listenerService.onMessages(batch);
+                        session.commit();
+                    } catch (RuntimeException ex) {
+                        log.atError().addKeyValue("messages", batch.size()).setCause(ex)
+                                .log("Capital raise batch failed, rolling back");
+                        session.rollback();
+                    }
+                }
+            } catch (JMSException ex) {
+                log.warn("Capital raise consumer lost its connection, reconnecting", ex);
+                sleepBeforeReconnect();
+            }
+        }
+    }
+
+    private List<CapitalRaiseListenerService.InboundMessage> drain(MessageConsumer consumer) throws JMSException {
+        List<CapitalRaiseListenerService.InboundMessage> batch = new ArrayList<>();
+        Message message = consumer.receive(POLL_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (message != null) {
+            String text = message instanceof TextMessage textMessage ? textMessage.getText() : null;
+            batch.add(new CapitalRaiseListenerService.InboundMessage(message.getJMSMessageID(), text, message.getJMSTimestamp()));
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (batch.size() >= maxMessages || remaining <= 0) {
+                break;
+            }
+            message = consumer.receive(remaining);
+        }
+        return batch;
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
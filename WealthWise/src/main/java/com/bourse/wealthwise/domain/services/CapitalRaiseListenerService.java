@@ -3,20 +3,35 @@ package com.bourse.wealthwise.domain.services;
 import com.bourse.wealthwise.domain.entity.DTOs.CapitalRaiseData;
 import com.bourse.wealthwise.domain.entity.security.Security;
 import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
 import com.bourse.wealthwise.repository.SecurityPriceRepository;
 import com.bourse.wealthwise.repository.SecurityRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.support.JmsHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Consumes capital raise announcements and allocates stock rights to holders.  Logs through SLF4J
+ * with the announcement's fields as key-value pairs, which the asynchronous appender of
+ * {@code logback-spring.xml} writes as structured JSON off the consumer thread; per-message events
+ * are at DEBUG, so at the default level they are not even built.
+ */
+@Slf4j
 @Service
 @Getter
 public class CapitalRaiseListenerService {
@@ -24,79 +39,173 @@ public class CapitalRaiseListenerService {
     private SecurityRepository securityRepository;
     @Autowired
     private SecurityPriceRepository securityPriceRepository;
+    @Autowired
+    private CapitalRaiseAllocationService capitalRaiseAllocationService;
+    @Autowired
+    private WealthWiseMetrics metrics;
+
+    @Getter(AccessLevel.NONE)
+    private Meters meters;
 
-    private List<CapitalRaiseData> capitalRaiseDataList = new ArrayList<>();
+    // Appended once an announcement is fully allocated
+    private List<CapitalRaiseData> capitalRaiseDataList = new CopyOnWriteArrayList<>();
     public static final String IN_QUEUE = "CapitalRaiseQueue";
 
+    /**
+     * A message taken off {@link #IN_QUEUE} by the batch consumer, with its JMS timestamp in epoch
+     * milliseconds or 0 if it was sent without one.
+     */
+    public record InboundMessage(String messageId, String text, long timestamp) {
+        public InboundMessage(String messageId, String text) {
+            this(messageId, text, 0L);
+        }
+    }
 
-    // Format: CAPITAL_RAISE <symbol> <decimal>
-    private static final Pattern MSG = Pattern.compile(
-            "^\\s*CAPITAL_RAISE\\s+(\\S+)\\s+([0-9]+(?:\\.[0-9]+)?)\\s*$",
-            Pattern.CASE_INSENSITIVE
-    );
+    /**
+     * Consumption rate, lag behind the producer and parse failures of {@link #IN_QUEUE}, for both
+     * the listener and the batch consumer.
+     */
+    private record Meters(Counter consumed, Counter parseFailures, Timer lag) {
+    }
 
-    @JmsListener(destination = IN_QUEUE)
-    public void onMessage(String message) {
-        System.out.println("[CapitalRaiseListener] received: " + message);
+    @PostConstruct
+    void registerMeters() {
+        MeterRegistry registry = metrics.registry();
+        meters = new Meters(
+                Counter.builder("wealthwise.capital_raise.messages")
+                        .description("Messages consumed from " + IN_QUEUE)
+                        .register(registry),
+                Counter.builder("wealthwise.capital_raise.parse_failures")
+                        .description("Messages from " + IN_QUEUE + " that are not capital raise announcements")
+                        .register(registry),
+                Timer.builder("wealthwise.capital_raise.lag")
+                        .description("Time from sending a message to " + IN_QUEUE + " to consuming it")
+                        .publishPercentileHistogram()
+                        .register(registry));
+    }
 
-        String normalized = normalize(message);
-        Matcher m = MSG.matcher(normalized);
-        if (!m.matches()) {
-            System.err.println("[CapitalRaiseListener] bad format. expected: 'CAPITAL_RAISE <SYMBOL> <DECIMAL>' | got: " + normalized);
-            return;
+    private void consumed(long timestamp) {
+        meters.consumed().increment();
+        if (timestamp > 0) {
+            meters.lag().record(Math.max(0, System.currentTimeMillis() - timestamp), TimeUnit.MILLISECONDS);
         }
+    }
+
+    // Not started when wealthwise.capital-raise.batch.enabled is set; CapitalRaiseBatchConsumer drains the queue instead
+    @JmsListener(destination = IN_QUEUE, containerFactory = "capitalRaiseListenerContainerFactory")
+    public void onMessage(String message,
+                          @Header(name = JmsHeaders.MESSAGE_ID, required = false) String messageId,
+                          @Header(name = JmsHeaders.TIMESTAMP, required = false) Long timestamp) {
+        consumed(timestamp == null ? 0L : timestamp);
+        log.atDebug().addKeyValue("messageId", messageId).log("Capital raise message received: {}", message);
 
-        String symbol = m.group(1);
-        double rightsPerShare = Double.parseDouble(m.group(2));
+        CapitalRaiseData data = CapitalRaiseMessageParser.parse(message);
+        if (data == null) {
+            meters.parseFailures().increment();
+            log.atWarn()
+                    .addKeyValue("messageId", messageId)
+                    .addKeyValue("normalized", () -> CapitalRaiseMessageParser.normalize(message))
+                    .log("Malformed capital raise message, expected 'CAPITAL_RAISE <SYMBOL> <DECIMAL>'");
+            return;
+        }
         LocalDateTime effectiveAt = LocalDateTime.now();
 
         try {
-            allocateRightsStub(symbol, rightsPerShare, effectiveAt);
-            System.out.printf("[CapitalRaiseListener] OK symbol=%s ratio=%s at=%s%n",
-                    symbol, rightsPerShare, effectiveAt);
-        } catch (Exception ex) {
-            System.err.println("[CapitalRaiseListener] ERROR: " + ex.getMessage());
-            ex.printStackTrace();
+            // A redelivered message keeps its JMS message id, which makes the allocation idempotent
+            String announcementId = messageId != null ? messageId : UUID.randomUUID().toString();
+            int allocated = allocateRights(Map.of(announcementId, data), effectiveAt);
+            log.atDebug()
+                    .addKeyValue("messageId", announcementId)
+                    .addKeyValue("symbol", data.getSecuritySymbol())
+                    .addKeyValue("ratio", data.getStockRightAmountPerShare())
+                    .addKeyValue("effectiveAt", effectiveAt)
+                    .addKeyValue("allocated", allocated)
+                    .log("Capital raise allocated");
+        } catch (RuntimeException ex) {
+            log.atError()
+                    .addKeyValue("messageId", messageId)
+                    .addKeyValue("symbol", data.getSecuritySymbol())
+                    .setCause(ex)
+                    .log("Capital raise allocation failed");
+            // Rolls back the transacted session, so the broker redelivers the message
+            throw ex;
         }
     }
 
-    private String normalize(String msg) {
-        if (msg == null) return "";
-        String s = msg.trim();
-
-        // JSON
-        if ((s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("'") && s.endsWith("'"))) {
-            s = s.substring(1, s.length() - 1);
+    /**
+     * Handles a batch drained by {@link CapitalRaiseBatchConsumer}.  Malformed messages and unknown
+     * symbols are skipped; of several announcements for the same symbol the last one wins.  All
+     * remaining announcements are allocated together.  An exception leaves the batch to be
+     * redelivered, which the idempotent allocation tolerates.
+     */
+    public void onMessages(List<InboundMessage> messages) {
+        Map<String, InboundMessage> messageBySymbol = new LinkedHashMap<>();
+        Map<String, CapitalRaiseData> dataBySymbol = new HashMap<>();
+        int rejected = 0;
+        for (InboundMessage message : messages) {
+            consumed(message.timestamp());
+            CapitalRaiseData data = CapitalRaiseMessageParser.parse(message.text());
+            if (data == null) {
+                meters.parseFailures().increment();
+                rejected++;
+                continue;
+            }
+            String symbol = data.getSecuritySymbol().toUpperCase(Locale.ROOT);
+            messageBySymbol.remove(symbol); // keep the symbol at its latest position
+            messageBySymbol.put(symbol, message);
+            dataBySymbol.put(symbol, data);
         }
 
-        // XML
-        if (s.startsWith("<") && s.endsWith(">")) {
-            // <CAPITAL_RAISE>Foolad 0.5</CAPITAL_RAISE>
-            String inner = s.replaceAll("<[^>]+>", " ").trim();
-            if (!inner.toUpperCase().startsWith("CAPITAL_RAISE")) {
-                s = "CAPITAL_RAISE " + inner;
-            } else {
-                s = inner;
+        Map<String, CapitalRaiseData> dataByAnnouncement = new LinkedHashMap<>();
+        messageBySymbol.forEach((symbol, message) -> dataByAnnouncement.put(
+                message.messageId() != null ? message.messageId() : UUID.randomUUID().toString(),
+                dataBySymbol.get(symbol)));
+
+        LocalDateTime effectiveAt = LocalDateTime.now();
+        int allocated = allocateRights(dataByAnnouncement, effectiveAt);
+        log.atInfo()
+                .addKeyValue("messages", messages.size())
+                .addKeyValue("announcements", dataByAnnouncement.size())
+                .addKeyValue("rejected", rejected)
+                .addKeyValue("allocated", allocated)
+                .addKeyValue("effectiveAt", effectiveAt)
+                .log("Capital raise batch allocated");
+    }
+
+    private int allocateRights(Map<String, CapitalRaiseData> dataByAnnouncement, LocalDateTime at) {
+        List<CapitalRaiseAllocationService.Announcement> announcements = new ArrayList<>(dataByAnnouncement.size());
+        List<CapitalRaiseData> accepted = new ArrayList<>(dataByAnnouncement.size());
+        for (Map.Entry<String, CapitalRaiseData> entry : dataByAnnouncement.entrySet()) {
+            CapitalRaiseData data = entry.getValue();
+            Security stockSecurity = securityRepository.getSecurityBySymbol(data.getSecuritySymbol());
+            if (stockSecurity == null) {
+                log.atWarn().addKeyValue("symbol", data.getSecuritySymbol()).log("Capital raise for unknown security");
+                continue;
             }
+            announcements.add(new CapitalRaiseAllocationService.Announcement(entry.getKey(), stockSecurity,
+                    stockRightSecurityOf(stockSecurity, at), data.getStockRightAmountPerShare()));
+            accepted.add(data);
         }
-        s = s.replaceAll("\\s+", " ").trim();
-        return s;
+
+        int allocated = capitalRaiseAllocationService.allocateAll(announcements, at).size();
+        capitalRaiseDataList.addAll(accepted);
+        return allocated;
     }
 
-    private void allocateRightsStub(String symbol, double ratio, LocalDateTime at) {
-        capitalRaiseDataList.add(
-                new CapitalRaiseData(symbol, ratio)
-        );
-        Security stockSecurity = securityRepository.getSecurityBySymbol(symbol);
+    // Reuses the right security of an earlier capital raise, so holders keep a single position in it
+    private synchronized Security stockRightSecurityOf(Security stockSecurity, LocalDateTime at) {
+        Security existing = securityRepository.findSecurityByIsin("H" + stockSecurity.getIsin());
+        if (existing != null) {
+            return existing;
+        }
         Security stockRightSecurity = Security.builder()
                 .name("H" + stockSecurity.getName())
-                .symbol("H" + symbol)
+                .symbol("H" + stockSecurity.getSymbol())
                 .isin("H" + stockSecurity.getIsin())
                 .securityType(SecurityType.STOCK_RIGHT)
                 .build();
         securityRepository.addSecurity(stockRightSecurity);
-        securityPriceRepository.addPrice(stockRightSecurity.getIsin(), LocalDate.from(LocalDateTime.now()), 100.0);
-        System.out.printf("New capital raise for: %s, with ratio of %f!\n", symbol, ratio);
-        System.out.println(capitalRaiseDataList.size());
+        securityPriceRepository.addPrice(stockRightSecurity.getIsin(), LocalDate.from(at), 100.0);
+        return stockRightSecurity;
     }
 }
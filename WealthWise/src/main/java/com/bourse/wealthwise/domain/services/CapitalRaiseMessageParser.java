@@ -0,0 +1,89 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.DTOs.CapitalRaiseData;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses capital raise announcements.  Accepts the plain format, the plain format wrapped in quotes
+ * (as sent by JSON producers), and an XML element such as
+ * {@code <CAPITAL_RAISE>Foolad 0.5</CAPITAL_RAISE>}.
+ */
+final class CapitalRaiseMessageParser {
+
+    static final String KEYWORD = "CAPITAL_RAISE";
+
+    // Format: CAPITAL_RAISE <symbol> <decimal>
+    private static final Pattern MSG = Pattern.compile(
+            "^\\s*CAPITAL_RAISE\\s+(\\S+)\\s+([0-9]+(?:\\.[0-9]+)?)\\s*$",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private CapitalRaiseMessageParser() {
+    }
+
+    /**
+     * The announcement in {@code message}, or null if it is not in one of the accepted formats.
+     */
+    static CapitalRaiseData parse(String message) {
+        Matcher m = MSG.matcher(normalize(message));
+        if (!m.matches()) {
+            return null;
+        }
+        return new CapitalRaiseData(m.group(1), Double.parseDouble(m.group(2)));
+    }
+
+    /**
+     * Unwraps quotes and XML tags and collapses whitespace to single spaces, in one pass over the
+     * message.
+     */
+    static String normalize(String msg) {
+        if (msg == null) return "";
+        int start = 0;
+        int end = msg.length();
+        while (start < end && msg.charAt(start) <= ' ') start++;
+        while (end > start && msg.charAt(end - 1) <= ' ') end--;
+
+        // JSON
+        if (end - start >= 2) {
+            char first = msg.charAt(start);
+            if ((first == '"' || first == '\'') && msg.charAt(end - 1) == first) {
+                start++;
+                end--;
+            }
+        }
+
+        // XML: every tag counts as whitespace
+        boolean xml = end > start && msg.charAt(start) == '<' && msg.charAt(end - 1) == '>';
+
+        StringBuilder s = new StringBuilder(end - start + KEYWORD.length() + 1);
+        boolean pendingSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = msg.charAt(i);
+            if (xml && c == '<') {
+                int close = msg.indexOf('>', i + 1);
+                if (close > i + 1 && close < end) {
+                    i = close;
+                    pendingSpace = true;
+                    continue;
+                }
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && !s.isEmpty()) {
+                s.append(' ');
+            }
+            pendingSpace = false;
+            s.append(c);
+        }
+
+        // <CAPITAL_RAISE>Foolad 0.5</CAPITAL_RAISE> leaves just "Foolad 0.5"
+        if (xml && !s.toString().regionMatches(true, 0, KEYWORD, 0, KEYWORD.length())) {
+            s.insert(0, s.isEmpty() ? KEYWORD : KEYWORD + " ");
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.bourse.wealthwise.domain.services;
+
+/**
+ * A page cursor that was not returned by {@link PortfolioActionService#getActionPage}.  Extends
+ * {@link IllegalArgumentException} like the other invalid-input errors of the services.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor: " + cursor);
+    }
+}
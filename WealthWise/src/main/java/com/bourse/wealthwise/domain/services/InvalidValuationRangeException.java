@@ -0,0 +1,12 @@
+package com.bourse.wealthwise.domain.services;
+
+/**
+ * A valuation range that cannot be walked: {@code from} after {@code to}, a step that does not
+ * move forward, or more than {@link ValuationSeriesService#MAX_POINTS} dates.
+ */
+public class InvalidValuationRangeException extends IllegalArgumentException {
+
+    public InvalidValuationRangeException(String message) {
+        super(message);
+    }
+}
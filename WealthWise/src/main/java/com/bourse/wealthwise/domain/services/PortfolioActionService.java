@@ -1,33 +1,159 @@
 package com.bourse.wealthwise.domain.services;
 
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
 import com.bourse.wealthwise.domain.entity.action.utils.ActionDescriptionVisitor;
 import com.bourse.wealthwise.domain.entity.action.utils.ActionVisitor;
-import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.metrics.QueryTimer;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
+import com.bourse.wealthwise.repository.ActionKey;
 import com.bourse.wealthwise.repository.ActionRepository;
 import com.bourse.wealthwise.repository.PortfolioRepository;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
-@RequiredArgsConstructor
 public class PortfolioActionService {
 
+    /** Largest page {@link #getActionPage} returns; larger requests are cut down to it. */
+    public static final int MAX_PAGE_SIZE = 1000;
+    // Actions fetched at a time by streamActionsForPortfolio
+    private static final int STREAM_BATCH = 256;
+
     private final ActionRepository actionRepository;
     private final PortfolioRepository portfolioRepository;
+    private final QueryTimer timer;
+    private final QueryTimer pageTimer;
+
+    /**
+     * Descriptions of one page of actions, and the cursor of the next page or null if this is the
+     * last one.
+     */
+    public record ActionPage(List<String> descriptions, String nextCursor) {
+    }
+
+    public PortfolioActionService(ActionRepository actionRepository, PortfolioRepository portfolioRepository, WealthWiseMetrics metrics) {
+        this.actionRepository = actionRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.timer = metrics.queryTimer("wealthwise.portfolio.actions", "Described action history of a portfolio");
+        this.pageTimer = metrics.queryTimer("wealthwise.portfolio.actions.page", "One page of the described action history of a portfolio");
+    }
 
     public List<String> getActionsForPortfolio(String portfolioId, LocalDateTime localDateTime) {
+        long start = timer.start();
         ActionVisitor visitor = new ActionDescriptionVisitor();
 
-        return actionRepository.findAllActionsOf(
+        List<String> descriptions = actionRepository.findActionsOfBefore(
                         portfolioRepository.findById(portfolioId)
-                                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"))
-                                .getUuid()
+                                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId))
+                                .getUuid(),
+                        localDateTime
                 ).stream()
-                .filter(action -> action.getDatetime() != null && action.getDatetime().isBefore(localDateTime))
                 .map(action -> action.accept(visitor))
                 .toList();
+        timer.stop(start, descriptions.size());
+        return descriptions;
+    }
+
+    /**
+     * One page of the descriptions of actions before {@code localDateTime}, oldest or newest first.
+     * Pass null as {@code cursor} for the first page and the returned {@link ActionPage#nextCursor()}
+     * for the following ones; only the actions of the page are read and described.
+     */
+    public ActionPage getActionPage(String portfolioId, LocalDateTime localDateTime, String cursor, int pageSize, boolean newestFirst) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        long start = pageTimer.start();
+        requirePortfolio(portfolioId);
+        int size = Math.min(pageSize, MAX_PAGE_SIZE);
+        // One extra action tells whether there is a next page
+        List<BaseAction> actions = actionRepository.findActionPage(portfolioId, localDateTime, decodeCursor(cursor), newestFirst, size + 1);
+        int count = Math.min(size, actions.size());
+
+        ActionVisitor visitor = new ActionDescriptionVisitor();
+        List<String> descriptions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            descriptions.add(actions.get(i).accept(visitor));
+        }
+        String next = actions.size() > size ? encodeCursor(ActionKey.of(actions.get(size - 1))) : null;
+        pageTimer.stop(start, count);
+        return new ActionPage(descriptions, next);
+    }
+
+    /**
+     * The descriptions of actions before {@code localDateTime}, oldest or newest first, read from
+     * the repository a batch at a time and described only as the stream is consumed.  Writes made
+     * while the stream is open show up if they fall in a batch not read yet.
+     */
+    public Stream<String> streamActionsForPortfolio(String portfolioId, LocalDateTime localDateTime, boolean newestFirst) {
+        requirePortfolio(portfolioId);
+        ActionVisitor visitor = new ActionDescriptionVisitor();
+        Iterator<BaseAction> actions = new Iterator<>() {
+            private List<BaseAction> batch = List.of();
+            private int next;
+            private ActionKey cursor;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (next == batch.size() && !exhausted) {
+                    batch = actionRepository.findActionPage(portfolioId, localDateTime, cursor, newestFirst, STREAM_BATCH);
+                    next = 0;
+                    exhausted = batch.size() < STREAM_BATCH;
+                    if (!batch.isEmpty()) {
+                        cursor = ActionKey.of(batch.get(batch.size() - 1));
+                    }
+                }
+                return next < batch.size();
+            }
+
+            @Override
+            public BaseAction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.get(next++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(actions, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(action -> action.accept(visitor));
+    }
+
+    private void requirePortfolio(String portfolioId) {
+        portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
+    }
+
+    // Cursors are opaque to clients: the base64 of the last action's datetime and uuid
+    static String encodeCursor(ActionKey key) {
+        String plain = key.datetime() + " " + key.uuid();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ActionKey decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String plain;
+        try {
+            plain = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+        int space = plain.indexOf(' ');
+        if (space < 0) {
+            throw new InvalidCursorException(cursor);
+        }
+        try {
+            return new ActionKey(LocalDateTime.parse(plain.substring(0, space)), plain.substring(space + 1));
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(cursor);
+        }
     }
 }
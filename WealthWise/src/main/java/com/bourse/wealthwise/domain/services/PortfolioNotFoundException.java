@@ -0,0 +1,12 @@
+package com.bourse.wealthwise.domain.services;
+
+/**
+ * A portfolio id that no portfolio has.  Extends {@link IllegalArgumentException} like the other
+ * invalid-input errors of the services; the HTTP layer answers it with 404 and the others with 400.
+ */
+public class PortfolioNotFoundException extends IllegalArgumentException {
+
+    public PortfolioNotFoundException(String portfolioId) {
+        super("Portfolio not found: " + portfolioId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+
+import java.util.Comparator;
+
+/**
+ * Order of the rows of a portfolio valuation.  Names ascend by their precomputed collation key;
+ * value, volume and weight descend, so that the first rows are the largest positions.  Securities
+ * without a price come after the priced ones when ordering by value or weight, and ties fall back
+ * to the name.
+ */
+public enum PositionOrdering {
+    NAME(byName()),
+    VALUE(Comparator.comparing(PortfolioSecurityInfo::getValue, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(byName())),
+    VOLUME(Comparator.comparing(PortfolioSecurityInfo::getVolume, Comparator.reverseOrder())
+            .thenComparing(byName())),
+    WEIGHT(Comparator.comparing(PortfolioSecurityInfo::getWeight, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(byName()));
+
+    private final Comparator<PortfolioSecurityInfo> comparator;
+
+    PositionOrdering(Comparator<PortfolioSecurityInfo> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<PortfolioSecurityInfo> comparator() {
+        return comparator;
+    }
+
+    private static Comparator<PortfolioSecurityInfo> byName() {
+        return Comparator.comparing(info -> info.getSecurity().nameKey());
+    }
+}
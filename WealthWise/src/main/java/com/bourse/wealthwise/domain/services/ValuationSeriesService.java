@@ -0,0 +1,142 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.domain.projection.SecurityVolumes;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.PriceSeries;
+import com.bourse.wealthwise.repository.PriceSnapshot;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Value of a portfolio at the end of every step between two dates, e.g. daily over a year for a
+ * chart.  Rather than one {@link ViewPortfolioSecuritiesService#getPortfolioSecurities} per date,
+ * which replays history and binary-searches every price each time, it makes a single forward
+ * sweep: holdings at the first date come from the {@link HoldingsProjection}, the range's actions
+ * are then replayed in time order, and each security's price series is walked by a cursor that
+ * only moves forward.  The cost is O(actions in range + prices in range + dates x holdings).
+ */
+@Service
+@RequiredArgsConstructor
+public class ValuationSeriesService {
+
+    /** Most dates one call values. */
+    public static final int MAX_POINTS = 10_000;
+
+    private final PortfolioRepository portfolioRepository;
+    private final ActionRepository actionRepository;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final HoldingsProjection holdingsProjection;
+
+    /**
+     * Valuation at the end of one date: every action of that day or before, priced with the last
+     * price on or before it.  {@code securities} holds the same rows as
+     * {@link ViewPortfolioSecuritiesService#getPortfolioSecurities}; {@code totalValue} sums the
+     * values of the priced ones.
+     */
+    public record ValuationPoint(LocalDate date, double totalValue, List<PortfolioSecurityInfo> securities) {
+    }
+
+    /**
+     * Valuations on {@code from}, {@code from + step}, {@code from + 2 step}, ... up to and
+     * including {@code to}.  Steps are added to {@code from} rather than to the previous date, so
+     * monthly steps from the 31st land on the last day of shorter months without drifting.
+     */
+    public List<ValuationPoint> getValuationSeries(String portfolioId, LocalDate from, LocalDate to, Period step) {
+        portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
+        List<LocalDate> dates = dates(from, to, step);
+
+        SecurityVolumes volumes = holdingsProjection.volumesBefore(portfolioId, endOf(dates.get(0)));
+        List<BaseAction> actions = actionRepository.findActionsOfBetween(portfolioId, endOf(dates.get(0)), endOf(dates.get(dates.size() - 1)));
+        // Every date is priced against one version, even while prices are being loaded
+        PriceSnapshot prices = securityPriceRepository.snapshot();
+        Map<Security, PriceCursor> cursors = new IdentityHashMap<>();
+
+        List<ValuationPoint> points = new ArrayList<>(dates.size());
+        int next = 0;
+        for (int i = 0; i < dates.size(); i++) {
+            LocalDate date = dates.get(i);
+            // The first date's actions are already in the projection's volumes
+            if (i > 0) {
+                LocalDateTime end = endOf(date);
+                while (next < actions.size() && actions.get(next).getDatetime().isBefore(end)) {
+                    holdingsProjection.replay(actions.get(next++), volumes);
+                }
+            }
+            int epochDay = Math.toIntExact(date.toEpochDay());
+            List<PortfolioSecurityInfo> securities = ViewPortfolioSecuritiesService.toSecurityInfos(volumes,
+                    security -> cursors.computeIfAbsent(security, s -> new PriceCursor(prices.getSeries(s.getIsin()))).priceOn(epochDay));
+            double total = 0;
+            for (PortfolioSecurityInfo info : securities) {
+                if (info.getValue() != null) {
+                    total += info.getValue();
+                }
+            }
+            points.add(new ValuationPoint(date, total, securities));
+        }
+        return points;
+    }
+
+    private static List<LocalDate> dates(LocalDate from, LocalDate to, Period step) {
+        if (from.isAfter(to)) {
+            throw new InvalidValuationRangeException("from " + from + " is after to " + to);
+        }
+        if (step.isZero() || step.isNegative() || !from.plus(step).isAfter(from)) {
+            throw new InvalidValuationRangeException("Step must be positive: " + step);
+        }
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = from.plus(step.multipliedBy(dates.size()))) {
+            if (dates.size() == MAX_POINTS) {
+                throw new InvalidValuationRangeException("More than " + MAX_POINTS + " dates from " + from + " to " + to + " by " + step);
+            }
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    // Valuations include the whole day
+    private static LocalDateTime endOf(LocalDate date) {
+        return date.plusDays(1).atStartOfDay();
+    }
+
+    /**
+     * Position in one security's price series.  Dates are asked for in increasing order, so the
+     * position only moves forward and the whole range costs one pass over its prices.
+     */
+    private static final class PriceCursor {
+        private final PriceSeries series;
+        private boolean positioned;
+        private int index;
+
+        PriceCursor(PriceSeries series) {
+            this.series = series;
+        }
+
+        /** Last price on or before {@code epochDay}, or NaN if there is none. */
+        double priceOn(int epochDay) {
+            if (!positioned) {
+                // First use: jump straight to the date instead of walking the history before it
+                index = series.floorIndex(epochDay);
+                positioned = true;
+            }
+            while (index + 1 < series.size() && series.epochDayAt(index + 1) <= epochDay) {
+                index++;
+            }
+            return index < 0 ? Double.NaN : series.priceAt(index);
+        }
+    }
+}
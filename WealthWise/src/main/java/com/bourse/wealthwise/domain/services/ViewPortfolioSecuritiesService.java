@@ -1,20 +1,19 @@
 package com.bourse.wealthwise.domain.services;
-import com.bourse.wealthwise.domain.entity.action.BaseAction;
-import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
 import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
 import com.bourse.wealthwise.domain.entity.security.Security;
-import com.bourse.wealthwise.domain.entity.security.SecurityChange;
-import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.domain.projection.SecurityVolumes;
+import com.bourse.wealthwise.metrics.QueryTimer;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
 import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.PriceSnapshot;
 import com.bourse.wealthwise.repository.SecurityPriceRepository;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.ToDoubleFunction;
 
 
 @Service
@@ -22,94 +21,120 @@ public class ViewPortfolioSecuritiesService {
 
     private final PortfolioRepository portfolioRepository;
     private final SecurityPriceRepository securityPriceRepository;
-    private final ActionRepository actionRepository;
-
-    private void sortPortfolioSecurityInfo(List<PortfolioSecurityInfo> infoList){
-
-    }
+    private final HoldingsProjection holdingsProjection;
+    private final QueryTimer timer;
+    private final QueryTimer rankedTimer;
 
     public ViewPortfolioSecuritiesService(
             PortfolioRepository portfolioRepository,
             SecurityPriceRepository securityPriceRepository,
-            ActionRepository actionRepository
+            HoldingsProjection holdingsProjection,
+            WealthWiseMetrics metrics
     ) {
         this.portfolioRepository = portfolioRepository;
         this.securityPriceRepository = securityPriceRepository;
-        this.actionRepository = actionRepository;
+        this.holdingsProjection = holdingsProjection;
+        this.timer = metrics.queryTimer("wealthwise.portfolio.securities", "Valued holdings of a portfolio");
+        this.rankedTimer = metrics.queryTimer("wealthwise.portfolio.securities.ranked", "Ordered or top positions of a portfolio");
     }
     public List<PortfolioSecurityInfo> getPortfolioSecurities(String portfolioId, LocalDateTime targetDateTime) {
-        Portfolio portfolio = portfolioRepository.findById(portfolioId)
-                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found: " + portfolioId));
-        List<PortfolioSecurityInfo> portfolioSecurityInfoList = new ArrayList<>();
-
-        List<BaseAction> portfolioActions = actionRepository.findAllActionsOf(portfolioId);
-        List<BaseAction> targetDataPortfolioActions = new ArrayList<>();
+        long start = timer.start();
+        List<PortfolioSecurityInfo> securities = valuedHoldings(portfolioId, targetDateTime, PositionOrdering.NAME, Integer.MAX_VALUE);
+        timer.stop(start, securities.size());
+        return securities;
+    }
 
-        for(BaseAction action : portfolioActions){
-            if(action.getDatetime().isBefore(targetDateTime)){
-                targetDataPortfolioActions.add(action);
-            }
+    /**
+     * The first {@code limit} positions in the given order, e.g. the 20 largest by value.  Weights
+     * are shares of the whole portfolio, not of the positions returned.  Only the kept positions
+     * are ordered, so a small limit costs O(n log limit) rather than a sort of every holding.
+     */
+    public List<PortfolioSecurityInfo> getPortfolioSecurities(String portfolioId, LocalDateTime targetDateTime,
+                                                              PositionOrdering ordering, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
         }
+        long start = rankedTimer.start();
+        List<PortfolioSecurityInfo> securities = valuedHoldings(portfolioId, targetDateTime, ordering, limit);
+        rankedTimer.stop(start, securities.size());
+        return securities;
+    }
+
+    private List<PortfolioSecurityInfo> valuedHoldings(String portfolioId, LocalDateTime targetDateTime,
+                                                       PositionOrdering ordering, int limit) {
+        portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
 
-//        if(targetDataPortfolioActions != null) {
-//            for (BaseAction validAction : Objects.requireNonNull(targetDataPortfolioActions)) {
-//                var securityChangeList = validAction.getSecurityChanges();
-//                if (securityChangeList.size() == 1) {
-//                    Security security = securityChangeList.get(0).getSecurity();
-//                    BigInteger volumeChange = securityChangeList.get(0).getVolumeChange();
-//
-//                    boolean newSecurity = true;
-//                    for (int i = 0; i < Objects.requireNonNull(portfolioSecurityInfoList).size(); i++) {
-//                        if (portfolioSecurityInfoList.get(i).getSecurity().equals(security)) {
-//                            BigInteger volume = portfolioSecurityInfoList.get(i).getVolume().add(volumeChange);
-//                            portfolioSecurityInfoList.get(i).setVolume(volume);
-//                            newSecurity = false;
-//                            break;
-//                        }
-//                    }
-//
-//                    if (newSecurity) {
-//                        var price = securityPriceRepository.getPrice(security.getIsin(), LocalDate.from(targetDateTime)) ;
-//                        portfolioSecurityInfoList.add(new PortfolioSecurityInfo(security, volumeChange, price));
-//                    }
-//                }
-//            }
-//        }
+        // Volumes come from the holdings projection, which resumes from the nearest checkpoint
+        // instead of replaying the whole history.  Some actions (e.g., CapitalRaise, StockRightUsage)
+        // emit multiple SecurityChange events; the projection applies each of them.
+        SecurityVolumes holdings = holdingsProjection.volumesBefore(portfolioId, targetDateTime);
 
-        // Aggregate all security changes for valid actions.  Some actions (e.g., CapitalRaise, StockRightUsage)
-        // may emit multiple SecurityChange events.  We should apply each change individually to the holdings.
-        if (targetDataPortfolioActions != null) {
-            for (BaseAction validAction : targetDataPortfolioActions) {
-                List<SecurityChange> securityChangeList = validAction.getSecurityChanges();
-                for (SecurityChange sc : securityChangeList) {
-                    Security security = sc.getSecurity();
-                    BigInteger volumeChange = sc.getVolumeChange();
+        LocalDate priceDate = LocalDate.from(targetDateTime);
+        // Last known price, so weekends and holidays fall back to the previous trading day.  All
+        // securities are priced from one version, so a day being loaded is seen whole or not at all
+        PriceSnapshot prices = securityPriceRepository.snapshot();
+        return toSecurityInfos(holdings, security -> prices.getPriceAsOfOrNaN(security.getIsin(), priceDate),
+                ordering, limit);
+    }
+
+    /**
+     * Builds the valuation rows for non-zero holdings, sorted by security name; the only objects
+     * created per security are the row and its boxed numbers.  {@code priceOf} returns NaN for a
+     * security without a price, which then gets no price, value or weight.
+     */
+    static List<PortfolioSecurityInfo> toSecurityInfos(SecurityVolumes holdings, ToDoubleFunction<Security> priceOf) {
+        return toSecurityInfos(holdings, priceOf, PositionOrdering.NAME, Integer.MAX_VALUE);
+    }
 
-                    // Try to find existing PortfolioSecurityInfo for this security and update its volume
-                    boolean found = false;
-                    for (PortfolioSecurityInfo info : portfolioSecurityInfoList) {
-                        if (info.getSecurity().equals(security)) {
-                            info.setVolume(info.getVolume().add(volumeChange));
-                            found = true;
-                            break;
-                        }
-                    }
-                    // If not found, create a new entry with the current price
-                    if (!found) {
-                        double price = securityPriceRepository.getPrice(security.getIsin(), LocalDate.from(targetDateTime));
-                        portfolioSecurityInfoList.add(new PortfolioSecurityInfo(security, volumeChange, price));
-                    }
+    /**
+     * The first {@code limit} valuation rows in {@code ordering}.  Zero volumes are dropped before
+     * ordering, and when the limit is below the number of rows a bounded heap keeps the best
+     * {@code limit} of them instead of sorting them all.
+     */
+    static List<PortfolioSecurityInfo> toSecurityInfos(SecurityVolumes holdings, ToDoubleFunction<Security> priceOf,
+                                                       PositionOrdering ordering, int limit) {
+        List<PortfolioSecurityInfo> portfolioSecurityInfoList = new ArrayList<>(holdings.size());
+        double total = 0;
+        for (int entry = 0; entry < holdings.size(); entry++) {
+            if (holdings.isZero(entry)) {
+                continue; // Skip zero volumes
+            }
+            Security security = holdings.security(entry);
+            double price = priceOf.applyAsDouble(security);
+            // A security that has never been priced up to the target date has no value rather than failing the whole view
+            PortfolioSecurityInfo info = new PortfolioSecurityInfo(security, holdings.volume(entry), Double.isNaN(price) ? null : price);
+            if (!Double.isNaN(price)) {
+                info.setValue(price * info.getVolume().doubleValue());
+                total += info.getValue();
+            }
+            portfolioSecurityInfoList.add(info);
+        }
+        if (total != 0) {
+            for (PortfolioSecurityInfo info : portfolioSecurityInfoList) {
+                if (info.getValue() != null) {
+                    info.setWeight(info.getValue() / total);
                 }
             }
         }
 
-        for (int i = 0; i < portfolioSecurityInfoList.size(); i++){
-            var value = securityPriceRepository.getPrice(portfolioSecurityInfoList.get(i).getSecurity().getIsin(),
-                    LocalDate.from(targetDateTime)) * portfolioSecurityInfoList.get(i).getVolume().doubleValue();
-            portfolioSecurityInfoList.get(i).setValue(value);
+        Comparator<PortfolioSecurityInfo> order = ordering.comparator();
+        if (limit >= portfolioSecurityInfoList.size()) {
+            portfolioSecurityInfoList.sort(order);
+            return portfolioSecurityInfoList;
+        }
+        // Heap head is the worst row kept, which the next better row replaces
+        PriorityQueue<PortfolioSecurityInfo> kept = new PriorityQueue<>(limit, order.reversed());
+        for (PortfolioSecurityInfo info : portfolioSecurityInfoList) {
+            if (kept.size() < limit) {
+                kept.add(info);
+            } else if (order.compare(info, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(info);
+            }
         }
-        portfolioSecurityInfoList.sort((o1, o2) -> o1.getSecurity().getName().compareTo(o2.getSecurity().getName()));
-        portfolioSecurityInfoList.removeIf(info -> info.getVolume().equals(BigInteger.ZERO)); // Remove zero volumes
-        return portfolioSecurityInfoList;
+        List<PortfolioSecurityInfo> top = new ArrayList<>(kept);
+        top.sort(order);
+        return top;
     }
 }
@@ -0,0 +1,61 @@
+package com.bourse.wealthwise.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and result size of a query method, both published as histograms.  Used as
+ * {@code long start = timer.start(); ... timer.stop(start, results);} rather than with a lambda or a
+ * {@link Timer.Sample}, so a timed call allocates nothing; the disabled timer does not even read
+ * the clock.
+ */
+public final class QueryTimer {
+
+    private static final QueryTimer DISABLED = new QueryTimer(null, null);
+
+    private final Timer latency;
+    private final DistributionSummary results;
+
+    private QueryTimer(Timer latency, DistributionSummary results) {
+        this.latency = latency;
+        this.results = results;
+    }
+
+    /**
+     * A timer named {@code name} with a {@code name.results} summary, or the disabled timer when
+     * {@code registry} is null.
+     */
+    public static QueryTimer of(MeterRegistry registry, String name, String description) {
+        if (registry == null) {
+            return DISABLED;
+        }
+        Timer latency = Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+        DistributionSummary results = DistributionSummary.builder(name + ".results")
+                .description("Rows returned by: " + description)
+                .publishPercentileHistogram()
+                .register(registry);
+        return new QueryTimer(latency, results);
+    }
+
+    public static QueryTimer disabled() {
+        return DISABLED;
+    }
+
+    public long start() {
+        return latency == null ? 0L : System.nanoTime();
+    }
+
+    public void stop(long start, int resultCount) {
+        if (latency == null) {
+            return;
+        }
+        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        results.record(resultCount);
+    }
+}
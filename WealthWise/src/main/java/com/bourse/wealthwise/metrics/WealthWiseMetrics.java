@@ -0,0 +1,61 @@
+package com.bourse.wealthwise.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Where the application's own meters are registered: Spring Boot's registry, which the actuator
+ * serves at {@code /actuator/prometheus}, unless {@code wealthwise.metrics.enabled} is false.
+ * Components built outside Spring use {@link #of} or {@link #disabled()}.
+ */
+@Component
+public class WealthWiseMetrics {
+
+    private static final WealthWiseMetrics DISABLED = new WealthWiseMetrics(null);
+
+    // Null when disabled
+    private final MeterRegistry registry;
+
+    private WealthWiseMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Autowired
+    public WealthWiseMetrics(ObjectProvider<MeterRegistry> registry,
+                             @Value("${wealthwise.metrics.enabled:true}") boolean enabled) {
+        this(enabled ? registry.getIfAvailable() : null);
+    }
+
+    /**
+     * Metrics registered in {@code registry}, for components built outside Spring.
+     */
+    public static WealthWiseMetrics of(MeterRegistry registry) {
+        return new WealthWiseMetrics(Objects.requireNonNull(registry, "registry"));
+    }
+
+    public static WealthWiseMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    public QueryTimer queryTimer(String name, String description) {
+        return QueryTimer.of(registry, name, description);
+    }
+
+    /**
+     * The registry for meters off the query paths.  When disabled this is a registry without
+     * backends, whose meters record nothing.
+     */
+    public MeterRegistry registry() {
+        return registry != null ? registry : new CompositeMeterRegistry();
+    }
+}
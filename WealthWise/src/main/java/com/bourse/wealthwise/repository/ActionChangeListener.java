@@ -0,0 +1,19 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+
+/**
+ * Receives every change to {@link ActionRepository}.  Callbacks run on the writing thread once the
+ * store reflects the change, while the action's uuid is still locked, so changes to one action are
+ * observed in the order they happened.
+ */
+public interface ActionChangeListener {
+
+    /**
+     * @param action   the action now stored
+     * @param replaced the previous action stored under the same uuid, or null for an insert
+     */
+    void onSaved(BaseAction action, BaseAction replaced);
+
+    void onDeleted(BaseAction action);
+}
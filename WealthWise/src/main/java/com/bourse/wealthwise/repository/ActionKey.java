@@ -0,0 +1,40 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Position of an action on its portfolio's timeline.  Actions are ordered by datetime and,
+ * for actions sharing the same instant, by uuid so that every action has a unique slot.
+ */
+public record ActionKey(LocalDateTime datetime, String uuid) implements Comparable<ActionKey> {
+
+    private static final Comparator<ActionKey> ORDER = Comparator
+            .comparing(ActionKey::datetime)
+            .thenComparing(ActionKey::uuid);
+
+    public ActionKey {
+        Objects.requireNonNull(datetime, "datetime");
+        Objects.requireNonNull(uuid, "uuid");
+    }
+
+    public static ActionKey of(BaseAction action) {
+        return new ActionKey(action.getDatetime(), action.getUuid());
+    }
+
+    /**
+     * Probe key that sorts before every real action at {@code datetime}; a head view up to it
+     * (exclusive) therefore holds exactly the actions strictly before {@code datetime}.
+     */
+    public static ActionKey lowest(LocalDateTime datetime) {
+        return new ActionKey(datetime, "");
+    }
+
+    @Override
+    public int compareTo(ActionKey other) {
+        return ORDER.compare(this, other);
+    }
+}
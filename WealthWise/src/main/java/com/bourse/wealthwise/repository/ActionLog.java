@@ -0,0 +1,16 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+
+/**
+ * Records every write to {@link ActionRepository} before the store applies it, e.g. in a durable
+ * journal.  A write the log throws on is not applied.  Calls run on the writing thread while the
+ * action's uuid is locked, so writes to one action are logged in the order they are applied.
+ */
+public interface ActionLog {
+
+    void saving(BaseAction action);
+
+    /** Called only for a uuid that is stored. */
+    void deleting(String uuid);
+}
@@ -1,34 +1,219 @@
 package com.bourse.wealthwise.repository;
 
 import com.bourse.wealthwise.domain.entity.action.BaseAction;
-import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.metrics.QueryTimer;
+import com.bourse.wealthwise.metrics.WealthWiseMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
 
+/**
+ * Actions by uuid and by portfolio timeline, notifying {@link ActionChangeListener}s of every write.
+ * Storage is an {@link ActionStore}: the objects themselves on the heap by default, or columnar
+ * off-heap rows with {@code wealthwise.actions.store=columnar}.
+ * <p>
+ * A write locks its uuid's stripe, records the write in the {@link ActionLog} if one is attached,
+ * applies it to the store and then notifies the listeners, all outside the store's own locks.  A
+ * write the log rejects changes nothing; a listener that throws stops the listeners after it, but
+ * the write stands, as it is already logged and stored.
+ */
 @Component
 public class ActionRepository {
 
-    private final Map<String, BaseAction> actions = new ConcurrentHashMap<>();
+    private static final int STRIPES = 64;
+
+    private final ActionStore store;
+    private final QueryTimer findAllTimer;
+
+    private final List<ActionChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ActionLog actionLog;
+
+    // Writes to one uuid are serialized by its stripe, so the log, the store and the listeners see them in one order
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    public ActionRepository() {
+        this(new HeapActionStore());
+    }
+
+    public ActionRepository(ActionStore store) {
+        this(store, WealthWiseMetrics.disabled());
+    }
+
+    @Autowired
+    public ActionRepository(ActionStore store, WealthWiseMetrics metrics) {
+        this.store = store;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.findAllTimer = metrics.queryTimer("wealthwise.actions.find.all", "Full action history of a portfolio");
+    }
+
+    public void subscribe(ActionChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Records every later write in {@code log} before it is applied, replacing any log attached
+     * before.
+     */
+    public void attach(ActionLog log) {
+        this.actionLog = log;
+    }
+
+    /**
+     * Runs {@code supplier} while no write is in progress, e.g. to read a journal offset below which
+     * every logged write has also reached the store.  Blocks writers until it returns.
+     */
+    public long whenIdle(LongSupplier supplier) {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            return supplier.getAsLong();
+        } finally {
+            for (ReentrantLock stripe : stripes) {
+                stripe.unlock();
+            }
+        }
+    }
 
     public BaseAction save(BaseAction action) {
-        actions.put(action.getUuid(), action);
+        Objects.requireNonNull(action.getDatetime(), "action datetime");
+        ReentrantLock stripe = stripeOf(action.getUuid());
+        stripe.lock();
+        try {
+            ActionLog log = actionLog;
+            if (log != null) {
+                log.saving(action);
+            }
+            BaseAction previous = store.save(action);
+            for (ActionChangeListener listener : listeners) {
+                listener.onSaved(action, previous);
+            }
+        } finally {
+            stripe.unlock();
+        }
         return action;
     }
 
+    /**
+     * Saves every action in order.  Listeners are notified once per action, as with {@link #save}.
+     */
+    public void saveAll(Collection<? extends BaseAction> actions) {
+        for (BaseAction action : actions) {
+            save(action);
+        }
+    }
+
     public Optional<BaseAction> findById(String uuid) {
-        return Optional.ofNullable(actions.get(uuid));
+        return store.findById(uuid);
     }
 
     public List<BaseAction> findAllActionsOf(String portfolioId) {
-        return actions.values().stream()
-                .filter(action -> action.getPortfolio().getUuid().equals(portfolioId))
-                .sorted(Comparator.comparing(BaseAction::getDatetime))
-                .toList();
+        long start = findAllTimer.start();
+        List<BaseAction> actions = store.slice(portfolioId, null, false, null, false);
+        findAllTimer.stop(start, actions.size());
+        return actions;
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    /**
+     * Actions of the portfolio strictly before {@code before}, oldest first.
+     */
+    public List<BaseAction> findActionsOfBefore(String portfolioId, LocalDateTime before) {
+        return store.slice(portfolioId, null, false, ActionKey.lowest(before), false);
+    }
+
+    /**
+     * Actions of the portfolio with {@code from <= datetime < to}, oldest first.
+     */
+    public List<BaseAction> findActionsOfBetween(String portfolioId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return store.slice(portfolioId, ActionKey.lowest(from), true, ActionKey.lowest(to), false);
+    }
+
+    /**
+     * Actions of the portfolio positioned strictly after {@code after} and strictly before
+     * {@code before}, oldest first.
+     */
+    public List<BaseAction> findActionsOfAfter(String portfolioId, ActionKey after, LocalDateTime before) {
+        ActionKey upper = ActionKey.lowest(before);
+        if (after.compareTo(upper) >= 0) {
+            return List.of();
+        }
+        return store.slice(portfolioId, after, false, upper, false);
+    }
+
+    /**
+     * One page of the portfolio's actions strictly before {@code before}: up to {@code limit} of
+     * them, oldest or newest first, continuing past {@code cursor} (exclusive), the key of the last
+     * action of the previous page, or from the start of the history when it is null.  Pages are
+     * keyed rather than offset, so a write between two requests neither repeats nor skips actions.
+     */
+    public List<BaseAction> findActionPage(String portfolioId, LocalDateTime before, ActionKey cursor,
+                                           boolean newestFirst, int limit) {
+        ActionKey upper = ActionKey.lowest(before);
+        if (newestFirst) {
+            ActionKey to = cursor != null && cursor.compareTo(upper) < 0 ? cursor : upper;
+            return store.slice(portfolioId, null, false, to, false, true, limit);
+        }
+        if (cursor != null && cursor.compareTo(upper) >= 0) {
+            return List.of();
+        }
+        return store.slice(portfolioId, cursor, false, upper, false, false, limit);
+    }
+
+    /**
+     * Calls {@code consumer} with each portfolio's actions, oldest first, without blocking writers.
+     * Every list is a weakly consistent copy: it holds every write whose listeners have already been
+     * notified, since the store is updated before they are, and possibly writes still in flight.
+     */
+    public void forEachTimeline(BiConsumer<String, List<BaseAction>> consumer) {
+        store.forEachTimeline(consumer);
     }
 
     public void deleteById(String uuid) {
-        actions.remove(uuid);
+        ReentrantLock stripe = stripeOf(uuid);
+        stripe.lock();
+        try {
+            ActionLog log = actionLog;
+            if (log != null) {
+                if (store.findById(uuid).isEmpty()) {
+                    return;
+                }
+                log.deleting(uuid);
+            }
+            BaseAction previous = store.delete(uuid);
+            if (previous != null) {
+                for (ActionChangeListener listener : listeners) {
+                    listener.onDeleted(previous);
+                }
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * The store behind this repository, e.g. to run columnar scans when it is a
+     * {@code ColumnarActionStore}.
+     */
+    public ActionStore store() {
+        return store;
     }
 
+    private ReentrantLock stripeOf(String uuid) {
+        return stripes[Math.floorMod(uuid.hashCode(), STRIPES)];
+    }
 }
@@ -0,0 +1,52 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage behind {@link ActionRepository}: actions by uuid plus each portfolio's timeline in
+ * {@link ActionKey} order.  Writes return the replaced or deleted action once the timeline reflects
+ * them; the repository serializes writes to one uuid and notifies its listeners after the store
+ * returns, so a store never calls out while it holds its own locks.
+ */
+public interface ActionStore {
+
+    /**
+     * Stores the action, replacing the one with the same uuid, and returns the replaced action or
+     * {@code null}.
+     */
+    BaseAction save(BaseAction action);
+
+    /**
+     * Removes the action and returns it, or {@code null} if there is none.
+     */
+    BaseAction delete(String uuid);
+
+    Optional<BaseAction> findById(String uuid);
+
+    /** Number of actions stored. */
+    int count();
+
+    /**
+     * Actions of the portfolio between two keys, oldest first; a {@code null} bound is open.
+     */
+    default List<BaseAction> slice(String portfolioId, ActionKey from, boolean fromInclusive, ActionKey to, boolean toInclusive) {
+        return slice(portfolioId, from, fromInclusive, to, toInclusive, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The first {@code limit} actions of the portfolio between two keys, newest first if
+     * {@code descending}; only those are read, so a page costs the same however long the range.
+     */
+    List<BaseAction> slice(String portfolioId, ActionKey from, boolean fromInclusive, ActionKey to, boolean toInclusive,
+                           boolean descending, int limit);
+
+    /**
+     * Calls {@code consumer} with each portfolio's actions, oldest first, without blocking writers
+     * for longer than copying one timeline.
+     */
+    void forEachTimeline(BiConsumer<String, List<BaseAction>> consumer);
+}
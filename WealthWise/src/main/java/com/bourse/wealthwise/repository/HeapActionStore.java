@@ -0,0 +1,107 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Default {@link ActionStore}: the actions themselves, by uuid and in a skip list per portfolio.
+ * Writes to different uuids run concurrently and reads never block.
+ */
+public final class HeapActionStore implements ActionStore {
+
+    private final Map<String, BaseAction> actions = new ConcurrentHashMap<>();
+
+    // Secondary index: portfolio uuid -> that portfolio's actions in time order
+    private final Map<String, ConcurrentSkipListMap<ActionKey, BaseAction>> actionsByPortfolio = new ConcurrentHashMap<>();
+
+    @Override
+    public BaseAction save(BaseAction action) {
+        BaseAction[] replaced = new BaseAction[1];
+        actions.compute(action.getUuid(), (uuid, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(action);
+            replaced[0] = previous;
+            return action;
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public BaseAction delete(String uuid) {
+        BaseAction[] deleted = new BaseAction[1];
+        actions.computeIfPresent(uuid, (key, previous) -> {
+            unindex(previous);
+            deleted[0] = previous;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public Optional<BaseAction> findById(String uuid) {
+        return Optional.ofNullable(actions.get(uuid));
+    }
+
+    @Override
+    public int count() {
+        return actions.size();
+    }
+
+    @Override
+    public List<BaseAction> slice(String portfolioId, ActionKey from, boolean fromInclusive, ActionKey to, boolean toInclusive,
+                                  boolean descending, int limit) {
+        NavigableMap<ActionKey, BaseAction> timeline = timelineOf(portfolioId);
+        if (from != null) {
+            timeline = timeline.tailMap(from, fromInclusive);
+        }
+        if (to != null) {
+            timeline = timeline.headMap(to, toInclusive);
+        }
+        if (descending) {
+            timeline = timeline.descendingMap();
+        }
+        if (limit == Integer.MAX_VALUE) {
+            return List.copyOf(timeline.values());
+        }
+        // Sub-map sizes are linear in a skip list, so take the first entries without asking
+        List<BaseAction> actions = new ArrayList<>(Math.min(limit, 64));
+        Iterator<BaseAction> it = timeline.values().iterator();
+        while (actions.size() < limit && it.hasNext()) {
+            actions.add(it.next());
+        }
+        return Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * Every list is a weakly consistent copy: it holds every write that has returned, since the
+     * index is updated before it does, and possibly writes still in flight.
+     */
+    @Override
+    public void forEachTimeline(BiConsumer<String, List<BaseAction>> consumer) {
+        actionsByPortfolio.forEach((portfolioId, timeline) -> consumer.accept(portfolioId, List.copyOf(timeline.values())));
+    }
+
+    private NavigableMap<ActionKey, BaseAction> timelineOf(String portfolioId) {
+        NavigableMap<ActionKey, BaseAction> timeline = actionsByPortfolio.get(portfolioId);
+        return timeline != null ? timeline : Collections.emptyNavigableMap();
+    }
+
+    private void index(BaseAction action) {
+        actionsByPortfolio
+                .computeIfAbsent(action.getPortfolio().getUuid(), k -> new ConcurrentSkipListMap<>())
+                .put(ActionKey.of(action), action);
+    }
+
+    private void unindex(BaseAction action) {
+        NavigableMap<ActionKey, BaseAction> timeline = actionsByPortfolio.get(action.getPortfolio().getUuid());
+        if (timeline != null) {
+            timeline.remove(ActionKey.of(action));
+        }
+    }
+}
@@ -24,6 +24,10 @@ public class PortfolioRepository {
         return new ArrayList<>(portfolios.values());
     }
 
+    public int count() {
+        return portfolios.size();
+    }
+
     public void deleteById(String uuid) {
         portfolios.remove(uuid);
     }
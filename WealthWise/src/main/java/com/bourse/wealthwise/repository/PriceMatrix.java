@@ -0,0 +1,240 @@
+package com.bourse.wealthwise.repository;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Immutable, dense price table of a whole security universe, read from a memory-mapped file.
+ * Securities are interned to rows and trading days to columns; prices are {@code double}s laid out
+ * row by row outside the heap, with NaN for a security that was not priced on a trading day.  The
+ * heap only holds the ISIN index and the column days, so ten years of closes for a few thousand
+ * securities take a few hundred kilobytes of heap instead of a {@link PriceSeries} per security.
+ * <p>
+ * A file is {@code [int magic][int version][int rows][int columns]}, then the columns' epoch days,
+ * each row's ISIN as {@code [short length][UTF-8 bytes]} and priced day count, padding to a multiple
+ * of 8 bytes, and {@code rows x columns} prices.  The prices end the file, so a truncated file is
+ * caught by its length.
+ */
+public final class PriceMatrix {
+
+    public static final PriceMatrix EMPTY = new PriceMatrix(Map.of(), new String[0], new int[0], new int[0], DoubleBuffer.allocate(0));
+
+    private static final int MAGIC = 0x5757504D;
+    private static final int VERSION = 1;
+
+    private final Map<String, Integer> rows;
+    private final String[] isins;
+    private final int[] days;
+    private final int[] counts;
+    private final DoubleBuffer prices;
+
+    private PriceMatrix(Map<String, Integer> rows, String[] isins, int[] days, int[] counts, DoubleBuffer prices) {
+        this.rows = rows;
+        this.isins = isins;
+        this.days = days;
+        this.counts = counts;
+        this.prices = prices;
+    }
+
+    /**
+     * Writes the series as a matrix file, with a column for every day any of them is priced on.
+     * NaN prices are left out, since NaN marks a day without a price.
+     */
+    public static void write(Path file, Map<String, PriceSeries> seriesByIsin) {
+        String[] isins = seriesByIsin.keySet().stream().sorted().toArray(String[]::new);
+        int[] days = seriesByIsin.values().stream()
+                .flatMapToInt(series -> Arrays.stream(epochDays(series)))
+                .distinct().sorted().toArray();
+        byte[][] isinBytes = new byte[isins.length][];
+        int[] counts = new int[isins.length];
+        long header = 16L + 4L * days.length;
+        for (int row = 0; row < isins.length; row++) {
+            isinBytes[row] = isins[row].getBytes(StandardCharsets.UTF_8);
+            header += 2 + isinBytes[row].length + 4;
+            PriceSeries series = seriesByIsin.get(isins[row]);
+            for (int i = 0; i < series.size(); i++) {
+                counts[row] += Double.isNaN(series.priceAt(i)) ? 0 : 1;
+            }
+        }
+        if (alignedHeader(header) + (long) isins.length * days.length * Double.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(isins.length + " securities over " + days.length + " days do not fit one mapping");
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(isins.length);
+            out.writeInt(days.length);
+            for (int day : days) {
+                out.writeInt(day);
+            }
+            for (int row = 0; row < isins.length; row++) {
+                out.writeShort(isinBytes[row].length);
+                out.write(isinBytes[row]);
+                out.writeInt(counts[row]);
+            }
+            for (long at = header; at < alignedHeader(header); at++) {
+                out.writeByte(0);
+            }
+            for (String isin : isins) {
+                PriceSeries series = seriesByIsin.get(isin);
+                int next = 0;
+                for (int day : days) {
+                    boolean priced = next < series.size() && series.epochDayAt(next) == day;
+                    out.writeDouble(priced ? series.priceAt(next++) : Double.NaN);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write price matrix " + file, e);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #write}.  Prices stay in the mapping and are paged in as they
+     * are read; the mapping lives as long as the matrix.
+     */
+    public static PriceMatrix map(Path file) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Price matrix " + file + " is too large to map");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map price matrix " + file, e);
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a price matrix: " + file);
+            }
+            int rowCount = buffer.getInt();
+            int columnCount = buffer.getInt();
+            if (rowCount < 0 || columnCount < 0 || (long) columnCount * Integer.BYTES > buffer.remaining()) {
+                throw new IllegalArgumentException("Price matrix " + file + " is truncated or corrupt");
+            }
+            int[] days = new int[columnCount];
+            buffer.asIntBuffer().get(days);
+            buffer.position(buffer.position() + columnCount * Integer.BYTES);
+
+            String[] isins = new String[rowCount];
+            int[] counts = new int[rowCount];
+            Map<String, Integer> rows = new HashMap<>(rowCount * 2);
+            for (int row = 0; row < rowCount; row++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                isins[row] = new String(bytes, StandardCharsets.UTF_8);
+                counts[row] = buffer.getInt();
+                rows.put(isins[row], row);
+            }
+            int start = (int) alignedHeader(buffer.position());
+            long cells = (long) rowCount * columnCount;
+            if (buffer.capacity() - start != cells * Double.BYTES) {
+                throw new IllegalArgumentException("Price matrix " + file + " is truncated or corrupt");
+            }
+            return new PriceMatrix(rows, isins, days, counts, buffer.slice(start, (int) (cells * Double.BYTES)).asDoubleBuffer());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Price matrix " + file + " is truncated or corrupt", e);
+        }
+    }
+
+    /** Row of the security, or -1 if the matrix does not hold it. */
+    public int row(String isin) {
+        Integer row = isin == null ? null : rows.get(isin);
+        return row == null ? -1 : row;
+    }
+
+    public int rowCount() {
+        return isins.length;
+    }
+
+    public int columnCount() {
+        return days.length;
+    }
+
+    public String isinAt(int row) {
+        return isins[row];
+    }
+
+    public int epochDayAt(int column) {
+        return days[column];
+    }
+
+    /** Price of the row on the column's day, or NaN if it was not priced that day. */
+    public double price(int row, int column) {
+        return prices.get(row * days.length + column);
+    }
+
+    /** Price quoted exactly on {@code epochDay}, or NaN. */
+    public double priceOn(int row, int epochDay) {
+        int column = Arrays.binarySearch(days, epochDay);
+        return column < 0 ? Double.NaN : price(row, column);
+    }
+
+    /**
+     * Column of the last price of the row on or before {@code epochDay}, or -1 if there is none.
+     * Steps back over the days the security was not priced, e.g. while it was suspended.
+     */
+    public int floorColumn(int row, int epochDay) {
+        int column = Arrays.binarySearch(days, epochDay);
+        column = column >= 0 ? column : -column - 2;
+        int base = row * days.length;
+        while (column >= 0 && Double.isNaN(prices.get(base + column))) {
+            column--;
+        }
+        return column;
+    }
+
+    /** The priced days of the row as a heap series. */
+    public PriceSeries series(int row) {
+        int[] seriesDays = new int[counts[row]];
+        double[] seriesPrices = new double[counts[row]];
+        int base = row * days.length;
+        int size = 0;
+        for (int column = 0; column < days.length; column++) {
+            double price = prices.get(base + column);
+            if (!Double.isNaN(price)) {
+                seriesDays[size] = days[column];
+                seriesPrices[size++] = price;
+            }
+        }
+        return PriceSeries.of(seriesDays, seriesPrices);
+    }
+
+    /** Number of prices in the matrix, i.e. of cells that are not NaN. */
+    public long pricePointCount() {
+        long count = 0;
+        for (int rowCount : counts) {
+            count += rowCount;
+        }
+        return count;
+    }
+
+    /** Bytes of prices held outside the heap. */
+    public long offHeapBytes() {
+        return (long) prices.capacity() * Double.BYTES;
+    }
+
+    private static long alignedHeader(long header) {
+        return (header + Double.BYTES - 1) & -Double.BYTES;
+    }
+
+    private static int[] epochDays(PriceSeries series) {
+        int[] epochDays = new int[series.size()];
+        for (int i = 0; i < epochDays.length; i++) {
+            epochDays[i] = series.epochDayAt(i);
+        }
+        return epochDays;
+    }
+}
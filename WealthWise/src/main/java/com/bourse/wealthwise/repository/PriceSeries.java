@@ -0,0 +1,127 @@
+package com.bourse.wealthwise.repository;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable, date-sorted price history of a single security.  Dates are kept as epoch days in an
+ * {@code int[]} parallel to a {@code double[]} of prices, so a lookup is one binary search with no
+ * boxing.  Updates return a new series and leave the receiver untouched.
+ * <p>
+ * The arrays may be longer than the series.  Appending a day after the last one writes into the
+ * spare slot and returns a longer series over the same arrays, as long as no other series was
+ * appended to them at that length already; a series never reads past its own size, so the longer
+ * one is invisible to it.  Daily loads therefore append in amortized constant time instead of
+ * copying the whole history.  Once published, a series must only be handed to other threads
+ * through a safe publication, as the repository does.
+ */
+public final class PriceSeries {
+
+    static final PriceSeries EMPTY = new PriceSeries(new int[0], new double[0], 0, new AtomicInteger());
+
+    private final int[] days;
+    private final double[] prices;
+    private final int size;
+    // Slots of the arrays taken by the longest series over them
+    private final AtomicInteger used;
+
+    private PriceSeries(int[] days, double[] prices, int size, AtomicInteger used) {
+        this.days = days;
+        this.prices = prices;
+        this.size = size;
+        this.used = used;
+    }
+
+    /**
+     * Series over parallel arrays of strictly increasing epoch days and their prices.  The arrays
+     * are taken over, not copied.
+     */
+    public static PriceSeries of(int[] epochDays, double[] prices) {
+        if (epochDays.length != prices.length) {
+            throw new IllegalArgumentException("Got " + epochDays.length + " days for " + prices.length + " prices");
+        }
+        for (int i = 1; i < epochDays.length; i++) {
+            if (epochDays[i] <= epochDays[i - 1]) {
+                throw new IllegalArgumentException("Epoch days are not strictly increasing at index " + i);
+            }
+        }
+        return epochDays.length == 0 ? EMPTY : new PriceSeries(epochDays, prices, epochDays.length, new AtomicInteger(epochDays.length));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int epochDayAt(int index) {
+        return days[Objects.checkIndex(index, size)];
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(epochDayAt(index));
+    }
+
+    public double priceAt(int index) {
+        return prices[Objects.checkIndex(index, size)];
+    }
+
+    /** Index of the price quoted exactly on {@code epochDay}, or -1. */
+    public int indexOf(int epochDay) {
+        int i = Arrays.binarySearch(days, 0, size, epochDay);
+        return i >= 0 ? i : -1;
+    }
+
+    /** Index of the last price quoted on or before {@code epochDay}, or -1 if there is none. */
+    public int floorIndex(int epochDay) {
+        int i = Arrays.binarySearch(days, 0, size, epochDay);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /** Index of the first price quoted on or after {@code epochDay}, or {@link #size()} if there is none. */
+    public int ceilingIndex(int epochDay) {
+        int i = Arrays.binarySearch(days, 0, size, epochDay);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    PriceSeries with(int epochDay, double price) {
+        if (size == 0 || epochDay > days[size - 1]) {
+            return append(epochDay, price);
+        }
+        int i = Arrays.binarySearch(days, 0, size, epochDay);
+        if (i >= 0) {
+            double[] updatedPrices = Arrays.copyOf(prices, size);
+            updatedPrices[i] = price;
+            return new PriceSeries(Arrays.copyOf(days, size), updatedPrices, size, new AtomicInteger(size));
+        }
+        int at = -i - 1;
+        int[] newDays = new int[size + 1];
+        double[] newPrices = new double[size + 1];
+        System.arraycopy(days, 0, newDays, 0, at);
+        System.arraycopy(prices, 0, newPrices, 0, at);
+        newDays[at] = epochDay;
+        newPrices[at] = price;
+        System.arraycopy(days, at, newDays, at + 1, size - at);
+        System.arraycopy(prices, at, newPrices, at + 1, size - at);
+        return new PriceSeries(newDays, newPrices, size + 1, new AtomicInteger(size + 1));
+    }
+
+    private PriceSeries append(int epochDay, double price) {
+        if (size < days.length && used.compareAndSet(size, size + 1)) {
+            days[size] = epochDay;
+            prices[size] = price;
+            return new PriceSeries(days, prices, size + 1, used);
+        }
+        // Full, or another series already took the next slot: grow by half
+        int capacity = Math.max(4, size + (size >> 1) + 1);
+        int[] newDays = Arrays.copyOf(days, capacity);
+        double[] newPrices = Arrays.copyOf(prices, capacity);
+        newDays[size] = epochDay;
+        newPrices[size] = price;
+        return new PriceSeries(newDays, newPrices, size + 1, new AtomicInteger(size + 1));
+    }
+
+    static int epochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+}
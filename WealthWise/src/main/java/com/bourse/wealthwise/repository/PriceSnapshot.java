@@ -0,0 +1,186 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * One immutable version of {@link SecurityPriceRepository}: the heap series and the matrix as one
+ * write left them.  A reader that pins a snapshot for a whole valuation prices every security
+ * against the same version, however many days are loaded meanwhile.  Nothing tracks who holds a
+ * snapshot; an old one, and the mapping of a matrix only it still refers to, is reclaimed by the
+ * garbage collector once the last reader drops it.
+ */
+public final class PriceSnapshot {
+
+    static final PriceSnapshot EMPTY = new PriceSnapshot(0, Map.of(), PriceMatrix.EMPTY);
+
+    private final long version;
+    private final Map<String, PriceSeries> series;
+    private final PriceMatrix matrix;
+
+    PriceSnapshot(long version, Map<String, PriceSeries> series, PriceMatrix matrix) {
+        this.version = version;
+        this.series = series;
+        this.matrix = matrix;
+    }
+
+    /** Number of writes published before this snapshot; increases with every write. */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Price quoted exactly on {@code date}, or null if the security was not priced that day.
+     */
+    public Double getPrice(String isin, LocalDate date) {
+        int day = PriceSeries.epochDay(date);
+        PriceSeries heap = heapSeries(isin);
+        int i = heap.indexOf(day);
+        if (i >= 0) {
+            return heap.priceAt(i);
+        }
+        int row = matrix.row(isin);
+        double price = row < 0 ? Double.NaN : matrix.priceOn(row, day);
+        return Double.isNaN(price) ? null : price;
+    }
+
+    /**
+     * Last known price on or before {@code date} (e.g. Friday's close for a Saturday), or null if
+     * the security has no price up to that date.
+     */
+    public Double getPriceAsOf(String isin, LocalDate date) {
+        double price = getPriceAsOfOrNaN(isin, date);
+        return Double.isNaN(price) ? null : price;
+    }
+
+    /**
+     * {@link #getPriceAsOf} without boxing: {@code Double.NaN} if the security has no price up to
+     * that date.
+     */
+    public double getPriceAsOfOrNaN(String isin, LocalDate date) {
+        int day = PriceSeries.epochDay(date);
+        PriceSeries heap = heapSeries(isin);
+        int i = heap.floorIndex(day);
+        int row = matrix.row(isin);
+        int column = row < 0 ? -1 : matrix.floorColumn(row, day);
+        if (column >= 0 && (i < 0 || matrix.epochDayAt(column) > heap.epochDayAt(i))) {
+            return matrix.price(row, column);
+        }
+        return i < 0 ? Double.NaN : heap.priceAt(i);
+    }
+
+    /**
+     * Prices with {@code from <= date <= to}, oldest first.
+     */
+    public List<SecurityPrice> getPrices(String isin, LocalDate from, LocalDate to) {
+        PriceSeries prices = getSeries(isin);
+        int start = prices.ceilingIndex(PriceSeries.epochDay(from));
+        int end = prices.floorIndex(PriceSeries.epochDay(to));
+        List<SecurityPrice> result = new ArrayList<>(Math.max(0, end - start + 1));
+        for (int i = start; i <= end; i++) {
+            result.add(new SecurityPrice(isin, prices.dateAt(i), prices.priceAt(i)));
+        }
+        return result;
+    }
+
+    public List<SecurityPrice> getPricesForSecurity(String isin) {
+        PriceSeries prices = getSeries(isin);
+        List<SecurityPrice> result = new ArrayList<>(prices.size());
+        for (int i = 0; i < prices.size(); i++) {
+            result.add(new SecurityPrice(isin, prices.dateAt(i), prices.priceAt(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Immutable price history of the security; empty if it was never priced.  With a matrix
+     * loaded, a security it holds gets a series built from its row, so iterate this rather than
+     * call it per lookup.
+     */
+    public PriceSeries getSeries(String isin) {
+        PriceSeries heap = heapSeries(isin);
+        int row = matrix.row(isin);
+        return row < 0 ? heap : merge(matrix.series(row), heap);
+    }
+
+    /**
+     * Every security's history as {@link #getSeries} returns it, including those only the matrix
+     * holds.
+     */
+    public void forEachSeries(BiConsumer<String, PriceSeries> consumer) {
+        for (int row = 0; row < matrix.rowCount(); row++) {
+            String isin = matrix.isinAt(row);
+            consumer.accept(isin, merge(matrix.series(row), heapSeries(isin)));
+        }
+        series.forEach((isin, heap) -> {
+            if (matrix.row(isin) < 0) {
+                consumer.accept(isin, heap);
+            }
+        });
+    }
+
+    /**
+     * Only the heap series, e.g. for snapshots: the matrix is a file of its own and is mapped again
+     * on startup.
+     */
+    public void forEachHeapSeries(BiConsumer<String, PriceSeries> consumer) {
+        series.forEach(consumer);
+    }
+
+    /**
+     * Number of prices across all securities; sums the series, so meant for monitoring rather than
+     * hot paths.  A day priced both in the matrix and on the heap counts twice.
+     */
+    public long pricePointCount() {
+        long count = matrix.pricePointCount();
+        for (PriceSeries heap : series.values()) {
+            count += heap.size();
+        }
+        return count;
+    }
+
+    PriceSeries heapSeries(String isin) {
+        return isin == null ? PriceSeries.EMPTY : series.getOrDefault(isin, PriceSeries.EMPTY);
+    }
+
+    Map<String, PriceSeries> heapSeries() {
+        return series;
+    }
+
+    PriceMatrix matrix() {
+        return matrix;
+    }
+
+    // Union of both series' days; on a shared day the price of the heap series wins
+    private static PriceSeries merge(PriceSeries base, PriceSeries heap) {
+        if (heap.size() == 0) {
+            return base;
+        }
+        if (base.size() == 0) {
+            return heap;
+        }
+        int[] days = new int[base.size() + heap.size()];
+        double[] prices = new double[days.length];
+        int b = 0;
+        int h = 0;
+        int size = 0;
+        while (b < base.size() || h < heap.size()) {
+            int baseDay = b < base.size() ? base.epochDayAt(b) : Integer.MAX_VALUE;
+            int heapDay = h < heap.size() ? heap.epochDayAt(h) : Integer.MAX_VALUE;
+            if (heapDay <= baseDay) {
+                days[size] = heapDay;
+                prices[size++] = heap.priceAt(h++);
+                if (heapDay == baseDay) {
+                    b++;
+                }
+            } else {
+                days[size] = baseDay;
+                prices[size++] = base.priceAt(b++);
+            }
+        }
+        return PriceSeries.of(Arrays.copyOf(days, size), Arrays.copyOf(prices, size));
+    }
+}
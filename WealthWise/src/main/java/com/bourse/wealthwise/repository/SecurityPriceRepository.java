@@ -1,34 +1,177 @@
 package com.bourse.wealthwise.repository;
 
 import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
 
+/**
+ * Price history per ISIN.  Prices added at run time are kept on the heap as a {@link PriceSeries}
+ * per security.  A {@link PriceMatrix} can be loaded underneath them, e.g. years of closes for the
+ * whole market from {@code wealthwise.prices.matrix-file}; a security's history is then the
+ * matrix row merged with its heap series, and on a day both price the heap series wins.
+ * <p>
+ * The repository holds one immutable {@link PriceSnapshot} at a time.  Writers are serialized,
+ * build the next version and publish it with a single volatile write, so a write of many prices,
+ * such as {@link #addDay}, becomes visible all at once.  Each lookup here reads the current
+ * version; a reader that makes several lookups for one result pins a version with
+ * {@link #snapshot()} instead.  The ISIN map is copied on every write, which makes
+ * {@link #addPrice} cost O(securities); bulk loads go through {@link #addDay} or
+ * {@link #putAllSeries}, which copy it once per call.
+ */
+@Slf4j
 @Component
 public class SecurityPriceRepository {
 
-    private final Map<String, Map<LocalDate, Double>> priceMap = new HashMap<>();
+    private volatile PriceSnapshot snapshot = PriceSnapshot.EMPTY;
 
-    public void addPrice(String isin, LocalDate date, Double price) {
-        priceMap
-                .computeIfAbsent(isin, k -> new HashMap<>())
-                .put(date, price);
+    public SecurityPriceRepository() {
     }
 
+    @Autowired
+    public SecurityPriceRepository(@Value("${wealthwise.prices.matrix-file:}") String matrixFile) {
+        if (!matrixFile.isBlank()) {
+            loadMatrix(Path.of(matrixFile));
+        }
+    }
+
+    /** The current version, unaffected by later writes. */
+    public PriceSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Maps a file written by {@link PriceMatrix#write} and puts it under the heap series, replacing
+     * any matrix loaded before.
+     */
+    public void loadMatrix(Path file) {
+        long started = System.nanoTime();
+        PriceMatrix loaded = PriceMatrix.map(file);
+        synchronized (this) {
+            publish(snapshot.heapSeries(), loaded);
+        }
+        log.info("Mapped {} prices of {} securities over {} days from {} in {} ms",
+                loaded.pricePointCount(), loaded.rowCount(), loaded.columnCount(), file,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public synchronized void addPrice(String isin, LocalDate date, Double price) {
+        Map<String, PriceSeries> series = new HashMap<>(snapshot.heapSeries());
+        series.put(isin, snapshot.heapSeries(isin).with(PriceSeries.epochDay(date), price));
+        publish(series, snapshot.matrix());
+    }
+
+    /**
+     * Adds the first {@code count} prices of one trading day, published together: a reader sees
+     * either none or all of them.  A day after a security's last price is appended without copying
+     * its history.
+     */
+    public synchronized void addDay(LocalDate date, String[] isins, double[] dayPrices, int count) {
+        int day = PriceSeries.epochDay(date);
+        Map<String, PriceSeries> series = new HashMap<>(snapshot.heapSeries());
+        for (int i = 0; i < count; i++) {
+            series.put(isins[i], series.getOrDefault(isins[i], PriceSeries.EMPTY).with(day, dayPrices[i]));
+        }
+        publish(series, snapshot.matrix());
+    }
+
+    /**
+     * Price quoted exactly on {@code date}, or null if the security was not priced that day.
+     */
     public Double getPrice(String isin, LocalDate date) {
-        return priceMap.getOrDefault(isin, Collections.emptyMap()).get(date);
+        return snapshot.getPrice(isin, date);
+    }
+
+    /**
+     * Last known price on or before {@code date} (e.g. Friday's close for a Saturday), or null if
+     * the security has no price up to that date.
+     */
+    public Double getPriceAsOf(String isin, LocalDate date) {
+        return snapshot.getPriceAsOf(isin, date);
+    }
+
+    /**
+     * {@link #getPriceAsOf} without boxing: {@code Double.NaN} if the security has no price up to
+     * that date.
+     */
+    public double getPriceAsOfOrNaN(String isin, LocalDate date) {
+        return snapshot.getPriceAsOfOrNaN(isin, date);
+    }
+
+    /**
+     * Prices with {@code from <= date <= to}, oldest first.
+     */
+    public List<SecurityPrice> getPrices(String isin, LocalDate from, LocalDate to) {
+        return snapshot.getPrices(isin, from, to);
     }
 
     public List<SecurityPrice> getPricesForSecurity(String isin) {
-        Map<LocalDate, Double> datePriceMap = priceMap.getOrDefault(isin, Collections.emptyMap());
-        List<SecurityPrice> prices = new ArrayList<>();
-        datePriceMap.forEach((date, price) -> prices.add(new SecurityPrice(isin, date, price)));
-        return prices;
+        return snapshot.getPricesForSecurity(isin);
+    }
+
+    /**
+     * Current immutable price history of the security; empty if it was never priced.  With a
+     * matrix loaded, a security it holds gets a series built from its row, so iterate this rather
+     * than call it per lookup.
+     */
+    public PriceSeries getSeries(String isin) {
+        return snapshot.getSeries(isin);
+    }
+
+    /**
+     * Replaces the heap-held price history of the security, e.g. when loading it from a snapshot.
+     * Prices of a loaded matrix stay underneath it.
+     */
+    public synchronized void putSeries(String isin, PriceSeries series) {
+        Map<String, PriceSeries> updated = new HashMap<>(snapshot.heapSeries());
+        updated.put(isin, series);
+        publish(updated, snapshot.matrix());
+    }
+
+    /** {@link #putSeries} for many securities at once, published together. */
+    public synchronized void putAllSeries(Map<String, PriceSeries> seriesByIsin) {
+        Map<String, PriceSeries> updated = new HashMap<>(snapshot.heapSeries());
+        updated.putAll(seriesByIsin);
+        publish(updated, snapshot.matrix());
+    }
+
+    /**
+     * Every security's history as {@link #getSeries} returns it, including those only the matrix
+     * holds.
+     */
+    public void forEachSeries(BiConsumer<String, PriceSeries> consumer) {
+        snapshot.forEachSeries(consumer);
+    }
+
+    /**
+     * Only the heap series, e.g. for snapshots: the matrix is a file of its own and is mapped again
+     * on startup.
+     */
+    public void forEachHeapSeries(BiConsumer<String, PriceSeries> consumer) {
+        snapshot.forEachHeapSeries(consumer);
+    }
+
+    /**
+     * Number of prices across all securities; sums the series, so meant for monitoring rather than
+     * hot paths.  A day priced both in the matrix and on the heap counts twice.
+     */
+    public long pricePointCount() {
+        return snapshot.pricePointCount();
+    }
+
+    /** Drops the heap series and unloads the matrix. */
+    public synchronized void clear() {
+        publish(Map.of(), PriceMatrix.EMPTY);
     }
 
-    public void clear() {
-        priceMap.clear();
+    // Callers hold the lock; the map must not be modified afterwards
+    private void publish(Map<String, PriceSeries> series, PriceMatrix matrix) {
+        snapshot = new PriceSnapshot(snapshot.version() + 1, series, matrix);
     }
 }
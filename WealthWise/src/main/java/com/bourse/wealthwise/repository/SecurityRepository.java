@@ -2,34 +2,54 @@ package com.bourse.wealthwise.repository;
 
 import com.bourse.wealthwise.domain.entity.security.Security;
 import org.springframework.stereotype.Component;
-import java.util.HashMap;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Component
 public class SecurityRepository {
-    private final HashMap<String, Security> securityByIsin = new HashMap<>();
+    private final Map<String, Security> securityByIsin = new ConcurrentHashMap<>();
+
+    // Keyed by upper-cased symbol, so lookups are case-insensitive like the capital raise message format
+    private final Map<String, Security> securityBySymbol = new ConcurrentHashMap<>();
 
     public Security findSecurityByIsin(String isin) {
         return securityByIsin.get(isin);
     }
 
-    public void addSecurity(Security security) {
-        securityByIsin.put(security.getIsin(), security);
+    public synchronized void addSecurity(Security security) {
+        Security previous = securityByIsin.put(security.getIsin(), security);
+        if (previous != null && previous.getSymbol() != null) {
+            securityBySymbol.remove(symbolKey(previous.getSymbol()), previous);
+        }
+        if (security.getSymbol() != null) {
+            securityBySymbol.put(symbolKey(security.getSymbol()), security);
+        }
     }
 
-    public void clear() {
+    public synchronized void clear() {
         securityByIsin.clear();
+        securityBySymbol.clear();
     }
 
     public Iterable<? extends Security> allSecurities() {
         return securityByIsin.values();
     }
+
+    public int count() {
+        return securityByIsin.size();
+    }
+
     public Security getSecurityBySymbol(String symbol){
-        for(var security: securityByIsin.values()){
-            if(security.getSymbol().equals(symbol)){
-                return security;
-            }
+        if (symbol == null) {
+            return null;
         }
-        return null;
+        return securityBySymbol.get(symbolKey(symbol));
+    }
+
+    private static String symbolKey(String symbol) {
+        return symbol.toUpperCase(Locale.ROOT);
     }
 }
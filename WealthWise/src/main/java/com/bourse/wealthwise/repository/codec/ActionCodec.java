@@ -0,0 +1,302 @@
+package com.bourse.wealthwise.repository.codec;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Versioned binary encoding of every {@link BaseAction} subclass, used by the journal and the
+ * snapshots.  An encoded action is {@code [version][kind]}, the common fields, then the fields of
+ * its subclass:
+ * <ul>
+ *     <li>portfolios and securities are ids into the stream's {@link CodecDictionary}, defined
+ *     inline on first use;</li>
+ *     <li>volumes and amounts are zigzag varints, escaping to raw {@code BigInteger} bytes when
+ *     they do not fit in 62 bits;</li>
+ *     <li>timestamps are a varint epoch second (UTC) and a varint nano of second;</li>
+ *     <li>uuids take 16 bytes, other strings are length-prefixed UTF-8.</li>
+ * </ul>
+ * Encoded actions from one stream must be decoded in order, by a codec whose dictionary has seen
+ * the same stream.
+ */
+public final class ActionCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int BUY = 1;
+    private static final int SALE = 2;
+    private static final int DEPOSIT = 3;
+    private static final int WITHDRAWAL = 4;
+    private static final int CAPITAL_RAISE = 5;
+    private static final int STOCK_RIGHT_USAGE = 6;
+
+    // Reference tags; ids are encoded as 2 + 2 * id for a reference and 3 + 2 * id for a definition
+    private static final int REF_NULL = 0;
+    private static final int REF_INLINE = 1;
+
+    private final CodecDictionary dictionary;
+
+    public ActionCodec(CodecDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public CodecDictionary dictionary() {
+        return dictionary;
+    }
+
+    public byte[] encode(BaseAction action) {
+        BinaryWriter out = new BinaryWriter();
+        encode(action, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Appends the encoded action to {@code out}.  If encoding fails, dictionary entries it added are
+     * rolled back; bytes already appended to {@code out} are not.
+     */
+    public void encode(BaseAction action, BinaryWriter out) {
+        int kind = kindOf(action);
+        CodecDictionary.Mark mark = dictionary.mark();
+        try {
+            out.writeByte(VERSION);
+            out.writeByte(kind);
+            out.writeString(action.getUuid());
+            writeDateTime(action.getDatetime(), out);
+            writePortfolio(action.getPortfolio(), out);
+            out.writeString(action.getTracing_number());
+            out.writeEnum(action.getActionType());
+            out.writeEnum(action.getActor());
+            switch (action) {
+                case Buy buy -> {
+                    writeSecurity(buy.getSecurity(), out);
+                    out.writeNumber(buy.getVolume());
+                    out.writeNullableDouble(buy.getPrice());
+                    out.writeNumber(buy.getTotalValue());
+                }
+                case Sale sale -> {
+                    writeSecurity(sale.getSecurity(), out);
+                    out.writeNumber(sale.getVolume());
+                    out.writeNullableDouble(sale.getPrice());
+                    out.writeNumber(sale.getTotalValue());
+                }
+                case Deposit deposit -> out.writeNumber(deposit.getAmount());
+                case Withdrawal withdrawal -> out.writeNumber(withdrawal.getAmount());
+                case CapitalRaise capitalRaise -> {
+                    writeSecurity(capitalRaise.getHSecurity(), out);
+                    out.writeNumber(capitalRaise.getSecurityCurrentVolume());
+                    out.writeDouble(capitalRaise.getStockRightAmountPerShare());
+                }
+                case StockRightUsage usage -> {
+                    writeSecurity(usage.getStockRightSecurity(), out);
+                    writeSecurity(usage.getMainSecurity(), out);
+                    out.writeNumber(usage.getVolume());
+                    out.writeNumber(usage.getPricePerRight());
+                }
+                default -> throw new IllegalStateException("Unhandled action kind " + kind);
+            }
+        } catch (RuntimeException e) {
+            dictionary.rollback(mark);
+            throw e;
+        }
+    }
+
+    public BaseAction decode(BinaryReader in) {
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported action codec version: " + version);
+        }
+        int kind = in.readByte();
+        String uuid = in.readString();
+        LocalDateTime datetime = readDateTime(in);
+        Portfolio portfolio = readPortfolio(in);
+        String tracingNumber = in.readString();
+        ActionType actionType = in.readEnum(ActionType.values());
+        Actor actor = in.readEnum(Actor.values());
+
+        BaseAction action = switch (kind) {
+            case BUY -> Buy.builder()
+                    .security(readSecurity(in))
+                    .volume(in.readNumber())
+                    .price(in.readNullableDouble())
+                    .totalValue(in.readNumber())
+                    .uuid(uuid).datetime(datetime).portfolio(portfolio).tracing_number(tracingNumber).actionType(actionType)
+                    .build();
+            case SALE -> Sale.builder()
+                    .security(readSecurity(in))
+                    .volume(in.readNumber())
+                    .price(in.readNullableDouble())
+                    .totalValue(in.readNumber())
+                    .uuid(uuid).datetime(datetime).portfolio(portfolio).tracing_number(tracingNumber).actionType(actionType)
+                    .build();
+            case DEPOSIT -> Deposit.builder()
+                    .amount(in.readNumber())
+                    .uuid(uuid).datetime(datetime).portfolio(portfolio).tracing_number(tracingNumber).actionType(actionType)
+                    .build();
+            case WITHDRAWAL -> Withdrawal.builder()
+                    .amount(in.readNumber())
+                    .uuid(uuid).datetime(datetime).portfolio(portfolio).tracing_number(tracingNumber).actionType(actionType)
+                    .build();
+            case CAPITAL_RAISE -> CapitalRaise.builder()
+                    .HSecurity(readSecurity(in))
+                    .securityCurrentVolume(in.readNumber())
+                    .stockRightAmountPerShare(in.readDouble())
+                    .uuid(uuid).datetime(datetime).portfolio(portfolio).tracing_number(tracingNumber).actionType(actionType)
+                    .build();
+            case STOCK_RIGHT_USAGE -> StockRightUsage.builder()
+                    .stockRightSecurity(readSecurity(in))
+                    .mainSecurity(readSecurity(in))
+                    .volume(in.readNumber())
+                    .pricePerRight(in.readNumber())
+                    .uuid(uuid).datetime(datetime).portfolio(portfolio).tracing_number(tracingNumber).actionType(actionType)
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown action kind: " + kind);
+        };
+        action.setActor(actor);
+        return action;
+    }
+
+    /**
+     * Writes a reference to the portfolio, with its definition if this stream has not seen it yet.
+     */
+    public void writePortfolio(Portfolio portfolio, BinaryWriter out) {
+        if (portfolio == null) {
+            out.writeVarLong(REF_NULL);
+            return;
+        }
+        if (portfolio.getUuid() == null) {
+            out.writeVarLong(REF_INLINE);
+            writePortfolioFields(portfolio, out);
+            return;
+        }
+        int id = dictionary.portfolioId(portfolio);
+        if (id >= 0) {
+            out.writeVarLong(2 + 2L * id);
+            return;
+        }
+        id = dictionary.definePortfolio(portfolio);
+        out.writeVarLong(3 + 2L * id);
+        writePortfolioFields(portfolio, out);
+    }
+
+    public Portfolio readPortfolio(BinaryReader in) {
+        long tag = in.readVarLong();
+        if (tag == REF_NULL) {
+            return null;
+        }
+        if (tag == REF_INLINE) {
+            return dictionary.resolvePortfolio(readPortfolioFields(in));
+        }
+        int id = Math.toIntExact((tag - 2) >>> 1);
+        return (tag & 1) == 0 ? dictionary.portfolio(id) : dictionary.decodedPortfolio(id, readPortfolioFields(in));
+    }
+
+    /**
+     * Writes a reference to the security, with its definition if this stream has not seen it yet.
+     * Securities without an ISIN cannot be told apart, so they are written in full every time.
+     */
+    public void writeSecurity(Security security, BinaryWriter out) {
+        if (security == null) {
+            out.writeVarLong(REF_NULL);
+            return;
+        }
+        if (security.getIsin() == null) {
+            out.writeVarLong(REF_INLINE);
+            writeSecurityFields(security, out);
+            return;
+        }
+        int id = dictionary.securityId(security);
+        if (id >= 0) {
+            out.writeVarLong(2 + 2L * id);
+            return;
+        }
+        id = dictionary.defineSecurity(security);
+        out.writeVarLong(3 + 2L * id);
+        writeSecurityFields(security, out);
+    }
+
+    public Security readSecurity(BinaryReader in) {
+        long tag = in.readVarLong();
+        if (tag == REF_NULL) {
+            return null;
+        }
+        if (tag == REF_INLINE) {
+            return dictionary.resolveSecurity(readSecurityFields(in));
+        }
+        int id = Math.toIntExact((tag - 2) >>> 1);
+        return (tag & 1) == 0 ? dictionary.security(id) : dictionary.decodedSecurity(id, readSecurityFields(in));
+    }
+
+    public static void writeDateTime(LocalDateTime datetime, BinaryWriter out) {
+        out.writeSignedVarLong(datetime.toEpochSecond(ZoneOffset.UTC));
+        out.writeVarLong(datetime.getNano());
+    }
+
+    public static LocalDateTime readDateTime(BinaryReader in) {
+        long epochSecond = in.readSignedVarLong();
+        int nano = in.readVarInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static int kindOf(BaseAction action) {
+        return switch (action) {
+            case Buy buy -> BUY;
+            case Sale sale -> SALE;
+            case Deposit deposit -> DEPOSIT;
+            case Withdrawal withdrawal -> WITHDRAWAL;
+            case CapitalRaise capitalRaise -> CAPITAL_RAISE;
+            case StockRightUsage usage -> STOCK_RIGHT_USAGE;
+            default -> throw new IllegalArgumentException("Unsupported action type: " + action.getClass().getName());
+        };
+    }
+
+    private static void writePortfolioFields(Portfolio portfolio, BinaryWriter out) {
+        out.writeString(portfolio.getUuid());
+        out.writeString(portfolio.getName());
+        User manager = portfolio.getPortfolioManager();
+        out.writeByte(manager == null ? 0 : 1);
+        if (manager != null) {
+            out.writeString(manager.getUuid());
+            out.writeString(manager.getFirstName());
+            out.writeString(manager.getLastName());
+        }
+        out.writeEnum(portfolio.getStatus());
+    }
+
+    private static Portfolio readPortfolioFields(BinaryReader in) {
+        String uuid = in.readString();
+        String name = in.readString();
+        User manager = null;
+        if (in.readByte() != 0) {
+            manager = User.builder()
+                    .uuid(in.readString())
+                    .firstName(in.readString())
+                    .lastName(in.readString())
+                    .build();
+        }
+        Portfolio portfolio = new Portfolio(uuid, manager, name);
+        portfolio.setStatus(in.readEnum(PortfolioStatus.values()));
+        return portfolio;
+    }
+
+    private static void writeSecurityFields(Security security, BinaryWriter out) {
+        out.writeString(security.getIsin());
+        out.writeString(security.getSymbol());
+        out.writeString(security.getName());
+        out.writeEnum(security.getSecurityType());
+    }
+
+    private static Security readSecurityFields(BinaryReader in) {
+        return Security.builder()
+                .isin(in.readString())
+                .symbol(in.readString())
+                .name(in.readString())
+                .securityType(in.readEnum(SecurityType.values()))
+                .build();
+    }
+}
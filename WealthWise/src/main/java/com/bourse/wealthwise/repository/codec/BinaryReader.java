@@ -0,0 +1,129 @@
+package com.bourse.wealthwise.repository.codec;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Reads what {@link BinaryWriter} writes, straight from a {@link ByteBuffer} such as a slice of a
+ * memory-mapped file, advancing its position.  Malformed input raises
+ * {@link IllegalArgumentException}.
+ */
+public final class BinaryReader {
+
+    private final ByteBuffer buffer;
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static BinaryReader of(byte[] bytes) {
+        return new BinaryReader(ByteBuffer.wrap(bytes));
+    }
+
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public byte readByte() {
+        return buffer.get();
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public double readDouble() {
+        return buffer.getDouble();
+    }
+
+    public Double readNullableDouble() {
+        return buffer.get() == 0 ? null : buffer.getDouble();
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than 10 bytes at " + buffer.position());
+    }
+
+    /**
+     * A {@link #readVarLong()} that must fit a non-negative int, e.g. a length or an id.
+     */
+    public int readVarInt() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Varint out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    public long readSignedVarLong() {
+        long zigzag = readVarLong();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public <E extends Enum<E>> E readEnum(E[] values) {
+        int tag = readVarInt();
+        if (tag > values.length) {
+            throw new IllegalArgumentException("Unknown " + values.getClass().getComponentType().getSimpleName() + " ordinal: " + (tag - 1));
+        }
+        return tag == 0 ? null : values[tag - 1];
+    }
+
+    public String readString() {
+        long tag = readVarLong();
+        if (tag == BinaryWriter.STRING_NULL) {
+            return null;
+        }
+        if (tag == BinaryWriter.STRING_UUID) {
+            return new UUID(buffer.getLong(), buffer.getLong()).toString();
+        }
+        int length = Math.toIntExact(tag - BinaryWriter.STRING_UTF8);
+        return decodeUtf8(length);
+    }
+
+    public BigInteger readNumber() {
+        long tag = readVarLong();
+        if ((tag & 1) == 0) {
+            long zigzag = tag >>> 1;
+            return BigInteger.valueOf((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+        long length = (tag >>> 1) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.toIntExact(length)];
+        buffer.get(bytes);
+        return new BigInteger(bytes);
+    }
+
+    private String decodeUtf8(int length) {
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String of " + length + " bytes overruns the buffer");
+        }
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+            return new String(buffer.array(), at, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,187 @@
+package com.bourse.wealthwise.repository.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitive encodings of {@link ActionCodec}.  Fixed-width values are
+ * big-endian; variable-length integers are unsigned LEB128 (7 bits per byte, high bit set on every
+ * byte but the last), and signed ones are zigzag-mapped first so small negatives stay short.  A
+ * writer can be {@link #reset()} and reused for the next record.
+ */
+public final class BinaryWriter {
+
+    static final int STRING_NULL = 0;
+    static final int STRING_UUID = 1;
+    // Other string tags are the UTF-8 length plus this
+    static final int STRING_UTF8 = 2;
+
+    private byte[] buffer;
+    private int size;
+
+    public BinaryWriter() {
+        this(128);
+    }
+
+    public BinaryWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The backing array; bytes {@code [0, size())} are the written ones.  Valid until the next write.
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeInt(int value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    public void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    public void writeNullableDouble(Double value) {
+        writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            writeDouble(value);
+        }
+    }
+
+    /**
+     * Writes all 64 bits of {@code value} as unsigned, in 1 to 10 bytes.
+     */
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Null, or the ordinal of {@code value}, in one byte for enums of up to 127 constants.
+     */
+    public void writeEnum(Enum<?> value) {
+        writeVarLong(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    /**
+     * A nullable string.  Canonical lower-case UUIDs, the usual identifiers, take 16 bytes instead
+     * of 36; anything else is written as length-prefixed UTF-8.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarLong(STRING_NULL);
+            return;
+        }
+        if (isCanonicalUuid(value)) {
+            writeVarLong(STRING_UUID);
+            writeLong(hexToLong(value, 0, 8, 9, 13, 14, 18));
+            writeLong(hexToLong(value, 19, 23, 24, 36, 36, 36));
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(STRING_UTF8 + (long) bytes.length);
+        writeRaw(bytes);
+    }
+
+    /**
+     * A nullable integer.  Values of up to 62 bits are one zigzag varint, shifted left to leave a
+     * zero flag bit; anything larger escapes to {@code ((length + 1) << 1) | 1} followed by the
+     * two's-complement bytes of {@link BigInteger#toByteArray()}.  Null is the escape with length -1.
+     */
+    public void writeNumber(BigInteger value) {
+        if (value == null) {
+            writeVarLong(1);
+        } else if (value.bitLength() <= 62) {
+            long v = value.longValue();
+            writeVarLong(((v << 1) ^ (v >> 63)) << 1);
+        } else {
+            byte[] bytes = value.toByteArray();
+            writeVarLong(((bytes.length + 1L) << 1) | 1);
+            writeRaw(bytes);
+        }
+    }
+
+    private void writeRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static boolean isCanonicalUuid(String value) {
+        if (value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Concatenates the hex digits of up to three ranges of the UUID string
+    private static long hexToLong(String value, int from1, int to1, int from2, int to2, int from3, int to3) {
+        long result = 0;
+        result = appendHex(result, value, from1, to1);
+        result = appendHex(result, value, from2, to2);
+        return appendHex(result, value, from3, to3);
+    }
+
+    private static long appendHex(long result, String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            result = (result << 4) | Character.digit(value.charAt(i), 16);
+        }
+        return result;
+    }
+}
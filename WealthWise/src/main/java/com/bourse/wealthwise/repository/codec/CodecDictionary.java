@@ -0,0 +1,149 @@
+package com.bourse.wealthwise.repository.codec;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Portfolios and securities seen so far in one encoded stream (a journal segment, a snapshot, a
+ * connection), numbered in order of first appearance.  The first reference to one carries its
+ * definition; later ones carry only its id.  Encoder and decoder each keep a dictionary and grow
+ * them identically, so after decoding a stream the dictionary can go on encoding appends to it.
+ * <p>
+ * Portfolios are keyed by uuid and securities by ISIN.  Decoded definitions go through the
+ * resolvers, which may swap them for shared instances, e.g. the ones already in a repository.
+ * Not thread-safe: a dictionary belongs to one stream.
+ */
+public final class CodecDictionary {
+
+    /** Dictionary sizes at some point, to undo the definitions of a record that was not written. */
+    public record Mark(int portfolios, int securities) {
+    }
+
+    private final UnaryOperator<Portfolio> portfolioResolver;
+    private final UnaryOperator<Security> securityResolver;
+
+    private final List<Portfolio> portfolios = new ArrayList<>();
+    private final Map<String, Integer> portfolioIds = new HashMap<>();
+    private final List<Security> securities = new ArrayList<>();
+    private final Map<String, Integer> securityIds = new HashMap<>();
+
+    public CodecDictionary() {
+        this(UnaryOperator.identity(), UnaryOperator.identity());
+    }
+
+    public CodecDictionary(UnaryOperator<Portfolio> portfolioResolver, UnaryOperator<Security> securityResolver) {
+        this.portfolioResolver = portfolioResolver;
+        this.securityResolver = securityResolver;
+    }
+
+    public Mark mark() {
+        return new Mark(portfolios.size(), securities.size());
+    }
+
+    public void rollback(Mark mark) {
+        while (portfolios.size() > mark.portfolios()) {
+            portfolioIds.remove(portfolios.removeLast().getUuid());
+        }
+        while (securities.size() > mark.securities()) {
+            securityIds.remove(securities.removeLast().getIsin());
+        }
+    }
+
+    /** Id of the portfolio, or -1 if it has not been defined in this stream. */
+    int portfolioId(Portfolio portfolio) {
+        Integer id = portfolioIds.get(portfolio.getUuid());
+        return id == null ? -1 : id;
+    }
+
+    /** Id of the security, or -1 if it has not been defined in this stream. */
+    int securityId(Security security) {
+        Integer id = securityIds.get(security.getIsin());
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Id of the portfolio, defining it first if needed, for callers that number portfolios and
+     * securities themselves, e.g. as column values.
+     */
+    public int internPortfolio(Portfolio portfolio) {
+        int id = portfolioId(portfolio);
+        return id >= 0 ? id : definePortfolio(portfolio);
+    }
+
+    public int internSecurity(Security security) {
+        int id = securityId(security);
+        return id >= 0 ? id : defineSecurity(security);
+    }
+
+    /** Adds a portfolio being encoded and returns its id. */
+    int definePortfolio(Portfolio portfolio) {
+        int id = portfolios.size();
+        portfolios.add(portfolio);
+        portfolioIds.put(portfolio.getUuid(), id);
+        return id;
+    }
+
+    int defineSecurity(Security security) {
+        int id = securities.size();
+        securities.add(security);
+        securityIds.put(security.getIsin(), id);
+        return id;
+    }
+
+    /**
+     * Adds a decoded portfolio definition, which must carry the next id, and returns its resolved
+     * instance.  Decoding a definition again, as a store that decodes its records more than once
+     * does, returns the instance it defined the first time.
+     */
+    Portfolio decodedPortfolio(int id, Portfolio portfolio) {
+        if (id < portfolios.size() && portfolios.get(id).getUuid().equals(portfolio.getUuid())) {
+            return portfolios.get(id);
+        }
+        if (id != portfolios.size()) {
+            throw new IllegalArgumentException("Portfolio definition " + id + " out of order, expected " + portfolios.size());
+        }
+        Portfolio resolved = resolvePortfolio(portfolio);
+        definePortfolio(resolved);
+        return resolved;
+    }
+
+    Security decodedSecurity(int id, Security security) {
+        if (id < securities.size() && securities.get(id).getIsin().equals(security.getIsin())) {
+            return securities.get(id);
+        }
+        if (id != securities.size()) {
+            throw new IllegalArgumentException("Security definition " + id + " out of order, expected " + securities.size());
+        }
+        Security resolved = resolveSecurity(security);
+        defineSecurity(resolved);
+        return resolved;
+    }
+
+    public Portfolio portfolio(int id) {
+        if (id >= portfolios.size()) {
+            throw new IllegalArgumentException("Undefined portfolio id: " + id);
+        }
+        return portfolios.get(id);
+    }
+
+    public Security security(int id) {
+        if (id >= securities.size()) {
+            throw new IllegalArgumentException("Undefined security id: " + id);
+        }
+        return securities.get(id);
+    }
+
+    Portfolio resolvePortfolio(Portfolio portfolio) {
+        return portfolioResolver.apply(portfolio);
+    }
+
+    Security resolveSecurity(Security security) {
+        return securityResolver.apply(security);
+    }
+}
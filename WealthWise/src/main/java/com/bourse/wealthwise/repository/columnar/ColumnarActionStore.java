@@ -0,0 +1,408 @@
+package com.bourse.wealthwise.repository.columnar;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.repository.ActionKey;
+import com.bourse.wealthwise.repository.ActionStore;
+import com.bourse.wealthwise.repository.codec.ActionCodec;
+import com.bourse.wealthwise.repository.codec.BinaryReader;
+import com.bourse.wealthwise.repository.codec.BinaryWriter;
+import com.bourse.wealthwise.repository.codec.CodecDictionary;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link ActionStore} that keeps actions off the heap, as {@link PortfolioColumns} rows of primitive
+ * columns (time, security id, volume delta, cash delta, action type) next to the action encoded by
+ * {@link ActionCodec}.  Balances and holdings are sums over the columns, which {@code BalanceLedger}
+ * and {@code HoldingsProjection} answer from when this store is active; {@link BaseAction}s are
+ * decoded only when a caller asks for them, so every read returns new instances, sharing the
+ * portfolios and securities of the first action that brought them in.
+ * <p>
+ * Security ids come from the store's {@link CodecDictionary}.  Securities without an ISIN and
+ * values that do not fit in a long are marked in their column and read back from the encoded
+ * action.  Times are epoch nanoseconds, so actions must fall between the years 1678 and 2261.
+ * <p>
+ * Writes are serialized by one lock, reads share it.
+ */
+public final class ColumnarActionStore implements ActionStore {
+
+    /** Security column of an action without security changes. */
+    static final int NO_SECURITY = -1;
+    /** Security column of a security the dictionary cannot intern; scans read it from the action. */
+    static final int UNINTERNED_SECURITY = -2;
+    /** Volume or cash column of a value that does not fit in a long; scans read it from the action. */
+    static final long WIDE = Long.MIN_VALUE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final CodecDictionary dictionary = new CodecDictionary();
+    private final ActionCodec codec = new ActionCodec(dictionary);
+    private final BinaryWriter encoded = new BinaryWriter(256);
+    private final Map<String, PortfolioColumns> columnsByPortfolio = new HashMap<>();
+    private final Map<String, Locator> locators = new HashMap<>();
+    private int[] securityIds = new int[2];
+    private long[] volumes = new long[2];
+
+    /** Where an action's rows are: its portfolio and its time, the start of a binary search. */
+    private record Locator(String portfolioId, long time) {
+    }
+
+    @Override
+    public BaseAction save(BaseAction action) {
+        long time = epochNanos(action.getDatetime());
+        lock.writeLock().lock();
+        try {
+            dictionary.internPortfolio(action.getPortfolio());
+            int count = securityColumns(action);
+            encoded.reset();
+            codec.encode(action, encoded);
+
+            BaseAction previous = remove(action.getUuid());
+            String portfolioId = action.getPortfolio().getUuid();
+            PortfolioColumns columns = columnsByPortfolio.computeIfAbsent(portfolioId, k -> new PortfolioColumns());
+            byte type = (byte) (action.getActionType() == null ? -1 : action.getActionType().ordinal());
+            columns.insert(position(columns, time, action.getUuid()), time, type, narrow(cashDelta(action)),
+                    securityIds, volumes, count, encoded);
+            locators.put(action.getUuid(), new Locator(portfolioId, time));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BaseAction delete(String uuid) {
+        lock.writeLock().lock();
+        try {
+            return remove(uuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<BaseAction> findById(String uuid) {
+        lock.readLock().lock();
+        try {
+            Locator locator = locators.get(uuid);
+            if (locator == null) {
+                return Optional.empty();
+            }
+            PortfolioColumns columns = columnsByPortfolio.get(locator.portfolioId());
+            return Optional.of(decode(columns, position(columns, locator.time(), uuid)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return locators.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<BaseAction> slice(String portfolioId, ActionKey from, boolean fromInclusive, ActionKey to, boolean toInclusive,
+                                  boolean descending, int limit) {
+        lock.readLock().lock();
+        try {
+            PortfolioColumns columns = columnsByPortfolio.get(portfolioId);
+            if (columns == null) {
+                return List.of();
+            }
+            int start = from == null ? 0 : fromInclusive ? position(columns, from) : positionAfter(columns, from);
+            int end = to == null ? columns.size() : toInclusive ? positionAfter(columns, to) : position(columns, to);
+            List<BaseAction> actions = new ArrayList<>();
+            if (descending) {
+                for (int row = end; row > start && actions.size() < limit; ) {
+                    row = columns.actionStart(row - 1);
+                    actions.add(decode(columns, row));
+                }
+            } else {
+                for (int row = start; row < end && actions.size() < limit; row = columns.actionEnd(row)) {
+                    actions.add(decode(columns, row));
+                }
+            }
+            return Collections.unmodifiableList(actions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every list is decoded under the read lock, so it holds exactly the writes whose callback has
+     * already run; writers wait for one portfolio at a time.
+     */
+    @Override
+    public void forEachTimeline(BiConsumer<String, List<BaseAction>> consumer) {
+        List<String> portfolioIds;
+        lock.readLock().lock();
+        try {
+            portfolioIds = List.copyOf(columnsByPortfolio.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (String portfolioId : portfolioIds) {
+            consumer.accept(portfolioId, slice(portfolioId, null, false, null, false));
+        }
+    }
+
+    /**
+     * Balance produced by the portfolio's actions strictly before {@code before}: the sum of the
+     * cash column up to that time, in a long until it overflows.
+     */
+    public BigInteger balanceBefore(String portfolioId, LocalDateTime before) {
+        lock.readLock().lock();
+        try {
+            PortfolioColumns columns = columnsByPortfolio.get(portfolioId);
+            if (columns == null) {
+                return BigInteger.ZERO;
+            }
+            int end = columns.lowerBound(saturatedNanos(before));
+            long sum = 0;
+            BigInteger carried = BigInteger.ZERO;
+            for (int row = 0; row < end; row++) {
+                long cash = columns.cash(row);
+                if (cash == WIDE) {
+                    carried = carried.add(cashDelta(decode(columns, row)));
+                    continue;
+                }
+                long total = sum + cash;
+                if (((sum ^ total) & (cash ^ total)) < 0) {
+                    carried = carried.add(BigInteger.valueOf(sum));
+                    total = cash;
+                }
+                sum = total;
+            }
+            return carried.add(BigInteger.valueOf(sum));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Volume of every security the portfolio touched through actions strictly before
+     * {@code before}, in the order the securities first appeared, zero volumes included; the same
+     * result as {@code HoldingsProjection#holdingsBefore}, from sums over the security and volume
+     * columns into arrays indexed by security id.
+     */
+    public Map<Security, BigInteger> holdingsBefore(String portfolioId, LocalDateTime before) {
+        lock.readLock().lock();
+        try {
+            PortfolioColumns columns = columnsByPortfolio.get(portfolioId);
+            if (columns == null) {
+                return new LinkedHashMap<>();
+            }
+            int end = columns.lowerBound(saturatedNanos(before));
+            int securityCount = dictionary.mark().securities();
+            long[] sums = new long[securityCount];
+            BigInteger[] carried = null;
+            boolean[] seen = new boolean[securityCount];
+            // Security ids in order of appearance; uninterned securities are -1 - their index in others
+            int[] order = new int[16];
+            int distinct = 0;
+            Map<Security, Integer> otherIndex = null;
+            List<Security> others = null;
+            List<BigInteger> otherSums = null;
+
+            for (int row = 0; row < end; row++) {
+                int security = columns.security(row);
+                if (security == NO_SECURITY) {
+                    continue;
+                }
+                long volume = columns.volume(row);
+                if (security >= 0 && volume != WIDE) {
+                    if (!seen[security]) {
+                        seen[security] = true;
+                        order = grow(order, distinct);
+                        order[distinct++] = security;
+                    }
+                    long sum = sums[security];
+                    long total = sum + volume;
+                    if (((sum ^ total) & (volume ^ total)) < 0) {
+                        carried = carried != null ? carried : new BigInteger[securityCount];
+                        carried[security] = add(carried[security], BigInteger.valueOf(sum));
+                        total = volume;
+                    }
+                    sums[security] = total;
+                    continue;
+                }
+                int first = columns.actionStart(row);
+                SecurityChange change = decode(columns, first).getSecurityChanges().get(row - first);
+                if (security >= 0) {
+                    if (!seen[security]) {
+                        seen[security] = true;
+                        order = grow(order, distinct);
+                        order[distinct++] = security;
+                    }
+                    carried = carried != null ? carried : new BigInteger[securityCount];
+                    carried[security] = add(carried[security], change.getVolumeChange());
+                    continue;
+                }
+                if (otherIndex == null) {
+                    otherIndex = new IdentityHashMap<>();
+                    others = new ArrayList<>();
+                    otherSums = new ArrayList<>();
+                }
+                Integer index = otherIndex.get(change.getSecurity());
+                if (index == null) {
+                    index = otherSums.size();
+                    otherIndex.put(change.getSecurity(), index);
+                    others.add(change.getSecurity());
+                    otherSums.add(BigInteger.ZERO);
+                    order = grow(order, distinct);
+                    order[distinct++] = -1 - index;
+                }
+                otherSums.set(index, otherSums.get(index).add(change.getVolumeChange()));
+            }
+
+            Map<Security, BigInteger> volumes = new LinkedHashMap<>();
+            for (int i = 0; i < distinct; i++) {
+                int id = order[i];
+                if (id >= 0) {
+                    BigInteger volume = BigInteger.valueOf(sums[id]);
+                    volumes.put(dictionary.security(id), carried == null ? volume : add(carried[id], volume));
+                } else {
+                    int index = -1 - id;
+                    volumes.put(others.get(index), otherSums.get(index));
+                }
+            }
+            return volumes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Bytes of direct memory held by the columns and encoded actions of every portfolio. */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PortfolioColumns columns : columnsByPortfolio.values()) {
+                bytes += columns.offHeapBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fills the security id and volume scratch columns of the action and returns its row count.
+     */
+    private int securityColumns(BaseAction action) {
+        List<SecurityChange> changes = action.getSecurityChanges();
+        int count = Math.max(1, changes.size());
+        if (securityIds.length < count) {
+            securityIds = new int[count];
+            volumes = new long[count];
+        }
+        securityIds[0] = NO_SECURITY;
+        volumes[0] = 0L;
+        for (int k = 0; k < changes.size(); k++) {
+            Security security = changes.get(k).getSecurity();
+            securityIds[k] = security == null || security.getIsin() == null
+                    ? UNINTERNED_SECURITY
+                    : dictionary.internSecurity(security);
+            volumes[k] = narrow(changes.get(k).getVolumeChange());
+        }
+        return count;
+    }
+
+    private BaseAction remove(String uuid) {
+        Locator locator = locators.remove(uuid);
+        if (locator == null) {
+            return null;
+        }
+        PortfolioColumns columns = columnsByPortfolio.get(locator.portfolioId());
+        int first = position(columns, locator.time(), uuid);
+        BaseAction removed = decode(columns, first);
+        columns.remove(first);
+        return removed;
+    }
+
+    /** First row of the first action at or after the key. */
+    private int position(PortfolioColumns columns, ActionKey key) {
+        return position(columns, saturatedNanos(key.datetime()), key.uuid());
+    }
+
+    /** First row of the first action strictly after the key. */
+    private int positionAfter(PortfolioColumns columns, ActionKey key) {
+        long time = saturatedNanos(key.datetime());
+        int row = position(columns, time, key.uuid());
+        if (row < columns.size() && columns.time(row) == time && uuidAt(columns, row).equals(key.uuid())) {
+            row = columns.actionEnd(row);
+        }
+        return row;
+    }
+
+    private int position(PortfolioColumns columns, long time, String uuid) {
+        int row = columns.lowerBound(time);
+        // Actions sharing the instant are ordered by uuid, which only the encoded action holds
+        while (row < columns.size() && columns.time(row) == time && uuidAt(columns, row).compareTo(uuid) < 0) {
+            row = columns.actionEnd(row);
+        }
+        return row;
+    }
+
+    private String uuidAt(PortfolioColumns columns, int first) {
+        BinaryReader in = new BinaryReader(columns.blob(first));
+        in.readByte(); // version
+        in.readByte(); // kind
+        return in.readString();
+    }
+
+    private BaseAction decode(PortfolioColumns columns, int first) {
+        return codec.decode(new BinaryReader(columns.blob(first)));
+    }
+
+    private static BigInteger cashDelta(BaseAction action) {
+        BigInteger delta = BigInteger.ZERO;
+        for (BalanceChange change : action.getBalanceChanges()) {
+            delta = delta.add(change.getChange_amount());
+        }
+        return delta;
+    }
+
+    private static long narrow(BigInteger value) {
+        return value.bitLength() < Long.SIZE && value.longValue() != WIDE ? value.longValue() : WIDE;
+    }
+
+    private static BigInteger add(BigInteger carried, BigInteger value) {
+        return carried == null ? value : carried.add(value);
+    }
+
+    private static int[] grow(int[] order, int size) {
+        return size < order.length ? order : Arrays.copyOf(order, order.length * 2);
+    }
+
+    static long epochNanos(LocalDateTime datetime) {
+        try {
+            return Math.addExact(Math.multiplyExact(datetime.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L), datetime.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Datetime outside the range of the columnar store: " + datetime, e);
+        }
+    }
+
+    /** Epoch nanoseconds of a query bound, clamped to the representable range. */
+    private static long saturatedNanos(LocalDateTime datetime) {
+        try {
+            return epochNanos(datetime);
+        } catch (IllegalArgumentException e) {
+            return datetime.getYear() < 1970 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
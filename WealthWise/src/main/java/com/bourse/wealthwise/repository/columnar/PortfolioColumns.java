@@ -0,0 +1,211 @@
+package com.bourse.wealthwise.repository.columnar;
+
+import com.bourse.wealthwise.repository.codec.BinaryWriter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One portfolio's rows in direct (off-heap) memory, in {@code ActionKey} order.  An action takes one
+ * row per security change, or a single row if it has none; only its first row carries the cash
+ * delta.  Columns are stored one after the other, each {@code capacity} entries long, so a scan
+ * reads one column sequentially:
+ * <pre>
+ * time (long) | volume (long) | cash (long) | security (int) | blob offset (int) | blob length (int) | type (byte) | flags (byte)
+ * </pre>
+ * Every row of an action points at the action's encoded bytes in a second direct buffer, which is
+ * only appended to; deleted actions leave garbage behind that is dropped whenever it has to grow.
+ * Back-dated inserts and deletes shift the later rows, as {@code BalanceLedger} does on the heap.
+ * Not thread-safe: {@link ColumnarActionStore} guards it.
+ */
+final class PortfolioColumns {
+
+    /** Flag of the first row of an action. */
+    static final byte FIRST = 1;
+
+    private static final int TIME = 0;
+    private static final int VOLUME = 1;
+    private static final int CASH = 2;
+    private static final int SECURITY = 3;
+    private static final int BLOB_OFFSET = 4;
+    private static final int BLOB_LENGTH = 5;
+    private static final int TYPE = 6;
+    private static final int FLAGS = 7;
+
+    private static final int[] WIDTH = {8, 8, 8, 4, 4, 4, 1, 1};
+    // Bytes per row of the columns before each one
+    private static final int[] START = {0, 8, 16, 24, 28, 32, 36, 37};
+    private static final int ROW_BYTES = 38;
+
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_BLOB_BYTES = 1024;
+
+    private ByteBuffer rows = ByteBuffer.allocateDirect(INITIAL_ROWS * ROW_BYTES);
+    private int capacity = INITIAL_ROWS;
+    private int size;
+
+    private ByteBuffer blobs = ByteBuffer.allocateDirect(INITIAL_BLOB_BYTES);
+    private int blobEnd;
+    private int garbage;
+
+    int size() {
+        return size;
+    }
+
+    long time(int row) {
+        return rows.getLong(at(TIME, row));
+    }
+
+    long volume(int row) {
+        return rows.getLong(at(VOLUME, row));
+    }
+
+    long cash(int row) {
+        return rows.getLong(at(CASH, row));
+    }
+
+    int security(int row) {
+        return rows.getInt(at(SECURITY, row));
+    }
+
+    boolean isFirst(int row) {
+        return (rows.get(at(FLAGS, row)) & FIRST) != 0;
+    }
+
+    /** Encoded action of the row, as an independent view of the blob buffer. */
+    ByteBuffer blob(int row) {
+        return blobs.slice(rows.getInt(at(BLOB_OFFSET, row)), rows.getInt(at(BLOB_LENGTH, row)));
+    }
+
+    /** Bytes of direct memory held by this portfolio. */
+    long offHeapBytes() {
+        return (long) rows.capacity() + blobs.capacity();
+    }
+
+    /** First row whose time is at least {@code time}; always the first row of its action. */
+    int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (time(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Row after the last row of the action starting at {@code first}. */
+    int actionEnd(int first) {
+        int end = first + 1;
+        while (end < size && !isFirst(end)) {
+            end++;
+        }
+        return end;
+    }
+
+    /** First row of the action that {@code row} belongs to. */
+    int actionStart(int row) {
+        int start = row;
+        while (!isFirst(start)) {
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * Inserts an action's {@code count} rows at {@code at}, which must be an action boundary.
+     */
+    void insert(int at, long time, byte type, long cash, int[] securities, long[] volumes, int count, BinaryWriter encoded) {
+        ensureCapacity(size + count);
+        int blobOffset = appendBlob(encoded);
+        moveRows(at, at + count, size - at);
+        for (int k = 0; k < count; k++) {
+            int row = at + k;
+            rows.putLong(at(TIME, row), time);
+            rows.putLong(at(VOLUME, row), volumes[k]);
+            rows.putLong(at(CASH, row), k == 0 ? cash : 0L);
+            rows.putInt(at(SECURITY, row), securities[k]);
+            rows.putInt(at(BLOB_OFFSET, row), blobOffset);
+            rows.putInt(at(BLOB_LENGTH, row), encoded.size());
+            rows.put(at(TYPE, row), type);
+            rows.put(at(FLAGS, row), k == 0 ? FIRST : 0);
+        }
+        size += count;
+    }
+
+    /** Removes the rows of the action starting at {@code first}. */
+    void remove(int first) {
+        int end = actionEnd(first);
+        garbage += rows.getInt(at(BLOB_LENGTH, first));
+        moveRows(end, first, size - end);
+        size -= end - first;
+    }
+
+    private int at(int column, int row) {
+        return capacity * START[column] + row * WIDTH[column];
+    }
+
+    private void moveRows(int from, int to, int count) {
+        if (count == 0 || from == to) {
+            return;
+        }
+        byte[] moved = new byte[count * Long.BYTES];
+        for (int column = 0; column < WIDTH.length; column++) {
+            int bytes = count * WIDTH[column];
+            rows.get(at(column, from), moved, 0, bytes);
+            rows.put(at(column, to), moved, 0, bytes);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= capacity) {
+            return;
+        }
+        int grown = Math.max(needed, capacity + (capacity >> 1));
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.multiplyExact(grown, ROW_BYTES));
+        for (int column = 0; column < WIDTH.length; column++) {
+            bigger.put(grown * START[column], rows, at(column, 0), size * WIDTH[column]);
+        }
+        rows = bigger;
+        capacity = grown;
+    }
+
+    private int appendBlob(BinaryWriter encoded) {
+        int length = encoded.size();
+        if (length > blobs.capacity() - blobEnd) {
+            reallocateBlobs(length);
+        }
+        int offset = blobEnd;
+        blobs.put(offset, encoded.array(), 0, length);
+        blobEnd += length;
+        return offset;
+    }
+
+    /**
+     * Copies the live blobs into a new buffer with room for {@code length} more bytes, growing it
+     * unless at least half of the old one was garbage.
+     */
+    private void reallocateBlobs(int length) {
+        int needed = Math.addExact(blobEnd - garbage, length);
+        int newCapacity = Math.max(needed, garbage >= blobEnd / 2
+                ? blobs.capacity()
+                : blobs.capacity() + (blobs.capacity() >> 1));
+        ByteBuffer compacted = ByteBuffer.allocateDirect(newCapacity);
+        int end = 0;
+        for (int first = 0; first < size; ) {
+            int next = actionEnd(first);
+            int blobLength = rows.getInt(at(BLOB_LENGTH, first));
+            compacted.put(end, blobs, rows.getInt(at(BLOB_OFFSET, first)), blobLength);
+            for (int row = first; row < next; row++) {
+                rows.putInt(at(BLOB_OFFSET, row), end);
+            }
+            end += blobLength;
+            first = next;
+        }
+        blobs = compacted;
+        blobEnd = end;
+        garbage = 0;
+    }
+}
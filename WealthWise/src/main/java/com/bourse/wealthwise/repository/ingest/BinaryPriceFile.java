@@ -0,0 +1,99 @@
+package com.bourse.wealthwise.repository.ingest;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compact binary end-of-day price file: {@code [int magic][int version][int isins]}, each ISIN as
+ * {@code [short length][UTF-8 bytes]}, then one block per day of
+ * {@code [int epochDay][int count]} followed by {@code count x [int isin index][double price]}, up
+ * to the end of the file.  Each ISIN is spelled once per file and a price takes 12 bytes.
+ */
+public final class BinaryPriceFile {
+
+    static final int MAGIC = 0x57574550;
+    private static final int VERSION = 1;
+
+    private BinaryPriceFile() {
+    }
+
+    /** Writes the prices of each day, days in ascending order. */
+    public static void write(Path file, Map<LocalDate, Map<String, Double>> pricesByDay) {
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+        pricesByDay.values().forEach(prices -> prices.keySet().forEach(isin -> indexes.putIfAbsent(isin, indexes.size())));
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(indexes.size());
+            for (String isin : indexes.keySet()) {
+                byte[] bytes = isin.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            for (Map.Entry<LocalDate, Map<String, Double>> day : new TreeMap<>(pricesByDay).entrySet()) {
+                out.writeInt(Math.toIntExact(day.getKey().toEpochDay()));
+                out.writeInt(day.getValue().size());
+                for (Map.Entry<String, Double> price : day.getValue().entrySet()) {
+                    out.writeInt(indexes.get(price.getKey()));
+                    out.writeDouble(price.getValue());
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write price file " + file, e);
+        }
+    }
+
+    static boolean matches(ByteBuffer buffer) {
+        return buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    static void read(ByteBuffer buffer, PriceBatch batch, String source) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a binary price file: " + source);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / Short.BYTES) {
+                throw new IllegalArgumentException("Price file " + source + " is truncated or corrupt");
+            }
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getShort() & 0xFFFF;
+                ids[i] = batch.isins().intern(buffer, buffer.position(), buffer.position() + length);
+                buffer.position(buffer.position() + length);
+            }
+            while (buffer.hasRemaining()) {
+                int day = buffer.getInt();
+                int prices = buffer.getInt();
+                if (prices < 0 || prices > buffer.remaining() / 12) {
+                    throw new IllegalArgumentException("Price file " + source + " is truncated or corrupt");
+                }
+                for (int i = 0; i < prices; i++) {
+                    int index = buffer.getInt();
+                    double price = buffer.getDouble();
+                    if (index < 0 || index >= count || !Double.isFinite(price)) {
+                        throw new IllegalArgumentException("Price file " + source + " is truncated or corrupt");
+                    }
+                    batch.add(ids[index], day, price);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Price file " + source + " is truncated or corrupt", e);
+        }
+    }
+}
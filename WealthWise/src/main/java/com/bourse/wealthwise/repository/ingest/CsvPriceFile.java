@@ -0,0 +1,154 @@
+package com.bourse.wealthwise.repository.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Parses end-of-day prices as CSV lines of {@code isin,yyyy-MM-dd,price}, with an optional
+ * {@code isin,...} header and LF or CRLF line ends, straight from the bytes of a buffer.  Fields
+ * are located by scanning for the separators, ISINs are interned from their bytes and plain
+ * decimal prices are parsed without a String; only a price such as {@code 1e3} takes the slow path
+ * through {@link Double#parseDouble}.  A file usually holds one or a few dates, so the epoch day of
+ * the previous line's date is reused when the next line repeats it.
+ */
+final class CsvPriceFile {
+
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private CsvPriceFile() {
+    }
+
+    static void read(ByteBuffer buffer, PriceBatch batch, String source) {
+        int end = buffer.limit();
+        int at = buffer.position();
+        int line = 0;
+        int lastDate = -1;
+        int lastDay = 0;
+        while (at < end) {
+            line++;
+            int lineEnd = at;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > at && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == at || line == 1 && isHeader(buffer, at, lineEnd)) {
+                at = next;
+                continue;
+            }
+
+            int isinEnd = indexOf(buffer, ',', at, lineEnd);
+            int dateEnd = isinEnd < 0 ? -1 : indexOf(buffer, ',', isinEnd + 1, lineEnd);
+            if (isinEnd <= at || dateEnd - isinEnd != 11 || dateEnd + 1 == lineEnd) {
+                throw malformed(buffer, at, lineEnd, line, source);
+            }
+            int date = packedDate(buffer, isinEnd + 1);
+            if (date != lastDate) {
+                lastDay = epochDay(date, buffer, at, lineEnd, line, source);
+                lastDate = date;
+            }
+            double price = price(buffer, dateEnd + 1, lineEnd);
+            if (!Double.isFinite(price)) {
+                throw malformed(buffer, at, lineEnd, line, source);
+            }
+            batch.add(batch.isins().intern(buffer, at, isinEnd), lastDay, price);
+            at = next;
+        }
+    }
+
+    private static boolean isHeader(ByteBuffer buffer, int from, int to) {
+        return to - from >= 4
+                && (buffer.get(from) | 0x20) == 'i' && (buffer.get(from + 1) | 0x20) == 's'
+                && (buffer.get(from + 2) | 0x20) == 'i' && (buffer.get(from + 3) | 0x20) == 'n';
+    }
+
+    private static int indexOf(ByteBuffer buffer, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // yyyy-MM-dd as the int yyyyMMdd, or -1 if it is not digits and dashes
+    private static int packedDate(ByteBuffer buffer, int from) {
+        if (buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+            return -1;
+        }
+        int date = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 4 || i == 7) {
+                continue;
+            }
+            int digit = buffer.get(from + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            date = date * 10 + digit;
+        }
+        return date;
+    }
+
+    private static int epochDay(int date, ByteBuffer buffer, int from, int to, int line, String source) {
+        try {
+            if (date >= 0) {
+                return Math.toIntExact(LocalDate.of(date / 10000, date / 100 % 100, date % 100).toEpochDay());
+            }
+        } catch (DateTimeException e) {
+            // Reported below
+        }
+        throw malformed(buffer, from, to, line, source);
+    }
+
+    // Plain decimals of up to 15 digits are exact as long / 10^scale; anything else goes to the JDK
+    private static double price(ByteBuffer buffer, int from, int to) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                scale += scale >= 0 ? 1 : 0;
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return parseSlowly(buffer, from, to);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        return scale > 0 ? mantissa / POW10[scale] : mantissa;
+    }
+
+    private static double parseSlowly(ByteBuffer buffer, int from, int to) {
+        byte[] text = new byte[to - from];
+        buffer.get(from, text);
+        try {
+            return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static IllegalArgumentException malformed(ByteBuffer buffer, int from, int to, int line, String source) {
+        byte[] text = new byte[Math.min(to - from, 200)];
+        buffer.get(from, text);
+        return new IllegalArgumentException("Malformed price at line " + line + " of " + source + ": "
+                + new String(text, StandardCharsets.UTF_8));
+    }
+}
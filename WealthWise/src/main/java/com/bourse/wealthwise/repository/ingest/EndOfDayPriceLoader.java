@@ -0,0 +1,59 @@
+package com.bourse.wealthwise.repository.ingest;
+
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Loads end-of-day price files into {@link SecurityPriceRepository}: CSV as {@link CsvPriceFile}
+ * reads it, or the binary format of {@link BinaryPriceFile}, told apart by the binary magic.  The
+ * file is mapped and parsed whole into primitive arrays before anything is published, so a
+ * malformed file loads nothing.  Prices are then added a day at a time in ascending order, each
+ * day published at once through {@link SecurityPriceRepository#addDay}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EndOfDayPriceLoader {
+
+    private final SecurityPriceRepository securityPriceRepository;
+
+    public record LoadResult(int days, int prices, long millis) {
+    }
+
+    public LoadResult load(Path file) {
+        long started = System.nanoTime();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Price file " + file + " is too large to map");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map price file " + file, e);
+        }
+
+        PriceBatch batch = new PriceBatch();
+        if (BinaryPriceFile.matches(buffer)) {
+            BinaryPriceFile.read(buffer, batch, file.toString());
+        } else {
+            CsvPriceFile.read(buffer, batch, file.toString());
+        }
+        int days = batch.forEachDay((epochDay, isins, prices, count) ->
+                securityPriceRepository.addDay(LocalDate.ofEpochDay(epochDay), isins, prices, count));
+
+        LoadResult result = new LoadResult(days, batch.size(), (System.nanoTime() - started) / 1_000_000);
+        log.info("Loaded {} prices of {} securities over {} days from {} in {} ms",
+                result.prices(), batch.isins().size(), result.days(), file, result.millis());
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package com.bourse.wealthwise.repository.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns ISINs read as bytes to dense ids, hashing the bytes in place so a line that repeats a
+ * known ISIN allocates nothing.
+ */
+final class IsinTable {
+
+    private int[] slots = new int[1 << 12];
+    private byte[][] bytes = new byte[1 << 11][];
+    private String[] isins = new String[1 << 11];
+    private int size;
+
+    IsinTable() {
+        Arrays.fill(slots, -1);
+    }
+
+    /** Id of the ISIN in {@code buffer[from..to)}, interning it if it is new. */
+    int intern(ByteBuffer buffer, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id < 0) {
+                byte[] isin = new byte[to - from];
+                buffer.get(from, isin);
+                return add(slot, isin);
+            }
+            if (equals(bytes[id], buffer, from, to)) {
+                return id;
+            }
+        }
+    }
+
+    /** Id of the ISIN, interning it if it is new. */
+    int intern(String isin) {
+        byte[] encoded = isin.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(encoded), 0, encoded.length);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** ISINs by id; the array may be longer than {@link #size()}. */
+    String[] isins() {
+        return isins;
+    }
+
+    private int add(int slot, byte[] isin) {
+        if (size == isins.length) {
+            bytes = Arrays.copyOf(bytes, size * 2);
+            isins = Arrays.copyOf(isins, size * 2);
+        }
+        bytes[size] = isin;
+        isins[size] = new String(isin, StandardCharsets.UTF_8);
+        slots[slot] = size;
+        if (++size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, -1);
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(Arrays.hashCode(bytes[id])) & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static boolean equals(byte[] isin, ByteBuffer buffer, int from, int to) {
+        if (isin.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < isin.length; i++) {
+            if (isin[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,82 @@
+package com.bourse.wealthwise.repository.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Prices parsed from a file, as parallel primitive arrays of ISIN id, epoch day and price in file
+ * order.  {@link #forEachDay} hands them out grouped by day in ascending order, so every security's
+ * prices are appended to its history rather than inserted into it.
+ */
+final class PriceBatch {
+
+    private final IsinTable isins = new IsinTable();
+    private int[] isinIds = new int[1 << 12];
+    private int[] days = new int[1 << 12];
+    private double[] prices = new double[1 << 12];
+    private int size;
+
+    @FunctionalInterface
+    interface DayConsumer {
+        void accept(int epochDay, String[] isins, double[] prices, int count);
+    }
+
+    IsinTable isins() {
+        return isins;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int isinId, int epochDay, double price) {
+        if (size == days.length) {
+            isinIds = Arrays.copyOf(isinIds, size * 2);
+            days = Arrays.copyOf(days, size * 2);
+            prices = Arrays.copyOf(prices, size * 2);
+        }
+        isinIds[size] = isinId;
+        days[size] = epochDay;
+        prices[size++] = price;
+    }
+
+    /**
+     * Calls the consumer once per day, in ascending order, with that day's ISINs and prices in file
+     * order; a security priced twice on a day appears twice, the later price last.  The arrays are
+     * reused between calls.  Returns the number of days.
+     */
+    int forEachDay(DayConsumer consumer) {
+        int[] distinct = Arrays.stream(days, 0, size).distinct().sorted().toArray();
+        // Counting sort by day: stable, so file order is kept within a day
+        int[] starts = new int[distinct.length + 1];
+        int[] columns = new int[size];
+        for (int i = 0; i < size; i++) {
+            columns[i] = distinct.length == 1 ? 0 : Arrays.binarySearch(distinct, days[i]);
+            starts[columns[i] + 1]++;
+        }
+        for (int column = 0; column < distinct.length; column++) {
+            starts[column + 1] += starts[column];
+        }
+        int[] order = new int[size];
+        int[] next = Arrays.copyOf(starts, distinct.length);
+        for (int i = 0; i < size; i++) {
+            order[next[columns[i]]++] = i;
+        }
+
+        String[] names = isins.isins();
+        int widest = 0;
+        for (int column = 0; column < distinct.length; column++) {
+            widest = Math.max(widest, starts[column + 1] - starts[column]);
+        }
+        String[] dayIsins = new String[widest];
+        double[] dayPrices = new double[widest];
+        for (int column = 0; column < distinct.length; column++) {
+            int count = 0;
+            for (int at = starts[column]; at < starts[column + 1]; at++) {
+                dayIsins[count] = names[isinIds[order[at]]];
+                dayPrices[count++] = prices[order[at]];
+            }
+            consumer.accept(distinct[column], dayIsins, dayPrices, count);
+        }
+        return distinct.length;
+    }
+}
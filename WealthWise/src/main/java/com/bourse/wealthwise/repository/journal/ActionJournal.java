@@ -0,0 +1,338 @@
+package com.bourse.wealthwise.repository.journal;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.repository.ActionLog;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import com.bourse.wealthwise.repository.codec.ActionCodec;
+import com.bourse.wealthwise.repository.codec.BinaryReader;
+import com.bourse.wealthwise.repository.codec.BinaryWriter;
+import com.bourse.wealthwise.repository.codec.CodecDictionary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable, append-only log of {@link ActionRepository} writes, enabled with
+ * {@code wealthwise.journal.enabled}.  Every save and delete is appended, before the repository
+ * applies it, as a checksummed record to memory-mapped segment files; saved actions are encoded
+ * with {@link ActionCodec}, with one dictionary per segment so each segment decodes on its own.  A
+ * background flusher forces everything appended since its last run with one fsync (group commit);
+ * with {@code wealthwise.journal.sync-writes} a write also waits for that fsync before returning.
+ * <p>
+ * On startup, once every projection has subscribed to the repository, the journal is replayed into
+ * {@link ActionRepository}, rebuilding {@link PortfolioRepository} and {@link SecurityRepository}
+ * from the portfolios and securities recorded with the actions.  A torn record at the end of the
+ * last segment, left by a crash, is dropped; a bad record anywhere else stops startup.  With
+ * {@link RepositorySnapshots} the newest snapshot is loaded first and only the records after the
+ * offset it covers are replayed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wealthwise.journal.enabled", havingValue = "true")
+public class ActionJournal implements ActionLog, SmartInitializingSingleton, DisposableBean {
+
+    static final byte SAVED = 1;
+    static final byte DELETED = 2;
+
+    private final ActionRepository actionRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final SecurityRepository securityRepository;
+    private final RepositorySnapshots snapshots;
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalMillis;
+    private final boolean syncWrites;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "action-journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this; codec holds the dictionary of the current segment
+    private JournalSegment current;
+    private ActionCodec codec;
+    private final BinaryWriter record = new BinaryWriter(512);
+
+    // Everything below this offset has been forced to disk; guarded by durableLock
+    private final Object durableLock = new Object();
+    private long durableOffset;
+
+    public ActionJournal(
+            ActionRepository actionRepository,
+            PortfolioRepository portfolioRepository,
+            SecurityRepository securityRepository,
+            @Value("${wealthwise.journal.directory:data/journal}") Path directory,
+            @Value("${wealthwise.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${wealthwise.journal.flush-interval-ms:10}") long flushIntervalMillis,
+            @Value("${wealthwise.journal.sync-writes:false}") boolean syncWrites,
+            @Nullable RepositorySnapshots snapshots
+    ) {
+        if (segmentSize.toBytes() <= JournalSegment.HEADER_SIZE || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segment size out of range: " + segmentSize);
+        }
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("Journal flush interval must be positive: " + flushIntervalMillis);
+        }
+        this.actionRepository = actionRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.securityRepository = securityRepository;
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.syncWrites = syncWrites;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long from = snapshots == null ? 0 : snapshots.loadLatest();
+        long started = System.nanoTime();
+        long records = replay(from);
+        log.info("Replayed {} journal records from {} after offset {} in {} ms",
+                records, directory, from, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        actionRepository.attach(this);
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (snapshots != null) {
+            snapshots.start(this::flushedEndOffset);
+        }
+    }
+
+    @Override
+    public void saving(BaseAction action) {
+        append(SAVED, action, action.getUuid());
+    }
+
+    @Override
+    public void deleting(String uuid) {
+        append(DELETED, null, uuid);
+    }
+
+    /**
+     * Journal offset just past the last appended record.
+     */
+    public synchronized long endOffset() {
+        return current.endOffset();
+    }
+
+    /**
+     * Forces every appended record to disk and returns the offset just past them.  The offset is read
+     * between two writes, so every record before it has also been applied to the repository.
+     */
+    long flushedEndOffset() {
+        long end = actionRepository.whenIdle(this::endOffset);
+        flush();
+        return end;
+    }
+
+    /**
+     * Forces every appended record to disk.
+     */
+    public void flush() {
+        JournalSegment segment;
+        long to;
+        synchronized (this) {
+            segment = current;
+            to = current.endOffset();
+        }
+        long from;
+        synchronized (durableLock) {
+            from = durableOffset;
+        }
+        if (to > from) {
+            segment.force(from, to);
+            markDurable(to);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        synchronized (this) {
+            if (current != null) {
+                current.close();
+                markDurable(current.endOffset());
+            }
+        }
+    }
+
+    private void append(byte type, BaseAction action, String uuid) {
+        long end;
+        synchronized (this) {
+            // Encoded under the lock, so dictionary definitions land in the segment before their uses
+            CodecDictionary.Mark mark = codec.dictionary().mark();
+            encode(type, action, uuid);
+            if (!current.fits(record.size())) {
+                codec.dictionary().rollback(mark);
+                roll(record.size());
+                encode(type, action, uuid);
+            }
+            end = current.append(record.array(), record.size());
+        }
+        if (syncWrites) {
+            awaitDurable(end);
+        }
+    }
+
+    private void encode(byte type, BaseAction action, String uuid) {
+        record.reset();
+        record.writeByte(type);
+        if (type == SAVED) {
+            codec.encode(action, record);
+        } else {
+            record.writeString(uuid);
+        }
+    }
+
+    private void roll(int recordLength) {
+        if ((long) JournalSegment.HEADER_SIZE + recordLength > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + recordLength + " bytes exceeds the segment size");
+        }
+        current.close();
+        markDurable(current.endOffset());
+        current = JournalSegment.open(directory, current.endOffset(), segmentSize);
+        codec = newCodec();
+    }
+
+    private ActionCodec newCodec() {
+        return new ActionCodec(RepositoryDictionaries.create(portfolioRepository, securityRepository));
+    }
+
+    /**
+     * Replays the records from offset {@code from} on and leaves {@link #current} ready for appends.
+     * Records of the first segment before {@code from} are decoded but not applied, to rebuild the
+     * segment's dictionary.
+     */
+    private long replay(long from) {
+        List<Path> files = segmentFiles();
+        int first = 0;
+        while (first + 1 < files.size() && JournalSegment.baseOffsetOf(files.get(first + 1)) <= from) {
+            first++;
+        }
+        if (!files.isEmpty() && JournalSegment.baseOffsetOf(files.get(first)) > from) {
+            throw new IllegalStateException("Journal " + directory + " has no segment holding offset " + from);
+        }
+        long records = 0;
+        long offset = from;
+        for (int i = first; i < files.size(); i++) {
+            JournalSegment segment = JournalSegment.open(directory, JournalSegment.baseOffsetOf(files.get(i)), segmentSize);
+            ActionCodec segmentCodec = newCodec();
+            offset = segment.baseOffset();
+            ByteBuffer next;
+            while ((next = segment.recordAt(offset)) != null) {
+                boolean tail = offset >= from;
+                apply(next, segmentCodec, tail);
+                offset += JournalSegment.HEADER_SIZE + next.capacity();
+                if (tail) {
+                    records++;
+                }
+            }
+            boolean last = i == files.size() - 1;
+            if (last) {
+                if (offset < from) {
+                    throw new IllegalStateException("Journal " + directory + " ends at offset " + offset
+                            + ", before the snapshot offset " + from);
+                }
+                try {
+                    segment.resumeAt(offset);
+                } catch (IllegalStateException e) {
+                    segment.close();
+                    throw e;
+                }
+                synchronized (this) {
+                    current = segment;
+                    codec = segmentCodec;
+                }
+            } else {
+                segment.close();
+                long nextBase = JournalSegment.baseOffsetOf(files.get(i + 1));
+                if (nextBase != offset) {
+                    throw new IllegalStateException("Journal segment " + segment.path() + " is corrupt at offset " + offset);
+                }
+            }
+        }
+        synchronized (this) {
+            if (current == null) {
+                current = JournalSegment.open(directory, from, segmentSize);
+                codec = newCodec();
+            }
+        }
+        markDurable(offset);
+        return records;
+    }
+
+    private void apply(ByteBuffer bytes, ActionCodec segmentCodec, boolean replay) {
+        BinaryReader in = new BinaryReader(bytes.duplicate());
+        byte type = in.readByte();
+        switch (type) {
+            case SAVED -> {
+                BaseAction action = segmentCodec.decode(in);
+                if (replay) {
+                    actionRepository.save(action);
+                }
+            }
+            case DELETED -> {
+                String uuid = in.readString();
+                if (replay) {
+                    actionRepository.deleteById(uuid);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    private List<Path> segmentFiles() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                return files
+                        .filter(file -> JournalSegment.baseOffsetOf(file) >= 0)
+                        .sorted(Comparator.comparingLong(JournalSegment::baseOffsetOf))
+                        .toList();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+    }
+
+    private void markDurable(long offset) {
+        synchronized (durableLock) {
+            if (offset > durableOffset) {
+                durableOffset = offset;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void awaitDurable(long offset) {
+        synchronized (durableLock) {
+            while (durableOffset < offset) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.bourse.wealthwise.repository.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped journal file.  Records are laid out back to back as
+ * {@code [int length][int crc32c][length bytes]}; the zero-filled rest of the file reads as a record
+ * of length 0, which marks the end.  {@code baseOffset} is the journal offset of the first byte, so
+ * offsets keep growing across segments.
+ */
+final class JournalSegment {
+
+    static final int HEADER_SIZE = 8;
+    private static final String PREFIX = "actions-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path path;
+    private final long baseOffset;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+
+    private JournalSegment(Path path, long baseOffset, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.baseOffset = baseOffset;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static JournalSegment open(Path directory, long baseOffset, int capacity) {
+        Path path = directory.resolve(fileName(baseOffset));
+        try {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = Math.max(channel.size(), capacity);
+            return new JournalSegment(path, baseOffset, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal segment " + path, e);
+        }
+    }
+
+    static String fileName(long baseOffset) {
+        return PREFIX + String.format("%020d", baseOffset) + SUFFIX;
+    }
+
+    /**
+     * Base offset encoded in a segment file name, or -1 if the name is not a segment's.
+     */
+    static long baseOffsetOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    long baseOffset() {
+        return baseOffset;
+    }
+
+    /** Journal offset just past the last record. */
+    long endOffset() {
+        return baseOffset + position;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    boolean fits(int length) {
+        return (long) position + HEADER_SIZE + length <= buffer.capacity();
+    }
+
+    /**
+     * Appends the first {@code length} bytes of {@code record} as one record and returns the journal
+     * offset just past it.
+     */
+    long append(byte[] record, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.put(position + HEADER_SIZE, record, 0, length);
+        // The length goes in last, so a torn write still reads as the end of the segment
+        buffer.putInt(position, length);
+        position += HEADER_SIZE + length;
+        return endOffset();
+    }
+
+    /**
+     * The record starting at {@code offset}, or null at the end of the written records.  A record
+     * with a bad checksum or running past the file, as left by a crash in the middle of a write, also
+     * counts as the end.
+     */
+    ByteBuffer recordAt(long offset) {
+        int at = Math.toIntExact(offset - baseOffset);
+        return isRecord(at) ? buffer.slice(at + HEADER_SIZE, buffer.getInt(at)) : null;
+    }
+
+    /**
+     * Continues appending at {@code offset}, the end of the records found by replay.  Whatever
+     * follows is cleared, so a torn record cannot resurface after newer ones.  That is only done for
+     * a torn tail, though: if a valid record starts anywhere after {@code offset}, the record there
+     * is damaged rather than torn, and clearing would lose every record after it, so startup fails
+     * instead.
+     */
+    void resumeAt(long offset) {
+        int at = Math.toIntExact(offset - baseOffset);
+        int later = nextRecord(at + 1);
+        if (later >= 0) {
+            throw new IllegalStateException("Journal segment " + path + " is corrupt at offset " + offset
+                    + ", followed by a valid record at offset " + (baseOffset + later)
+                    + "; resuming would discard " + (writtenEnd(at) - at) + " bytes");
+        }
+        position = at;
+        int i = position;
+        // Only dirty pages that are not already zero, so a mostly empty segment is not rewritten
+        for (; i + Long.BYTES <= buffer.capacity(); i += Long.BYTES) {
+            if (buffer.getLong(i) != 0L) {
+                buffer.putLong(i, 0L);
+            }
+        }
+        for (; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private boolean isRecord(int at) {
+        if (at + HEADER_SIZE > buffer.capacity()) {
+            return false;
+        }
+        int length = buffer.getInt(at);
+        if (length <= 0 || (long) at + HEADER_SIZE + length > buffer.capacity()) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(at + HEADER_SIZE, length));
+        return (int) crc.getValue() == buffer.getInt(at + 4);
+    }
+
+    // Start of the first valid record at or after position from, or -1; records are not aligned, so every position is tried
+    private int nextRecord(int from) {
+        int at = from;
+        while (at + HEADER_SIZE <= buffer.capacity()) {
+            if (at + Long.BYTES <= buffer.capacity() && buffer.getLong(at) == 0L) {
+                at += Long.BYTES - Integer.BYTES + 1; // No length starting in these eight zero bytes
+            } else if (isRecord(at)) {
+                return at;
+            } else {
+                at++;
+            }
+        }
+        return -1;
+    }
+
+    // Position just past the last byte after from that is not zero
+    private int writtenEnd(int from) {
+        int end = buffer.capacity();
+        while (end > from && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Forces the records in {@code [from, to)} (journal offsets) to the storage device.
+     */
+    void force(long from, long to) {
+        int start = (int) Math.max(0, from - baseOffset);
+        int end = (int) Math.min(position, to - baseOffset);
+        if (end > start) {
+            buffer.force(start, end - start);
+        }
+    }
+
+    void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal segment " + path, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.bourse.wealthwise.repository.journal;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import com.bourse.wealthwise.repository.codec.CodecDictionary;
+
+/**
+ * Dictionaries for decoding into the repositories: a decoded portfolio or security is swapped for
+ * the instance already in {@link PortfolioRepository} (by uuid) or {@link SecurityRepository} (by
+ * ISIN), and added there if it is new, so all loaded actions of a portfolio share one
+ * {@link Portfolio} and {@link Security} object.
+ */
+final class RepositoryDictionaries {
+
+    private RepositoryDictionaries() {
+    }
+
+    static CodecDictionary create(PortfolioRepository portfolioRepository, SecurityRepository securityRepository) {
+        return new CodecDictionary(
+                portfolio -> {
+                    if (portfolio.getUuid() == null) {
+                        return portfolio;
+                    }
+                    Portfolio existing = portfolioRepository.findById(portfolio.getUuid()).orElse(null);
+                    return existing != null ? existing : portfolioRepository.save(portfolio);
+                },
+                security -> {
+                    if (security.getIsin() == null) {
+                        return security;
+                    }
+                    Security existing = securityRepository.findSecurityByIsin(security.getIsin());
+                    if (existing != null) {
+                        return existing;
+                    }
+                    securityRepository.addSecurity(security);
+                    return security;
+                });
+    }
+}
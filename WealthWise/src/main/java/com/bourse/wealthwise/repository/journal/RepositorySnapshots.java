@@ -0,0 +1,421 @@
+package com.bourse.wealthwise.repository.journal;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.*;
+import com.bourse.wealthwise.repository.codec.ActionCodec;
+import com.bourse.wealthwise.repository.codec.BinaryReader;
+import com.bourse.wealthwise.repository.codec.BinaryWriter;
+import com.bourse.wealthwise.repository.codec.CodecDictionary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Periodic binary snapshots of the repositories, enabled with {@code wealthwise.snapshot.enabled}
+ * on top of the {@link ActionJournal}.  A snapshot holds the portfolios, securities and price
+ * series, every portfolio's actions and the holdings after its last action, and the journal offset
+ * it was started at; startup loads the newest valid one and the journal replays only what follows
+ * that offset.
+ * <p>
+ * Snapshots are written by a background thread while writes go on.  The offset is read first and
+ * the repositories are then read through their weakly consistent views, so a snapshot holds every
+ * write journaled before the offset and possibly some after it.  Replaying the tail is still
+ * correct because journal records are whole-action upserts and deletes by uuid, which can be
+ * applied again.  Holdings are computed from exactly the actions written for the portfolio, so they
+ * always match what is loaded; balances are rebuilt by {@code BalanceLedger} as the actions are
+ * loaded, in time order, which only ever appends to its ledgers.
+ * <p>
+ * A file is {@code [int magic][int version][long journal offset]}, then entries
+ * {@code [byte tag][int length][length bytes]} up to an {@link #END} tag, then a CRC32C of
+ * everything before it.  Entries are encoded with {@link ActionCodec} and share one dictionary, so
+ * each portfolio and security is written in full once.  It is written to a temporary file, forced and renamed into place, and read
+ * back through a read-only mapping without copying it onto the heap.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "wealthwise", name = {"journal.enabled", "snapshot.enabled"}, havingValue = "true")
+public class RepositorySnapshots implements DisposableBean {
+
+    private static final int MAGIC = 0x57575350;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int TRAILER_SIZE = 4;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final byte END = 0;
+    private static final byte PORTFOLIO = 1;
+    private static final byte SECURITY = 2;
+    private static final byte PRICES = 3;
+    private static final byte ACTION = 4;
+    private static final byte HOLDINGS = 5;
+
+    private final ActionRepository actionRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final SecurityRepository securityRepository;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final HoldingsProjection holdingsProjection;
+    private final Path directory;
+    private final long intervalMillis;
+    private final int retain;
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "repository-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile LongSupplier journalOffset;
+
+    public RepositorySnapshots(
+            ActionRepository actionRepository,
+            PortfolioRepository portfolioRepository,
+            SecurityRepository securityRepository,
+            SecurityPriceRepository securityPriceRepository,
+            HoldingsProjection holdingsProjection,
+            @Value("${wealthwise.snapshot.directory:data/snapshots}") Path directory,
+            @Value("${wealthwise.snapshot.interval-ms:600000}") long intervalMillis,
+            @Value("${wealthwise.snapshot.retain:2}") int retain
+    ) {
+        if (intervalMillis < 1 || retain < 1) {
+            throw new IllegalArgumentException("Snapshot interval and retained count must be positive");
+        }
+        this.actionRepository = actionRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.securityRepository = securityRepository;
+        this.securityPriceRepository = securityPriceRepository;
+        this.holdingsProjection = holdingsProjection;
+        this.directory = directory;
+        this.intervalMillis = intervalMillis;
+        this.retain = retain;
+    }
+
+    static String fileName(long journalOffset) {
+        return PREFIX + String.format("%020d", journalOffset) + SUFFIX;
+    }
+
+    /**
+     * Journal offset encoded in a snapshot file name, or -1 if the name is not a snapshot's.
+     */
+    static long journalOffsetOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Loads the newest valid snapshot into the repositories and returns the journal offset to
+     * replay from, or 0 if there is none.  Invalid snapshots, e.g. from a crash while one was being
+     * written, are skipped in favour of older ones.
+     */
+    long loadLatest() {
+        List<Path> files = snapshotFiles();
+        for (int i = files.size() - 1; i >= 0; i--) {
+            Path file = files.get(i);
+            ByteBuffer snapshot = map(file);
+            if (isValid(snapshot)) {
+                long started = System.nanoTime();
+                int entries = apply(snapshot);
+                log.info("Loaded {} snapshot entries from {} in {} ms",
+                        entries, file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                return snapshot.getLong(8);
+            }
+            log.warn("Skipping invalid snapshot {}", file);
+        }
+        return 0;
+    }
+
+    /**
+     * Starts writing a snapshot every {@code wealthwise.snapshot.interval-ms}.  {@code journalOffset}
+     * returns an offset below which every journaled write is durable.
+     */
+    void start(LongSupplier journalOffset) {
+        this.journalOffset = journalOffset;
+        writer.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException ex) {
+                log.error("Writing a snapshot failed", ex);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot now, keeps the newest {@code wealthwise.snapshot.retain} ones and returns
+     * the new file.
+     */
+    public synchronized Path snapshot() {
+        LongSupplier offsets = journalOffset;
+        if (offsets == null) {
+            throw new IllegalStateException("Snapshots are not started yet");
+        }
+        long offset = offsets.getAsLong();
+        Path file = directory.resolve(fileName(offset));
+        Path temp = directory.resolve(fileName(offset) + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(offset);
+            writeEntries(out);
+            out.writeByte(END);
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + temp, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot publish snapshot " + file, e);
+        }
+        prune();
+        return file;
+    }
+
+    @Override
+    public void destroy() {
+        writer.shutdown();
+    }
+
+    private void writeEntries(DataOutputStream out) throws IOException {
+        ActionCodec codec = new ActionCodec(new CodecDictionary());
+        BinaryWriter entry = new BinaryWriter(4096);
+        for (Portfolio portfolio : portfolioRepository.findAll()) {
+            entry.reset();
+            codec.writePortfolio(portfolio, entry);
+            writeEntry(out, PORTFOLIO, entry);
+        }
+        for (Security security : securityRepository.allSecurities()) {
+            entry.reset();
+            codec.writeSecurity(security, entry);
+            writeEntry(out, SECURITY, entry);
+        }
+        List<IOException> failure = new ArrayList<>(1);
+        securityPriceRepository.forEachHeapSeries((isin, series) -> {
+            if (failure.isEmpty()) {
+                try {
+                    entry.reset();
+                    encodePrices(isin, series, entry);
+                    writeEntry(out, PRICES, entry);
+                } catch (IOException e) {
+                    failure.add(e);
+                }
+            }
+        });
+        actionRepository.forEachTimeline((portfolioId, timeline) -> {
+            if (failure.isEmpty()) {
+                try {
+                    writeTimeline(out, codec, entry, portfolioId, timeline);
+                } catch (IOException e) {
+                    failure.add(e);
+                }
+            }
+        });
+        if (!failure.isEmpty()) {
+            throw failure.getFirst();
+        }
+    }
+
+    private static void writeTimeline(DataOutputStream out, ActionCodec codec, BinaryWriter entry,
+                                      String portfolioId, List<BaseAction> timeline) throws IOException {
+        Map<Security, BigInteger> volumes = new LinkedHashMap<>();
+        // Securities without an ISIN are not shared on load, so holdings keyed by them could not be matched
+        boolean resolvable = true;
+        for (BaseAction action : timeline) {
+            entry.reset();
+            codec.encode(action, entry);
+            writeEntry(out, ACTION, entry);
+            for (SecurityChange change : action.getSecurityChanges()) {
+                Security security = change.getSecurity();
+                resolvable &= security != null && security.getIsin() != null;
+                volumes.merge(security, change.getVolumeChange(), BigInteger::add);
+            }
+        }
+        if (resolvable && !timeline.isEmpty()) {
+            entry.reset();
+            encodeHoldings(codec, portfolioId, ActionKey.of(timeline.getLast()), volumes, entry);
+            writeEntry(out, HOLDINGS, entry);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, byte tag, BinaryWriter entry) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(entry.size());
+        entry.writeTo(out);
+    }
+
+    private static void encodePrices(String isin, PriceSeries series, BinaryWriter out) {
+        out.writeString(isin);
+        out.writeVarLong(series.size());
+        // Days then prices, so each loads with one bulk read
+        for (int i = 0; i < series.size(); i++) {
+            out.writeInt(series.epochDayAt(i));
+        }
+        for (int i = 0; i < series.size(); i++) {
+            out.writeDouble(series.priceAt(i));
+        }
+    }
+
+    private static void encodeHoldings(ActionCodec codec, String portfolioId, ActionKey key,
+                                       Map<Security, BigInteger> volumes, BinaryWriter out) {
+        out.writeString(portfolioId);
+        ActionCodec.writeDateTime(key.datetime(), out);
+        out.writeString(key.uuid());
+        out.writeVarLong(volumes.size());
+        volumes.forEach((security, volume) -> {
+            codec.writeSecurity(security, out);
+            out.writeNumber(volume);
+        });
+    }
+
+    /**
+     * Checks the header, the checksum and the entry framing before anything is loaded, so a bad
+     * snapshot leaves the repositories untouched.
+     */
+    private static boolean isValid(ByteBuffer snapshot) {
+        int size = snapshot.capacity();
+        if (size < HEADER_SIZE + 1 + TRAILER_SIZE
+                || snapshot.getInt(0) != MAGIC || snapshot.getInt(4) != VERSION) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(snapshot.slice(0, size - TRAILER_SIZE));
+        if ((int) crc.getValue() != snapshot.getInt(size - TRAILER_SIZE)) {
+            return false;
+        }
+        long at = HEADER_SIZE;
+        while (at < size - TRAILER_SIZE) {
+            if (snapshot.get((int) at) == END) {
+                return at == size - TRAILER_SIZE - 1;
+            }
+            if (at + 5 > size - TRAILER_SIZE || snapshot.getInt((int) at + 1) < 0) {
+                return false;
+            }
+            at += 5 + (long) snapshot.getInt((int) at + 1);
+        }
+        return false;
+    }
+
+    private int apply(ByteBuffer snapshot) {
+        ActionCodec codec = new ActionCodec(RepositoryDictionaries.create(portfolioRepository, securityRepository));
+        Map<String, PriceSeries> seriesByIsin = new HashMap<>();
+        int entries = 0;
+        int at = HEADER_SIZE;
+        byte tag;
+        while ((tag = snapshot.get(at)) != END) {
+            int length = snapshot.getInt(at + 1);
+            BinaryReader in = new BinaryReader(snapshot.slice(at + 5, length));
+            switch (tag) {
+                case PORTFOLIO -> codec.readPortfolio(in);
+                case SECURITY -> codec.readSecurity(in);
+                case PRICES -> readPrices(in, seriesByIsin);
+                case ACTION -> actionRepository.save(codec.decode(in));
+                case HOLDINGS -> applyHoldings(codec, in);
+                default -> throw new IllegalStateException("Unknown snapshot entry: " + tag);
+            }
+            at += 5 + length;
+            entries++;
+        }
+        securityPriceRepository.putAllSeries(seriesByIsin);
+        return entries;
+    }
+
+    private static void readPrices(BinaryReader in, Map<String, PriceSeries> seriesByIsin) {
+        String isin = in.readString();
+        int size = in.readVarInt();
+        int[] days = new int[size];
+        double[] prices = new double[size];
+        ByteBuffer bytes = in.buffer();
+        bytes.asIntBuffer().get(days);
+        bytes.position(bytes.position() + size * Integer.BYTES);
+        bytes.asDoubleBuffer().get(prices);
+        seriesByIsin.put(isin, PriceSeries.of(days, prices));
+    }
+
+    private void applyHoldings(ActionCodec codec, BinaryReader in) {
+        String portfolioId = in.readString();
+        ActionKey key = new ActionKey(ActionCodec.readDateTime(in), in.readString());
+        int size = in.readVarInt();
+        Map<Security, BigInteger> volumes = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            volumes.put(codec.readSecurity(in), in.readNumber());
+        }
+        holdingsProjection.restoreCheckpoint(portfolioId, key, volumes);
+    }
+
+    private static ByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping outlives the channel
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map snapshot " + file, e);
+        }
+    }
+
+    private void prune() {
+        List<Path> files = snapshotFiles();
+        for (int i = 0; i < files.size() - retain; i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                log.warn("Cannot delete old snapshot {}: {}", files.get(i), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Snapshot files, oldest first.  Leftover temporary files of interrupted writes are removed.
+     */
+    private List<Path> snapshotFiles() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                List<Path> snapshots = new ArrayList<>();
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(SUFFIX + TEMP_SUFFIX)) {
+                        Files.deleteIfExists(file);
+                    } else if (journalOffsetOf(file) >= 0) {
+                        snapshots.add(file);
+                    }
+                }
+                snapshots.sort(Comparator.comparingLong(RepositorySnapshots::journalOffsetOf));
+                return snapshots;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshot directory " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.bourse.wealthwise.web;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many requests of one endpoint run at a time.  Requests run on virtual threads, so a
+ * request waiting for a permit holds no platform thread; one that gets no permit within the acquire
+ * timeout is rejected with {@link ConcurrencyLimitExceededException} rather than queueing without
+ * bound.
+ */
+public final class ConcurrencyLimit {
+
+    private final String endpoint;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public ConcurrencyLimit(String endpoint, int maxConcurrent, long acquireTimeoutMillis) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent of " + endpoint + " must be positive: " + maxConcurrent);
+        }
+        this.endpoint = endpoint;
+        this.permits = new Semaphore(maxConcurrent);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public <T> T call(Supplier<T> request) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ConcurrencyLimitExceededException(endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException(endpoint);
+        }
+        try {
+            return request.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Permits currently free, e.g. for monitoring. */
+    public int available() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,11 @@
+package com.bourse.wealthwise.web;
+
+/**
+ * A request found its endpoint at its {@link ConcurrencyLimit} for longer than the acquire timeout.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(String endpoint) {
+        super("Too many concurrent " + endpoint + " requests");
+    }
+}
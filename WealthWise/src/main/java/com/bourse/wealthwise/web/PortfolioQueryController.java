@@ -0,0 +1,142 @@
+package com.bourse.wealthwise.web;
+
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.services.BalanceActionService;
+import com.bourse.wealthwise.domain.services.PortfolioActionService;
+import com.bourse.wealthwise.domain.services.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.services.PositionOrdering;
+import com.bourse.wealthwise.domain.services.ValuationSeriesService;
+import com.bourse.wealthwise.domain.services.ViewPortfolioSecuritiesService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only HTTP access to a portfolio's holdings, balance and action history as of an instant
+ * ({@code at}, ISO date-time, default now), and its valuation over a range of dates.  With {@code spring.threads.virtual.enabled} every
+ * request runs on its own virtual thread; each endpoint has its own {@link ConcurrencyLimit} so
+ * that a burst on one cannot starve the others.
+ */
+@RestController
+@RequestMapping("/api/portfolios/{portfolioId}")
+public class PortfolioQueryController {
+
+    private final ViewPortfolioSecuritiesService viewPortfolioSecuritiesService;
+    private final BalanceActionService balanceActionService;
+    private final PortfolioActionService portfolioActionService;
+    private final ValuationSeriesService valuationSeriesService;
+    private final ConcurrencyLimit holdingsLimit;
+    private final ConcurrencyLimit balanceLimit;
+    private final ConcurrencyLimit actionsLimit;
+    private final ConcurrencyLimit valuationsLimit;
+
+    public record BalanceView(String portfolioId, LocalDateTime at, BigInteger balance) {
+    }
+
+    public PortfolioQueryController(ViewPortfolioSecuritiesService viewPortfolioSecuritiesService,
+                                    BalanceActionService balanceActionService,
+                                    PortfolioActionService portfolioActionService,
+                                    ValuationSeriesService valuationSeriesService,
+                                    @Value("${wealthwise.web.holdings.max-concurrent:20000}") int holdingsMaxConcurrent,
+                                    @Value("${wealthwise.web.balance.max-concurrent:20000}") int balanceMaxConcurrent,
+                                    @Value("${wealthwise.web.actions.max-concurrent:5000}") int actionsMaxConcurrent,
+                                    @Value("${wealthwise.web.valuations.max-concurrent:1000}") int valuationsMaxConcurrent,
+                                    @Value("${wealthwise.web.acquire-timeout-ms:100}") long acquireTimeoutMillis) {
+        this.viewPortfolioSecuritiesService = viewPortfolioSecuritiesService;
+        this.balanceActionService = balanceActionService;
+        this.portfolioActionService = portfolioActionService;
+        this.valuationSeriesService = valuationSeriesService;
+        this.holdingsLimit = new ConcurrencyLimit("holdings", holdingsMaxConcurrent, acquireTimeoutMillis);
+        this.balanceLimit = new ConcurrencyLimit("balance", balanceMaxConcurrent, acquireTimeoutMillis);
+        this.actionsLimit = new ConcurrencyLimit("actions", actionsMaxConcurrent, acquireTimeoutMillis);
+        this.valuationsLimit = new ConcurrencyLimit("valuations", valuationsMaxConcurrent, acquireTimeoutMillis);
+    }
+
+    /**
+     * Holdings by name, or ordered by {@code orderBy} (NAME, VALUE, VOLUME or WEIGHT) and cut to
+     * the first {@code limit}, e.g. {@code ?orderBy=VALUE&limit=20} for the 20 largest positions.
+     */
+    @GetMapping("/holdings")
+    public List<PortfolioSecurityInfo> holdings(@PathVariable String portfolioId,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+                                                @RequestParam(required = false) PositionOrdering orderBy,
+                                                @RequestParam(required = false) Integer limit) {
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+        if (orderBy == null && limit == null) {
+            return holdingsLimit.call(() -> viewPortfolioSecuritiesService.getPortfolioSecurities(portfolioId, instant));
+        }
+        PositionOrdering ordering = orderBy != null ? orderBy : PositionOrdering.NAME;
+        int count = limit != null ? limit : Integer.MAX_VALUE;
+        return holdingsLimit.call(() -> viewPortfolioSecuritiesService.getPortfolioSecurities(portfolioId, instant, ordering, count));
+    }
+
+    @GetMapping("/balance")
+    public BalanceView balance(@PathVariable String portfolioId,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+        return balanceLimit.call(() -> new BalanceView(portfolioId, instant,
+                balanceActionService.getBalanceForPortfolio(portfolioId, instant)));
+    }
+
+    @GetMapping("/actions")
+    public List<String> actions(@PathVariable String portfolioId,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+        return actionsLimit.call(() -> portfolioActionService.getActionsForPortfolio(portfolioId, instant));
+    }
+
+    /**
+     * One page of the action history, newest first unless {@code newestFirst=false}; follow
+     * {@code nextCursor} for the next page.
+     */
+    @GetMapping("/actions/page")
+    public PortfolioActionService.ActionPage actionPage(@PathVariable String portfolioId,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "100") int limit,
+                                                        @RequestParam(defaultValue = "true") boolean newestFirst) {
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+        return actionsLimit.call(() -> portfolioActionService.getActionPage(portfolioId, instant, cursor, limit, newestFirst));
+    }
+
+    /**
+     * Valuation at the end of {@code from}, {@code from + step}, ... up to {@code to} (ISO dates),
+     * with {@code step} an ISO period such as {@code P1D}, {@code P1W} or {@code P1M}.
+     */
+    @GetMapping("/valuations")
+    public List<ValuationSeriesService.ValuationPoint> valuations(@PathVariable String portfolioId,
+                                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                  @RequestParam(defaultValue = "P1D") String step) {
+        Period period = Period.parse(step);
+        return valuationsLimit.call(() -> valuationSeriesService.getValuationSeries(portfolioId, from, to, period));
+    }
+
+    // The query services report invalid input, e.g. a bad cursor, range or limit, with IllegalArgumentException
+    @ExceptionHandler({IllegalArgumentException.class, DateTimeParseException.class})
+    public ResponseEntity<Map<String, String>> badRequest(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    @ExceptionHandler(PortfolioNotFoundException.class)
+    public ResponseEntity<Map<String, String>> notFound(PortfolioNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(ConcurrencyLimitExceededException.class)
+    public ResponseEntity<Map<String, String>> overloaded(ConcurrencyLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+}
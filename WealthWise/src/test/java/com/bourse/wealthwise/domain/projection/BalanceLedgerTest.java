@@ -0,0 +1,74 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.action.Withdrawal;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.repository.ActionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BalanceLedgerTest {
+    private ActionRepository actionRepository;
+    private BalanceLedger balanceLedger;
+    private Portfolio portfolio;
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    private Deposit deposit(LocalDateTime datetime, BigInteger amount) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(amount)
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        actionRepository = new ActionRepository();
+        balanceLedger = new BalanceLedger(actionRepository);
+        portfolio = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "ledger");
+    }
+
+    @Test
+    public void backDatedWithdrawalInserted_getBalanceAtEachTime_laterBalancesShifted() {
+        actionRepository.save(deposit(base, BigInteger.valueOf(1000)));
+        actionRepository.save(deposit(base.plusHours(2), BigInteger.valueOf(500)));
+        Withdrawal withdrawal = Withdrawal.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(base.plusHours(1))
+                .amount(BigInteger.valueOf(300))
+                .actionType(ActionType.WITHDRAWAL)
+                .build();
+        actionRepository.save(withdrawal);
+
+        assertEquals(BigInteger.ZERO, balanceLedger.balanceBefore(portfolio.getUuid(), base));
+        assertEquals(BigInteger.valueOf(1000), balanceLedger.balanceBefore(portfolio.getUuid(), base.plusHours(1)));
+        assertEquals(BigInteger.valueOf(700), balanceLedger.balanceBefore(portfolio.getUuid(), base.plusHours(2)));
+        assertEquals(BigInteger.valueOf(1200), balanceLedger.balanceBefore(portfolio.getUuid(), base.plusDays(1)));
+
+        actionRepository.deleteById(withdrawal.getUuid());
+
+        assertEquals(BigInteger.valueOf(1500), balanceLedger.balanceBefore(portfolio.getUuid(), base.plusDays(1)));
+    }
+
+    @Test
+    public void balanceBeyondLongRange_getBalance_exactBigIntegerReturned() {
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        actionRepository.save(deposit(base, max));
+        actionRepository.save(deposit(base.plusHours(1), max));
+        actionRepository.save(deposit(base.minusHours(1), BigInteger.TEN));
+
+        assertEquals(max.add(BigInteger.TEN), balanceLedger.balanceBefore(portfolio.getUuid(), base.plusMinutes(1)));
+        assertEquals(max.add(max).add(BigInteger.TEN), balanceLedger.balanceBefore(portfolio.getUuid(), base.plusDays(1)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.action.Sale;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.ActionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HoldingsProjectionTest {
+    private ActionRepository actionRepository;
+    private HoldingsProjection holdingsProjection;
+    private Portfolio portfolio;
+    private Security security;
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    private Buy buy(LocalDateTime datetime, long volume) {
+        return Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price(1.0)
+                .totalValue(BigInteger.valueOf(volume))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        actionRepository = new ActionRepository();
+        // Tiny interval so that a handful of actions already produces several checkpoints
+        holdingsProjection = new HoldingsProjection(actionRepository, 2);
+        portfolio = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "checkpointed");
+        security = Security.builder().name("BaseCo").symbol("BASE1").isin("IR0BASE00001").build();
+        for (int i = 0; i < 10; i++) {
+            actionRepository.save(buy(base.plusHours(i), 1));
+        }
+    }
+
+    @Test
+    public void checkpointsRecorded_queryAtDifferentTimes_volumesMatchReplay() {
+        assertThat(holdingsProjection.holdingsBefore(portfolio.getUuid(), base.plusDays(1)))
+                .containsEntry(security, BigInteger.TEN);
+        assertThat(holdingsProjection.holdingsBefore(portfolio.getUuid(), base.plusHours(5)))
+                .containsEntry(security, BigInteger.valueOf(5));
+        assertThat(holdingsProjection.holdingsBefore(portfolio.getUuid(), base)).isEmpty();
+    }
+
+    @Test
+    public void backDatedSaleSaved_queryAfterIt_checkpointsInvalidated() {
+        holdingsProjection.holdingsBefore(portfolio.getUuid(), base.plusDays(1));
+
+        Sale sale = Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(base.plusMinutes(30))
+                .security(security)
+                .volume(BigInteger.valueOf(4))
+                .price(1.0)
+                .totalValue(BigInteger.valueOf(4))
+                .actionType(ActionType.SALE)
+                .build();
+        actionRepository.save(sale);
+
+        assertThat(holdingsProjection.holdingsBefore(portfolio.getUuid(), base.plusDays(1)))
+                .containsEntry(security, BigInteger.valueOf(6));
+
+        actionRepository.deleteById(sale.getUuid());
+
+        assertThat(holdingsProjection.holdingsBefore(portfolio.getUuid(), base.plusDays(1)))
+                .containsEntry(security, BigInteger.TEN);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.security.Security;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityVolumesTest {
+
+    private final SecurityIds securityIds = new SecurityIds();
+
+    private void add(SecurityVolumes volumes, Security security, BigInteger delta) {
+        volumes.add(securityIds.idOf(security), security, delta);
+    }
+
+    @Test
+    public void manySecuritiesAndOverflowingSums_add_sameAsBigIntegerMerge() {
+        List<Security> securities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            securities.add(Security.builder().name("S" + i).symbol("S" + i).isin("IRO1S" + i).build());
+        }
+        securities.add(null);
+        SecurityVolumes volumes = new SecurityVolumes();
+        Map<Security, BigInteger> expected = new LinkedHashMap<>();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 20_000; i++) {
+            Security security = securities.get(random.nextInt(securities.size()));
+            BigInteger delta = random.nextInt(10) == 0
+                    ? BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(random.nextInt(5) - 2))
+                    : BigInteger.valueOf(random.nextInt(2001) - 1000);
+            add(volumes, security, delta);
+            expected.merge(security, delta, BigInteger::add);
+        }
+
+        assertEquals(expected, volumes.toMap());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(volumes.toMap().keySet()));
+        for (int entry = 0; entry < volumes.size(); entry++) {
+            assertEquals(volumes.volume(entry).signum() == 0, volumes.isZero(entry));
+        }
+    }
+
+    @Test
+    public void copiedThenCleared_add_copyUnchanged() {
+        Security security = Security.builder().name("Copy").symbol("CPY1").isin("IRO1CPY00001").build();
+        SecurityVolumes volumes = new SecurityVolumes();
+        add(volumes, security, BigInteger.TEN);
+        SecurityVolumes copy = volumes.copy();
+
+        volumes.clear();
+        add(volumes, security, BigInteger.ONE);
+
+        assertThat(copy.toMap()).containsExactly(Map.entry(security, BigInteger.TEN));
+        assertThat(volumes.toMap()).containsExactly(Map.entry(security, BigInteger.ONE));
+    }
+}
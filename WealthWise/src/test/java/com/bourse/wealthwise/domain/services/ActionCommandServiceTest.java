@@ -0,0 +1,160 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ActionCommandServiceTest {
+    @Autowired
+    private ActionCommandService actionCommandService;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private BalanceActionService balanceActionService;
+
+    private Portfolio portfolio;
+    private final Security security = Security.builder().name("Command Co").symbol("CMND1").isin("IRO1CMND0001").build();
+    private final LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    @BeforeEach
+    public void setUp() {
+        portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "commands"));
+    }
+
+    private Deposit deposit(LocalDateTime datetime, long amount) {
+        return Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(datetime)
+                .amount(BigInteger.valueOf(amount)).actionType(ActionType.DEPOSIT).build();
+    }
+
+    private Withdrawal withdrawal(LocalDateTime datetime, long amount) {
+        return Withdrawal.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(datetime)
+                .amount(BigInteger.valueOf(amount)).actionType(ActionType.WITHDRAWAL).build();
+    }
+
+    private Buy buy(LocalDateTime datetime, Security bought, long volume) {
+        return Buy.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(datetime)
+                .security(bought).volume(BigInteger.valueOf(volume)).price(10.0)
+                .totalValue(BigInteger.valueOf(volume * 10)).actionType(ActionType.BUY).build();
+    }
+
+    private Sale sale(LocalDateTime datetime, Security sold, long volume) {
+        return Sale.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(datetime)
+                .security(sold).volume(BigInteger.valueOf(volume)).price(10.0)
+                .totalValue(BigInteger.valueOf(volume * 10)).actionType(ActionType.SALE).build();
+    }
+
+    @Test
+    public void concurrentWithdrawals_submit_balanceNeverNegative() throws Exception {
+        actionCommandService.submit(deposit(base, 1000));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                LocalDateTime at = base.plusMinutes(1 + i);
+                futures.add(executor.submit(() -> {
+                    try {
+                        actionCommandService.submit(withdrawal(at, 70));
+                        accepted.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(14, accepted.get());
+        assertEquals(36, rejected.get());
+        assertEquals(BigInteger.valueOf(20), balanceActionService.getBalanceForPortfolio(portfolio.getUuid(), LocalDateTime.MAX));
+    }
+
+    @Test
+    public void saleBeyondHoldings_submit_rejectedAndNotSaved() {
+        actionCommandService.submit(deposit(base, 1000));
+        actionCommandService.submit(buy(base.plusMinutes(1), security, 5));
+        // Another instance of the same security, as a parsed command would carry
+        Security sameIsin = Security.builder().name("Command Co").symbol("CMND1").isin("IRO1CMND0001").build();
+        Sale tooLarge = sale(base.plusMinutes(2), sameIsin, 6);
+
+        assertThrows(IllegalStateException.class, () -> actionCommandService.submit(tooLarge));
+        actionCommandService.submit(sale(base.plusMinutes(3), sameIsin, 5));
+
+        assertTrue(actionRepository.findById(tooLarge.getUuid()).isEmpty());
+    }
+
+    @Test
+    public void backDatedWithdrawal_submit_rejectedWhenInstantBalanceTooLow() {
+        actionCommandService.submit(deposit(base.plusHours(1), 1000));
+
+        assertThrows(IllegalStateException.class, () -> actionCommandService.submit(withdrawal(base, 10)));
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).hasSize(1);
+    }
+
+    @Test
+    public void backDatedWithdrawal_submit_rejectedWhenLaterBalanceWouldGoNegative() {
+        actionCommandService.submit(deposit(base.plusHours(1), 100));
+        actionCommandService.submit(withdrawal(base.plusHours(3), 100));
+        actionCommandService.submit(deposit(base.plusHours(5), 100));
+
+        // 100 is there at hour 2, but the withdrawal at hour 3 would then overdraw by 50
+        Withdrawal backDated = withdrawal(base.plusHours(2), 50);
+        assertThrows(IllegalStateException.class, () -> actionCommandService.submit(backDated));
+
+        assertTrue(actionRepository.findById(backDated.getUuid()).isEmpty());
+        actionCommandService.submit(withdrawal(base.plusHours(6), 50));
+        assertEquals(BigInteger.valueOf(50), balanceActionService.getBalanceForPortfolio(portfolio.getUuid(), LocalDateTime.MAX));
+    }
+
+    @Test
+    public void backDatedSale_submit_rejectedWhenLaterVolumeWouldGoNegative() {
+        actionCommandService.submit(deposit(base, 1000));
+        actionCommandService.submit(buy(base.plusHours(1), security, 10));
+        actionCommandService.submit(sale(base.plusHours(3), security, 10));
+        actionCommandService.submit(buy(base.plusHours(5), security, 10));
+
+        Sale backDated = sale(base.plusHours(2), security, 5);
+        assertThrows(IllegalStateException.class, () -> actionCommandService.submit(backDated));
+
+        assertTrue(actionRepository.findById(backDated.getUuid()).isEmpty());
+        actionCommandService.submit(sale(base.plusHours(6), security, 5));
+    }
+
+    @Test
+    public void unknownPortfolioOrDuplicateUuid_submit_illegalArgument() {
+        Deposit deposit = deposit(base, 10);
+        actionCommandService.submit(deposit);
+        Deposit elsewhere = Deposit.builder().uuid(UUID.randomUUID().toString())
+                .portfolio(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "unknown"))
+                .datetime(base).amount(BigInteger.ONE).actionType(ActionType.DEPOSIT).build();
+
+        assertThrows(IllegalArgumentException.class, () -> actionCommandService.submit(deposit));
+        assertThrows(IllegalArgumentException.class, () -> actionCommandService.submit(elsewhere));
+    }
+}
@@ -0,0 +1,117 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class BatchValuationServiceTest {
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private SecurityRepository securityRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+    @Autowired
+    private ViewPortfolioSecuritiesService portfolioSecuritiesService;
+    @Autowired
+    private BatchValuationService batchValuationService;
+
+    private Portfolio first;
+    private Portfolio second;
+    private Security khodro;
+    private Security mellat;
+    private final LocalDateTime tradeTime = LocalDateTime.of(2025, 3, 3, 10, 0);
+
+    private Security addNewSecurity(String name, String symbol, String isin, Double price) {
+        Security security = Security.builder().name(name).symbol(symbol).isin(isin).build();
+        securityRepository.addSecurity(security);
+        securityPriceRepository.addPrice(isin, tradeTime.toLocalDate(), price);
+        return security;
+    }
+
+    private void buy(Portfolio portfolio, Security security, long volume) {
+        double price = securityPriceRepository.getPrice(security.getIsin(), tradeTime.toLocalDate());
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(tradeTime)
+                .volume(BigInteger.valueOf(volume))
+                .price(price)
+                .totalValue(BigInteger.valueOf((long) (volume * price)))
+                .security(security)
+                .actionType(ActionType.BUY)
+                .build());
+    }
+
+    @BeforeEach
+    public void setUp() {
+        khodro = addNewSecurity("Iran Khodro-D", "IKCQ1", "IRB5BATCH001", 100.0);
+        mellat = addNewSecurity("S*Mellat Bank", "BMLT1", "IRO1BATCH002", 50.0);
+        first = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "batch1"));
+        second = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "batch2"));
+        buy(first, khodro, 5);
+        buy(first, mellat, 6);
+        buy(second, mellat, 2);
+    }
+
+    @Test
+    public void severalPortfolios_valuePortfolios_sameRowsAsSinglePortfolioView() {
+        LocalDateTime at = tradeTime.plusDays(3); // no quotes after the trade day, so priced as of the last close
+
+        Map<String, List<PortfolioSecurityInfo>> valuations =
+                batchValuationService.valuePortfolios(List.of(second.getUuid(), first.getUuid()), at);
+
+        assertThat(valuations.keySet()).containsExactly(second.getUuid(), first.getUuid());
+        for (Portfolio portfolio : List.of(first, second)) {
+            List<PortfolioSecurityInfo> expected = portfolioSecuritiesService.getPortfolioSecurities(portfolio.getUuid(), at);
+            List<PortfolioSecurityInfo> actual = valuations.get(portfolio.getUuid());
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getSecurity(), actual.get(i).getSecurity());
+                assertEquals(expected.get(i).getVolume(), actual.get(i).getVolume());
+                assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+            }
+        }
+        assertEquals(6 * 50.0, valuations.get(first.getUuid()).get(1).getValue());
+    }
+
+    @Test
+    public void allPortfolios_valueAllPortfolios_everyPortfolioValued() {
+        Map<String, List<PortfolioSecurityInfo>> valuations = batchValuationService.valueAllPortfolios(tradeTime.plusMinutes(1));
+
+        assertThat(valuations).containsKeys(first.getUuid(), second.getUuid());
+        assertThat(valuations.get(second.getUuid())).hasSize(1);
+        assertEquals(BigInteger.TWO, valuations.get(second.getUuid()).get(0).getVolume());
+    }
+
+    @Test
+    public void unknownPortfolio_valuePortfolios_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () ->
+                batchValuationService.valuePortfolios(List.of(UUID.randomUUID().toString()), tradeTime));
+    }
+}
@@ -0,0 +1,164 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.action.CapitalRaise;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class CapitalRaiseAllocationServiceTest {
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private ViewPortfolioSecuritiesService portfolioSecuritiesService;
+    @Autowired
+    private CapitalRaiseAllocationService capitalRaiseAllocationService;
+    @Autowired
+    private HoldingsProjection holdingsProjection;
+
+    private final Security stock = Security.builder()
+            .name("Allocation Co").symbol("ALLOC1").isin("IRO1ALLOC001").build();
+    private final Security stockRight = Security.builder()
+            .name("HAllocation Co").symbol("HALLOC1").isin("HIRO1ALLOC001").securityType(SecurityType.STOCK_RIGHT).build();
+    private final LocalDateTime tradeTime = LocalDateTime.of(2025, 5, 3, 10, 0);
+    private final LocalDateTime effectiveAt = tradeTime.plusDays(1);
+    private final List<String> savedActions = new ArrayList<>();
+
+    private Portfolio holder;
+    private Portfolio nonHolder;
+
+    private void buy(Portfolio portfolio, Security security, long volume) {
+        Buy buy = Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(tradeTime)
+                .volume(BigInteger.valueOf(volume))
+                .price(10.0)
+                .totalValue(BigInteger.valueOf(volume * 10))
+                .security(security)
+                .actionType(ActionType.BUY)
+                .build();
+        actionRepository.save(buy);
+        savedActions.add(buy.getUuid());
+    }
+
+    @BeforeEach
+    public void setUp() {
+        holder = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "holder"));
+        nonHolder = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "nonHolder"));
+        buy(holder, stock, 7);
+        // Another instance of the same security, e.g. read back before the repository was reloaded
+        buy(holder, Security.builder().name("Allocation Co").symbol("ALLOC1").isin("IRO1ALLOC001").build(), 2);
+        buy(nonHolder, Security.builder().name("Other Co").symbol("OTHR1").isin("IRO1ALLOC002").build(), 100);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        savedActions.forEach(actionRepository::deleteById);
+        portfolioRepository.deleteById(holder.getUuid());
+        portfolioRepository.deleteById(nonHolder.getUuid());
+    }
+
+    private List<CapitalRaise> allocate(String announcementId) {
+        List<CapitalRaise> allocated = capitalRaiseAllocationService.allocate(
+                announcementId, stock, stockRight, 0.5, effectiveAt);
+        allocated.forEach(capitalRaise -> savedActions.add(capitalRaise.getUuid()));
+        return allocated;
+    }
+
+    @Test
+    public void holderAndNonHolder_allocate_onlyHolderGetsFlooredRights() {
+        List<CapitalRaise> allocated = allocate(UUID.randomUUID().toString());
+
+        assertThat(allocated).extracting(capitalRaise -> capitalRaise.getPortfolio().getUuid())
+                .contains(holder.getUuid())
+                .doesNotContain(nonHolder.getUuid());
+        List<PortfolioSecurityInfo> infos = portfolioSecuritiesService.getPortfolioSecurities(
+                holder.getUuid(), effectiveAt.plusSeconds(1));
+        PortfolioSecurityInfo rights = infos.stream()
+                .filter(info -> info.getSecurity() == stockRight)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(BigInteger.valueOf(4), rights.getVolume()); // floor(9 * 0.5)
+    }
+
+    @Test
+    public void sameAnnouncementTwice_allocate_rightsAllocatedOnce() {
+        String announcementId = UUID.randomUUID().toString();
+        allocate(announcementId);
+
+        List<CapitalRaise> again = allocate(announcementId);
+
+        assertThat(again).noneMatch(capitalRaise -> capitalRaise.getPortfolio().equals(holder));
+        assertThat(actionRepository.findAllActionsOf(holder.getUuid()))
+                .filteredOn(CapitalRaise.class::isInstance)
+                .hasSize(1);
+    }
+
+    @Test
+    public void actionAfterEffectiveTime_allocate_notCounted() {
+        Buy late = Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(holder)
+                .datetime(effectiveAt.plusMinutes(1))
+                .volume(BigInteger.TEN)
+                .price(10.0)
+                .totalValue(BigInteger.valueOf(100))
+                .security(stock)
+                .actionType(ActionType.BUY)
+                .build();
+        actionRepository.save(late);
+        savedActions.add(late.getUuid());
+
+        List<CapitalRaise> allocated = allocate(UUID.randomUUID().toString());
+
+        CapitalRaise capitalRaise = allocated.stream()
+                .filter(action -> action.getPortfolio().equals(holder))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(BigInteger.valueOf(9), capitalRaise.getSecurityCurrentVolume());
+        assertEquals(effectiveAt, capitalRaise.getDatetime());
+    }
+
+    @Test
+    public void moreAnnouncementsThanRemembered_allocate_oldestFirstDeliveryForgotten() {
+        CapitalRaiseAllocationService service = new CapitalRaiseAllocationService(
+                portfolioRepository, actionRepository, holdingsProjection, 2);
+        List<String> announcementIds = List.of("first", "second", "third").stream()
+                .map(name -> name + "-" + UUID.randomUUID()).toList();
+
+        for (String announcementId : announcementIds) {
+            service.allocate(announcementId, stock, stockRight, 0.5, effectiveAt)
+                    .forEach(capitalRaise -> savedActions.add(capitalRaise.getUuid()));
+        }
+
+        assertEquals(2, service.rememberedAnnouncements());
+        // The most recent announcement still keeps its first effective time on redelivery
+        List<CapitalRaise> redelivered = service.allocate(announcementIds.get(2), stock, stockRight, 0.5, effectiveAt.plusDays(1));
+        assertThat(redelivered).isEmpty();
+        assertEquals(2, service.rememberedAnnouncements());
+    }
+}
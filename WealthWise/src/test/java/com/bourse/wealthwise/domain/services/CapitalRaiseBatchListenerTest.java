@@ -0,0 +1,104 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.DTOs.CapitalRaiseData;
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.action.CapitalRaise;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class CapitalRaiseBatchListenerTest {
+    @Autowired
+    private CapitalRaiseListenerService listenerService;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private SecurityRepository securityRepository;
+
+    private Portfolio portfolio;
+    private Buy buy;
+
+    @BeforeEach
+    public void setUp() {
+        Security security = Security.builder().name("Batch Co").symbol("BTCH1").isin("IRO1BTCH0001").build();
+        securityRepository.addSecurity(security);
+        portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "batch"));
+        buy = Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusMinutes(1))
+                .volume(BigInteger.valueOf(10))
+                .price(100.0)
+                .totalValue(BigInteger.valueOf(1000))
+                .security(security)
+                .actionType(ActionType.BUY)
+                .build();
+        actionRepository.save(buy);
+        listenerService.getCapitalRaiseDataList().clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        capitalRaises().forEach(capitalRaise -> actionRepository.deleteById(capitalRaise.getUuid()));
+        actionRepository.deleteById(buy.getUuid());
+        portfolioRepository.deleteById(portfolio.getUuid());
+    }
+
+    private List<CapitalRaise> capitalRaises() {
+        return actionRepository.findAllActionsOf(portfolio.getUuid()).stream()
+                .filter(CapitalRaise.class::isInstance)
+                .map(CapitalRaise.class::cast)
+                .toList();
+    }
+
+    @Test
+    public void batchWithRepeatedSymbol_onMessages_lastAnnouncementAllocatedOnce() {
+        listenerService.onMessages(List.of(
+                new CapitalRaiseListenerService.InboundMessage(UUID.randomUUID().toString(), "CAPITAL_RAISE BTCH1 0.5"),
+                new CapitalRaiseListenerService.InboundMessage(UUID.randomUUID().toString(), "not a capital raise"),
+                new CapitalRaiseListenerService.InboundMessage(UUID.randomUUID().toString(), "CAPITAL_RAISE NOSUCH1 0.5"),
+                new CapitalRaiseListenerService.InboundMessage(UUID.randomUUID().toString(), "<CAPITAL_RAISE>btch1 0.3</CAPITAL_RAISE>")));
+
+        assertThat(listenerService.getCapitalRaiseDataList())
+                .extracting(CapitalRaiseData::getSecuritySymbol)
+                .containsExactly("btch1");
+        List<CapitalRaise> capitalRaises = capitalRaises();
+        assertThat(capitalRaises).hasSize(1);
+        List<BaseAction> actions = actionRepository.findAllActionsOf(portfolio.getUuid());
+        assertEquals(2, actions.size());
+        assertEquals(0.3, capitalRaises.getFirst().getStockRightAmountPerShare());
+        assertEquals(BigInteger.valueOf(3), capitalRaises.getFirst().getSecurityChanges().getFirst().getVolumeChange());
+    }
+
+    @Test
+    public void redeliveredBatch_onMessages_rightsNotAllocatedTwice() {
+        List<CapitalRaiseListenerService.InboundMessage> batch = List.of(
+                new CapitalRaiseListenerService.InboundMessage(UUID.randomUUID().toString(), "CAPITAL_RAISE BTCH1 0.5"));
+
+        listenerService.onMessages(batch);
+        listenerService.onMessages(batch);
+
+        assertThat(capitalRaises()).hasSize(1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.bourse.wealthwise.domain.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest
+@ExtendWith(OutputCaptureExtension.class)
+public class CapitalRaiseListenerLoggingTest {
+    @Autowired
+    private CapitalRaiseListenerService listenerService;
+
+    @Test
+    public void malformedMessage_onMessage_structuredWarningLoggedAsynchronously(CapturedOutput output) {
+        String messageId = UUID.randomUUID().toString();
+
+        listenerService.onMessage("  not   a capital raise ", messageId, null);
+
+        // Written by the async appender's worker, so it may trail the call
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(output.getOut())
+                .contains("Malformed capital raise message")
+                .contains(messageId)
+                .contains("\"normalized\"")
+                .contains("not a capital raise"));
+    }
+
+    @Test
+    public void validMessage_onMessage_perMessageEventsNotLoggedAtInfo(CapturedOutput output) {
+        listenerService.onMessage("CAPITAL_RAISE NOSUCH9 0.5", UUID.randomUUID().toString(), null);
+
+        assertThat(output.getOut()).doesNotContain("Capital raise message received");
+    }
+}
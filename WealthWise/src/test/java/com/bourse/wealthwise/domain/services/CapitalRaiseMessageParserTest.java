@@ -0,0 +1,49 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.DTOs.CapitalRaiseData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CapitalRaiseMessageParserTest {
+
+    private static void assertParsed(String message, String symbol, double ratio) {
+        CapitalRaiseData data = CapitalRaiseMessageParser.parse(message);
+        assertEquals(symbol, data.getSecuritySymbol());
+        assertEquals(ratio, data.getStockRightAmountPerShare());
+    }
+
+    @Test
+    public void plainMessage_parse_symbolAndRatioRead() {
+        assertParsed("CAPITAL_RAISE IKCQ1 0.5", "IKCQ1", 0.5);
+        assertParsed("  capital_raise\tFoolad \n 2 ", "Foolad", 2.0);
+    }
+
+    @Test
+    public void quotedMessage_parse_quotesRemoved() {
+        assertParsed("\"CAPITAL_RAISE IKCQ1 0.5\"", "IKCQ1", 0.5);
+        assertParsed("'CAPITAL_RAISE BMLT1 0.8'", "BMLT1", 0.8);
+    }
+
+    @Test
+    public void xmlMessage_parse_tagsRemoved() {
+        assertParsed("<CAPITAL_RAISE>Foolad 0.5</CAPITAL_RAISE>", "Foolad", 0.5);
+        assertParsed("<msg><type>CAPITAL_RAISE</type><symbol>IKCQ1</symbol><ratio>1.25</ratio></msg>", "IKCQ1", 1.25);
+    }
+
+    @Test
+    public void malformedMessage_parse_nullReturned() {
+        assertNull(CapitalRaiseMessageParser.parse(null));
+        assertNull(CapitalRaiseMessageParser.parse("\""));
+        assertNull(CapitalRaiseMessageParser.parse("CAPITAL_RAISE IKCQ1"));
+        assertNull(CapitalRaiseMessageParser.parse("CAPITAL_RAISE IKCQ1 -0.5"));
+        assertNull(CapitalRaiseMessageParser.parse("DIVIDEND IKCQ1 0.5"));
+    }
+
+    @Test
+    public void messageWithRepeatedWhitespace_normalize_collapsedToSingleSpaces() {
+        assertEquals("CAPITAL_RAISE IKCQ1 0.5", CapitalRaiseMessageParser.normalize("  CAPITAL_RAISE   IKCQ1\t\t0.5  "));
+        assertEquals("CAPITAL_RAISE Foolad 0.5", CapitalRaiseMessageParser.normalize("<CAPITAL_RAISE> Foolad   0.5 </CAPITAL_RAISE>"));
+    }
+}
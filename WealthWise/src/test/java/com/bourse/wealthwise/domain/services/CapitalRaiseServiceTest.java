@@ -80,8 +80,27 @@ public class CapitalRaiseServiceTest {
 
         portfolioRepository.save(portfolio);
     }
+
+    private void sendAndAwaitAllocation(String msg) {
+        listenerService.getCapitalRaiseDataList().clear();
+        jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE, msg);
+        // The listener records the announcement only after every holder has been allocated
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(listenerService.getCapitalRaiseDataList()).hasSize(1));
+    }
+
+    private CapitalRaise allocatedCapitalRaiseOf(Security stockRightSecurity) {
+        List<CapitalRaise> capitalRaises = actionRepository.findAllActionsOf(portfolio.getUuid()).stream()
+                .filter(CapitalRaise.class::isInstance)
+                .map(CapitalRaise.class::cast)
+                .filter(capitalRaise -> capitalRaise.getHSecurity() == stockRightSecurity)
+                .toList();
+        assertThat(capitalRaises).hasSize(1);
+        return capitalRaises.getFirst();
+    }
     @Test //1
     void capitalRaiseMessageCome_getCapitalRaiseData_CapitalRaiseDataReadCorrectly() {
+        listenerService.getCapitalRaiseDataList().clear();
         String msg = "CAPITAL_RAISE IKCQ1 0.5";
         jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE, msg);
 
@@ -95,7 +114,7 @@ public class CapitalRaiseServiceTest {
         });
     }
     @Test //2
-    public void capitalRaiseForBoughtStockEnters_getSecuritiesInfo_NewStockRightSecurityAdded() throws InterruptedException {
+    public void capitalRaiseForBoughtStockEnters_getSecuritiesInfo_NewStockRightSecurityAdded() {
         List<PortfolioSecurityInfo> expectedPortfolioSecurities = new ArrayList<>();
 
         Deposit deposit = Deposit.builder()
@@ -138,23 +157,12 @@ public class CapitalRaiseServiceTest {
                 securityPriceRepository.getPrice(security.getIsin(), LocalDate.now())));
 
         // Artemis send message
-        String msg = "CAPITAL_RAISE IKCQ1 0.5";
-        jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE, msg);
-        await().atMost(4, TimeUnit.SECONDS);
-        Thread.sleep(4000); // 4000 ms = 4 seconds
+        sendAndAwaitAllocation("CAPITAL_RAISE IKCQ1 0.5");
 
         CapitalRaiseData capitalRaiseData = listenerService.getCapitalRaiseDataList().getFirst();
         Security stockRightSecurity = securityRepository.getSecurityBySymbol("H" + capitalRaiseData.getSecuritySymbol());
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(stockRightSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(5))
-                .stockRightAmountPerShare(capitalRaiseData.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(stockRightSecurity);
+        assertEquals(BigInteger.valueOf(5), capitalRaise.getSecurityCurrentVolume());
 
         var stockRightVolume = capitalRaise.getStockRightAmountPerShare() * 5.0;
         expectedPortfolioSecurities.add(new PortfolioSecurityInfo(stockRightSecurity,
@@ -209,22 +217,9 @@ public class CapitalRaiseServiceTest {
                 securityPriceRepository.getPrice(security.getIsin(), LocalDate.now())));
 
         // Artemis send message
-        String msg = "CAPITAL_RAISE BMLT1 0.7";
-        jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE, msg);
-        await().atLeast(5, TimeUnit.SECONDS);
-
-        CapitalRaiseData capitalRaiseData = listenerService.getCapitalRaiseDataList().getFirst();
-        Security stockRightSecurity = securityRepository.getSecurityBySymbol("H" + capitalRaiseData.getSecuritySymbol());
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(stockRightSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(0))
-                .stockRightAmountPerShare(capitalRaiseData.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        sendAndAwaitAllocation("CAPITAL_RAISE BMLT1 0.7");
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid()))
+                .noneMatch(CapitalRaise.class::isInstance);
 
         var actualPortfolioSecurities = portfolioSecuritiesService.getPortfolioSecurities(
                 "21e42b92-cef6-453f-9e52-fa76b1d830f6", LocalDateTime.now().plusSeconds(1));
@@ -241,10 +236,9 @@ public class CapitalRaiseServiceTest {
         }
         actionRepository.deleteById(buy.getUuid());
         actionRepository.deleteById(deposit.getUuid());
-        actionRepository.deleteById(capitalRaise.getUuid());
     }
     @Test //4
-    public void capitalRaiseForMultipleStocksEnter_getSecurityInfo_TwoNewStockRightsAdded() throws InterruptedException {
+    public void capitalRaiseForMultipleStocksEnter_getSecurityInfo_TwoNewStockRightsAdded() {
         List<PortfolioSecurityInfo> expectedPortfolioSecurities = new ArrayList<>();
 
         Deposit deposit = Deposit.builder()
@@ -287,48 +281,25 @@ public class CapitalRaiseServiceTest {
                 securityPriceRepository.getPrice(security.getIsin(), LocalDate.now())));
 
         // Artemis send message
-        String msg = "CAPITAL_RAISE IKCQ1 0.5";
-        jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE, msg);
-        await().atMost(5, TimeUnit.SECONDS);
-        Thread.sleep(4000); // 4000 ms = 4 seconds
+        sendAndAwaitAllocation("CAPITAL_RAISE IKCQ1 0.5");
 
         CapitalRaiseData capitalRaiseData = listenerService.getCapitalRaiseDataList().getFirst();
         Security stockRightSecurity = securityRepository.getSecurityBySymbol("H" + capitalRaiseData.getSecuritySymbol());
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(stockRightSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(5))
-                .stockRightAmountPerShare(capitalRaiseData.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(stockRightSecurity);
+        assertEquals(BigInteger.valueOf(5), capitalRaise.getSecurityCurrentVolume());
 
         var stockRightVolume = capitalRaise.getStockRightAmountPerShare() * 5.0;
         expectedPortfolioSecurities.add(new PortfolioSecurityInfo(stockRightSecurity,
                 BigInteger.valueOf((long) stockRightVolume),
                 securityPriceRepository.getPrice(stockRightSecurity.getIsin(), LocalDate.now())));
-        listenerService.getCapitalRaiseDataList().clear();
 
         // Artemis send message
-        String msg2 = "CAPITAL_RAISE BMLT1 0.8";
-        jmsTemplate.convertAndSend(CapitalRaiseListenerService.IN_QUEUE, msg);
-        await().atMost(5, TimeUnit.SECONDS);
-        Thread.sleep(4000); // 4000 ms = 4 seconds
+        sendAndAwaitAllocation("CAPITAL_RAISE BMLT1 0.8");
 
         CapitalRaiseData capitalRaiseData2 = listenerService.getCapitalRaiseDataList().getFirst();
         Security stockRightSecurity2 = securityRepository.getSecurityBySymbol("H" + capitalRaiseData2.getSecuritySymbol());
-        CapitalRaise capitalRaise2 = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(stockRightSecurity2)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(capitalRaiseData2.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise2);
+        CapitalRaise capitalRaise2 = allocatedCapitalRaiseOf(stockRightSecurity2);
+        assertEquals(BigInteger.valueOf(6), capitalRaise2.getSecurityCurrentVolume());
 
         var stockRightVolume2 = capitalRaise2.getStockRightAmountPerShare() * 6.0;
         expectedPortfolioSecurities.add(new PortfolioSecurityInfo(stockRightSecurity2,
@@ -4,6 +4,7 @@ import com.bourse.wealthwise.domain.entity.account.User;
 import com.bourse.wealthwise.domain.entity.action.Actor;
 import com.bourse.wealthwise.domain.entity.action.BaseAction;
 import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
 import com.bourse.wealthwise.domain.entity.action.utils.ActionDescriptionVisitor;
 import com.bourse.wealthwise.domain.entity.action.utils.ActionVisitor;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
@@ -18,11 +19,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 
 @SpringBootTest
@@ -90,5 +91,79 @@ public class PortfolioActionServiceTest {
                         LocalDateTime.now().plusSeconds(4)),
                 List.of(buy.accept(visitor)));
     }
-}
 
+    @Test
+    public void longHistory_pageThroughBothWays_everyActionOnceInOrder() {
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "paged"));
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < 25; i++) {
+            // Pairs of actions share an instant, so pages also split ties broken by uuid
+            actionRepository.save(Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio)
+                    .datetime(base.plusMinutes(i / 2)).amount(BigInteger.valueOf(i)).build());
+        }
+        LocalDateTime cutoff = base.plusMinutes(12);  // leaves out the 25th deposit
+        List<String> all = portfolioActionService.getActionsForPortfolio(portfolio.getUuid(), cutoff);
+
+        List<String> oldestFirst = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PortfolioActionService.ActionPage page = portfolioActionService.getActionPage(portfolio.getUuid(), cutoff, cursor, 7, false);
+            oldestFirst.addAll(page.descriptions());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+        List<String> newestFirst = new ArrayList<>();
+        do {
+            PortfolioActionService.ActionPage page = portfolioActionService.getActionPage(portfolio.getUuid(), cutoff, cursor, 5, true);
+            newestFirst.addAll(page.descriptions());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(24, all.size());
+        assertEquals(4, pages);
+        assertEquals(all, oldestFirst);
+        assertEquals(all.reversed(), newestFirst);
+        assertEquals(all, portfolioActionService.streamActionsForPortfolio(portfolio.getUuid(), cutoff, false).toList());
+        assertEquals(all.reversed(), portfolioActionService.streamActionsForPortfolio(portfolio.getUuid(), cutoff, true).toList());
+    }
+
+    @Test
+    public void lastPageExactlyFull_getActionPage_noNextCursor() {
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "exact"));
+        for (int i = 0; i < 3; i++) {
+            actionRepository.save(Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio)
+                    .datetime(LocalDateTime.of(2024, 1, 1, 9, i)).amount(BigInteger.ONE).build());
+        }
+
+        PortfolioActionService.ActionPage page = portfolioActionService.getActionPage(
+                portfolio.getUuid(), LocalDateTime.of(2025, 1, 1, 0, 0), null, 3, true);
+
+        assertEquals(3, page.descriptions().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    public void tamperedCursor_getActionPage_invalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> portfolioActionService.getActionPage(
+                "22e42b92-cef6-453f-9e52-fa76b1d830f6", LocalDateTime.now(), "not-a-cursor!", 10, true));
+        assertThrows(InvalidCursorException.class, () -> portfolioActionService.getActionPage(
+                "22e42b92-cef6-453f-9e52-fa76b1d830f6", LocalDateTime.now(), "bm9zcGFjZQ", 10, true));
+    }
+
+    @Test
+    public void buy_describe_sameTextAsFormattedBefore() {
+        Buy buy = Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .security(Security.builder().symbol("FOLD1").build())
+                .datetime(LocalDateTime.of(2024, 3, 5, 14, 7, 59))
+                .volume(BigInteger.valueOf(150))
+                .price(1234.5678905)
+                .totalValue(BigInteger.valueOf(185185))
+                .build();
+
+        assertEquals("[2024-03-05 14:07] Bought 150 of FOLD1 @ 1234.567891/unit (Total: 185185)", buy.accept(visitor));
+        assertEquals(String.format(java.util.Locale.ROOT, "[%s] Bought %s of %s @ %f/unit (Total: %s)",
+                "2024-03-05 14:07", 150, "FOLD1", 1234.5678905, 185185), buy.accept(visitor));
+    }
+}
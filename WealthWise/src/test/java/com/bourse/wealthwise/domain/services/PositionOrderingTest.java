@@ -0,0 +1,98 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.SecurityVolumes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class PositionOrderingTest {
+
+    private final Map<String, Double> prices = new HashMap<>();
+
+    private SecurityVolumes randomHoldings(int count, long seed) {
+        Random random = new Random(seed);
+        SecurityVolumes volumes = new SecurityVolumes();
+        for (int i = 0; i < count; i++) {
+            Security security = Security.builder().name("Security " + random.nextInt(1000) + "-" + i).symbol("S" + i).isin("ISIN" + i).build();
+            // Some positions are closed and some were never priced; volumes and prices repeat to force ties
+            long volume = i % 7 == 0 ? 0 : 1 + random.nextInt(50);
+            volumes.add(i, security, BigInteger.valueOf(volume));
+            if (i % 5 != 0) {
+                prices.put(security.getIsin(), (double) (1 + random.nextInt(20)));
+            }
+        }
+        return volumes;
+    }
+
+    private double priceOf(Security security) {
+        return prices.getOrDefault(security.getIsin(), Double.NaN);
+    }
+
+    @Test
+    public void anyOrderingAndLimit_toSecurityInfos_topRowsOfFullSort() {
+        SecurityVolumes holdings = randomHoldings(300, 7L);
+
+        for (PositionOrdering ordering : PositionOrdering.values()) {
+            List<PortfolioSecurityInfo> sorted = ViewPortfolioSecuritiesService.toSecurityInfos(holdings, this::priceOf, ordering, Integer.MAX_VALUE);
+            for (int limit : new int[]{1, 20, 100, sorted.size() - 1, sorted.size(), sorted.size() + 10}) {
+                List<PortfolioSecurityInfo> top = ViewPortfolioSecuritiesService.toSecurityInfos(holdings, this::priceOf, ordering, limit);
+
+                assertThat(top).as("%s top %d", ordering, limit)
+                        .extracting(info -> info.getSecurity().getSymbol())
+                        .containsExactlyElementsOf(sorted.subList(0, Math.min(limit, sorted.size())).stream()
+                                .map(info -> info.getSecurity().getSymbol()).toList());
+            }
+        }
+    }
+
+    @Test
+    public void closedPositions_topByValue_filteredBeforeLimit() {
+        SecurityVolumes holdings = new SecurityVolumes();
+        Security closed = Security.builder().name("Closed").isin("CLOSED").build();
+        Security small = Security.builder().name("Small").isin("SMALL").build();
+        holdings.add(1, closed, BigInteger.valueOf(100));
+        holdings.add(1, closed, BigInteger.valueOf(-100));
+        holdings.add(2, small, BigInteger.ONE);
+        prices.put("CLOSED", 1000.0);
+        prices.put("SMALL", 1.0);
+
+        List<PortfolioSecurityInfo> top = ViewPortfolioSecuritiesService.toSecurityInfos(holdings, this::priceOf, PositionOrdering.VALUE, 1);
+
+        assertThat(top).extracting(info -> info.getSecurity().getName()).containsExactly("Small");
+    }
+
+    @Test
+    public void pricedAndUnpricedRows_toSecurityInfos_weightsOfPricedSumToOne() {
+        List<PortfolioSecurityInfo> rows = ViewPortfolioSecuritiesService.toSecurityInfos(randomHoldings(100, 11L), this::priceOf,
+                PositionOrdering.WEIGHT, Integer.MAX_VALUE);
+
+        double sum = 0;
+        for (PortfolioSecurityInfo info : rows) {
+            assertThat(info.getWeight() == null).isEqualTo(info.getValue() == null);
+            sum += info.getWeight() == null ? 0 : info.getWeight();
+        }
+        assertThat(sum).isCloseTo(1.0, within(1e-9));
+        assertThat(rows.get(rows.size() - 1).getWeight()).isNull();
+    }
+
+    @Test
+    public void mixedCaseNames_orderByName_collatedRatherThanByCodePoint() {
+        SecurityVolumes holdings = new SecurityVolumes();
+        holdings.add(1, Security.builder().name("banana").isin("B").build(), BigInteger.ONE);
+        holdings.add(2, Security.builder().name("Cherry").isin("C").build(), BigInteger.ONE);
+        holdings.add(3, Security.builder().name("apple").isin("A").build(), BigInteger.ONE);
+
+        List<PortfolioSecurityInfo> rows = ViewPortfolioSecuritiesService.toSecurityInfos(holdings, this::priceOf);
+
+        assertThat(rows).extracting(info -> info.getSecurity().getName()).containsExactly("apple", "banana", "Cherry");
+    }
+}
@@ -89,6 +89,16 @@ public class StockRightTradeTest {
                 .build();
         actionRepository.save(buyBase);
     }
+    private CapitalRaise allocatedCapitalRaiseOf(Security rightsSecurity) {
+        List<CapitalRaise> capitalRaises = actionRepository.findAllActionsOf(portfolio.getUuid()).stream()
+                .filter(CapitalRaise.class::isInstance)
+                .map(CapitalRaise.class::cast)
+                .filter(capitalRaise -> capitalRaise.getHSecurity() == rightsSecurity)
+                .toList();
+        assertThat(capitalRaises).hasSize(1);
+        return capitalRaises.getFirst();
+    }
+
     @Test //1
     public void rightsAllocated_buyAndSellRights_volumeUpdatedCorrectly() {
         // Clear previous capital raise messages
@@ -105,17 +115,9 @@ public class StockRightTradeTest {
         CapitalRaiseData data = listenerService.getCapitalRaiseDataList().getFirst();
         Security rightsSecurity = securityRepository.getSecurityBySymbol("H" + data.getSecuritySymbol());
 
-        // Save capital raise action allocating rights (3 rights)
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(rightsSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(data.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        // The listener allocated 3 rights for the 6 shares held
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(rightsSecurity);
+        assertEquals(BigInteger.valueOf(6), capitalRaise.getSecurityCurrentVolume());
 
         // Buy 4 more rights
         Buy buyRights = Buy.builder()
@@ -180,16 +182,8 @@ public class StockRightTradeTest {
         Security rightsSecurity = securityRepository.getSecurityBySymbol("H" + data.getSecuritySymbol());
         securityPriceRepository.addPrice(rightsSecurity.getIsin(), LocalDate.now(), 50.0);
 
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(rightsSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(data.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(rightsSecurity);
+        assertEquals(BigInteger.valueOf(6), capitalRaise.getSecurityCurrentVolume());
 
         BigInteger expectedRightsVolume = BigInteger.ONE;  // floor(6*0.3) = 1
         BigInteger expectedBaseVolume   = BigInteger.valueOf(6);
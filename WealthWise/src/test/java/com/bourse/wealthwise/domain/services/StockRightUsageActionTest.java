@@ -91,6 +91,16 @@ public class StockRightUsageActionTest {
         actionRepository.save(buyBase);
     }
 
+    private CapitalRaise allocatedCapitalRaiseOf(Security rightsSecurity) {
+        List<CapitalRaise> capitalRaises = actionRepository.findAllActionsOf(portfolio.getUuid()).stream()
+                .filter(CapitalRaise.class::isInstance)
+                .map(CapitalRaise.class::cast)
+                .filter(capitalRaise -> capitalRaise.getHSecurity() == rightsSecurity)
+                .toList();
+        assertThat(capitalRaises).hasSize(1);
+        return capitalRaises.getFirst();
+    }
+
     @Test
     public void rightsUsage_convertsRightsToSharesAndDeductsBalance() {
         listenerService.getCapitalRaiseDataList().clear();
@@ -104,16 +114,8 @@ public class StockRightUsageActionTest {
         CapitalRaiseData data = listenerService.getCapitalRaiseDataList().getFirst();
         Security rightsSecurity = securityRepository.getSecurityBySymbol("H" + data.getSecuritySymbol());
 
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(rightsSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(data.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(rightsSecurity);
+        assertEquals(BigInteger.valueOf(6), capitalRaise.getSecurityCurrentVolume());
 
         BigInteger rightsToUse = BigInteger.valueOf((long) (6 * data.getStockRightAmountPerShare()));
         StockRightUsage usage = StockRightUsage.builder()
@@ -163,16 +165,8 @@ public class StockRightUsageActionTest {
         Security rightsSecurity = securityRepository.getSecurityBySymbol("H" + data.getSecuritySymbol());
         securityPriceRepository.addPrice(rightsSecurity.getIsin(), LocalDate.now(), 100.0);
 
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(rightsSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(data.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(rightsSecurity);
+        assertEquals(BigInteger.valueOf(6), capitalRaise.getSecurityCurrentVolume());
 
         BigInteger rightsToUse = BigInteger.valueOf(2);
         StockRightUsage usage = StockRightUsage.builder()
@@ -232,16 +226,8 @@ public class StockRightUsageActionTest {
         Security rightsSecurity = securityRepository.getSecurityBySymbol("H" + data.getSecuritySymbol());
         securityPriceRepository.addPrice(rightsSecurity.getIsin(), LocalDate.now(), 100.0);
 
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(rightsSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(data.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(rightsSecurity);
+        assertEquals(BigInteger.valueOf(6), capitalRaise.getSecurityCurrentVolume());
 
         Buy buyRights = Buy.builder()
                 .uuid(UUID.randomUUID().toString())
@@ -304,16 +290,8 @@ public class StockRightUsageActionTest {
 
         securityPriceRepository.addPrice(rightsSecurity.getIsin(), LocalDate.now(), 100.0);
 
-        CapitalRaise capitalRaise = CapitalRaise.builder()
-                .uuid(UUID.randomUUID().toString())
-                .portfolio(portfolio)
-                .datetime(LocalDateTime.now())
-                .HSecurity(rightsSecurity)
-                .securityCurrentVolume(BigInteger.valueOf(6))
-                .stockRightAmountPerShare(data.getStockRightAmountPerShare())
-                .actionType(ActionType.CAPITAL_RAISE)
-                .build();
-        actionRepository.save(capitalRaise);
+        CapitalRaise capitalRaise = allocatedCapitalRaiseOf(rightsSecurity);
+        assertEquals(BigInteger.valueOf(6), capitalRaise.getSecurityCurrentVolume());
 
         StockRightUsage usage = StockRightUsage.builder()
                 .uuid(UUID.randomUUID().toString())
@@ -0,0 +1,161 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioSecurityInfo;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+public class ValuationSeriesServiceTest {
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+    @Autowired
+    private HoldingsProjection holdingsProjection;
+    @Autowired
+    private ValuationSeriesService valuationSeriesService;
+
+    private Portfolio portfolio;
+    private Security khodro;
+    private Security mellat;
+
+    @BeforeEach
+    public void setUp() {
+        portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "series"));
+        String suffix = portfolio.getUuid().substring(0, 4);
+        khodro = Security.builder().name("Khodro").symbol("KHOD1").isin("IRO1KHOD" + suffix).build();
+        mellat = Security.builder().name("Mellat").symbol("MELL1").isin("IRO1MELL" + suffix).build();
+
+        // Khodro is priced on some days only; Mellat has no price until it has been held for days
+        securityPriceRepository.addPrice(khodro.getIsin(), LocalDate.of(2024, 1, 1), 10.0);
+        securityPriceRepository.addPrice(khodro.getIsin(), LocalDate.of(2024, 1, 3), 12.0);
+        securityPriceRepository.addPrice(khodro.getIsin(), LocalDate.of(2024, 1, 10), 15.0);
+        securityPriceRepository.addPrice(khodro.getIsin(), LocalDate.of(2024, 2, 20), 16.0);
+        securityPriceRepository.addPrice(mellat.getIsin(), LocalDate.of(2024, 1, 5), 4.0);
+        securityPriceRepository.addPrice(mellat.getIsin(), LocalDate.of(2024, 3, 1), 5.0);
+
+        actionRepository.save(Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio)
+                .datetime(LocalDateTime.of(2023, 12, 31, 9, 0)).amount(BigInteger.valueOf(100_000))
+                .actionType(ActionType.DEPOSIT).build());
+        buy(khodro, LocalDateTime.of(2024, 1, 1, 10, 0), 10);
+        buy(mellat, LocalDateTime.of(2024, 1, 2, 11, 0), 5);
+        sell(khodro, LocalDateTime.of(2024, 1, 4, 12, 0), 4);
+        buy(mellat, LocalDateTime.of(2024, 1, 6, 23, 59), 20);
+        sell(khodro, LocalDateTime.of(2024, 2, 15, 10, 0), 6);
+    }
+
+    @Test
+    public void tradesAndPriceGaps_dailySeries_matchesValuationOfEachDate() {
+        LocalDate from = LocalDate.of(2023, 12, 30);
+        LocalDate to = LocalDate.of(2024, 3, 2);
+
+        List<ValuationSeriesService.ValuationPoint> series =
+                valuationSeriesService.getValuationSeries(portfolio.getUuid(), from, to, Period.ofDays(1));
+
+        assertThat(series).hasSize(64);
+        for (ValuationSeriesService.ValuationPoint point : series) {
+            assertSameValuation(point, point.date());
+        }
+    }
+
+    @Test
+    public void tradesOnFirstDate_series_firstPointIncludesThem() {
+        ValuationSeriesService.ValuationPoint first = valuationSeriesService.getValuationSeries(portfolio.getUuid(),
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1), Period.ofDays(1)).get(0);
+
+        assertThat(first.securities()).hasSize(1);
+        assertThat(first.securities().get(0).getVolume()).isEqualTo(BigInteger.TEN);
+        assertThat(first.totalValue()).isEqualTo(100.0);
+    }
+
+    @Test
+    public void heldBeforeFirstPrice_series_securityListedWithoutValue() {
+        ValuationSeriesService.ValuationPoint point = valuationSeriesService.getValuationSeries(portfolio.getUuid(),
+                LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 3), Period.ofDays(1)).get(0);
+
+        assertThat(point.securities()).extracting(info -> info.getSecurity().getSymbol()).containsExactly("KHOD1", "MELL1");
+        assertThat(point.securities().get(1).getValue()).isNull();
+        assertThat(point.totalValue()).isEqualTo(120.0);
+    }
+
+    @Test
+    public void monthlyStepFromMonthEnd_series_landsOnEachMonthEnd() {
+        List<ValuationSeriesService.ValuationPoint> series = valuationSeriesService.getValuationSeries(portfolio.getUuid(),
+                LocalDate.of(2024, 1, 31), LocalDate.of(2024, 4, 30), Period.ofMonths(1));
+
+        assertThat(series).extracting(ValuationSeriesService.ValuationPoint::date).containsExactly(
+                LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 31), LocalDate.of(2024, 4, 30));
+        for (ValuationSeriesService.ValuationPoint point : series) {
+            assertSameValuation(point, point.date());
+        }
+    }
+
+    @Test
+    public void invalidRange_getValuationSeries_rejected() {
+        String id = portfolio.getUuid();
+        LocalDate day = LocalDate.of(2024, 1, 1);
+
+        assertThatThrownBy(() -> valuationSeriesService.getValuationSeries(id, day, day.minusDays(1), Period.ofDays(1)))
+                .isInstanceOf(InvalidValuationRangeException.class);
+        assertThatThrownBy(() -> valuationSeriesService.getValuationSeries(id, day, day, Period.ZERO))
+                .isInstanceOf(InvalidValuationRangeException.class);
+        assertThatThrownBy(() -> valuationSeriesService.getValuationSeries(id, day, day.plusYears(30), Period.ofDays(1)))
+                .isInstanceOf(InvalidValuationRangeException.class);
+        assertThatThrownBy(() -> valuationSeriesService.getValuationSeries(UUID.randomUUID().toString(), day, day, Period.ofDays(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Portfolio not found");
+    }
+
+    // Reference: holdings at the end of the date from the projection, priced by a lookup per security
+    private void assertSameValuation(ValuationSeriesService.ValuationPoint point, LocalDate date) {
+        List<PortfolioSecurityInfo> expected = ViewPortfolioSecuritiesService.toSecurityInfos(
+                holdingsProjection.volumesBefore(portfolio.getUuid(), date.plusDays(1).atStartOfDay()),
+                security -> securityPriceRepository.getPriceAsOfOrNaN(security.getIsin(), date));
+
+        assertThat(point.securities()).as("holdings on %s", date).hasSameSizeAs(expected);
+        double total = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            PortfolioSecurityInfo actual = point.securities().get(i);
+            assertThat(actual.getSecurity().getIsin()).isEqualTo(expected.get(i).getSecurity().getIsin());
+            assertThat(actual.getVolume()).as("volume on %s", date).isEqualTo(expected.get(i).getVolume());
+            assertThat(actual.getPrice()).as("price on %s", date).isEqualTo(expected.get(i).getPrice());
+            assertThat(actual.getValue()).as("value on %s", date).isEqualTo(expected.get(i).getValue());
+            total += expected.get(i).getValue() == null ? 0 : expected.get(i).getValue();
+        }
+        assertThat(point.totalValue()).as("total on %s", date).isEqualTo(total);
+    }
+
+    private void buy(Security security, LocalDateTime datetime, long volume) {
+        actionRepository.save(Buy.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(datetime)
+                .security(security).volume(BigInteger.valueOf(volume)).price(1.0).totalValue(BigInteger.valueOf(volume))
+                .actionType(ActionType.BUY).build());
+    }
+
+    private void sell(Security security, LocalDateTime datetime, long volume) {
+        actionRepository.save(Sale.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(datetime)
+                .security(security).volume(BigInteger.valueOf(volume)).price(1.0).totalValue(BigInteger.valueOf(volume))
+                .actionType(ActionType.SALE).build());
+    }
+}
@@ -0,0 +1,88 @@
+package com.bourse.wealthwise.metrics;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.services.BalanceActionService;
+import com.bourse.wealthwise.domain.services.CapitalRaiseListenerService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private BalanceActionService balanceActionService;
+    @Autowired
+    private CapitalRaiseListenerService capitalRaiseListenerService;
+
+    @Test
+    public void balanceQuery_prometheusScrape_timerAndRepositoryGaugesExposed() throws Exception {
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "metrics"));
+        actionRepository.save(Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio)
+                .datetime(LocalDateTime.of(2025, 5, 1, 9, 0)).amount(BigInteger.TEN).actionType(ActionType.DEPOSIT).build());
+        long before = meterRegistry.get("wealthwise.portfolio.balance").timer().count();
+
+        balanceActionService.getBalanceForPortfolio(portfolio.getUuid(), LocalDateTime.MAX);
+
+        assertEquals(before + 1, meterRegistry.get("wealthwise.portfolio.balance").timer().count());
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(scrape)
+                .contains("wealthwise_portfolio_balance_seconds_bucket")
+                .contains("wealthwise_repository_entries{repository=\"actions\"}")
+                .contains("wealthwise_repository_entries{repository=\"price_points\"}")
+                .contains("wealthwise_capital_raise_parse_failures_total");
+    }
+
+    @Test
+    public void malformedMessage_onMessage_consumedAndParseFailureCounted() {
+        double consumed = meterRegistry.get("wealthwise.capital_raise.messages").counter().count();
+        double failures = meterRegistry.get("wealthwise.capital_raise.parse_failures").counter().count();
+        long lagged = meterRegistry.get("wealthwise.capital_raise.lag").timer().count();
+
+        capitalRaiseListenerService.onMessage("not a capital raise", UUID.randomUUID().toString(), System.currentTimeMillis() - 50);
+
+        assertEquals(consumed + 1, meterRegistry.get("wealthwise.capital_raise.messages").counter().count());
+        assertEquals(failures + 1, meterRegistry.get("wealthwise.capital_raise.parse_failures").counter().count());
+        assertEquals(lagged + 1, meterRegistry.get("wealthwise.capital_raise.lag").timer().count());
+    }
+
+    @Test
+    public void disabledTimer_startAndStop_recordsNothing() {
+        QueryTimer timer = WealthWiseMetrics.disabled().queryTimer("wealthwise.test.disabled", "Disabled");
+
+        long start = timer.start();
+        timer.stop(start, 3);
+
+        assertEquals(0L, start);
+        assertThat(meterRegistry.find("wealthwise.test.disabled").meters()).isEmpty();
+    }
+}
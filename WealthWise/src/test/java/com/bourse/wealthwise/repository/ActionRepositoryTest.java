@@ -0,0 +1,173 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class ActionRepositoryTest {
+    @Autowired
+    private ActionRepository actionRepository;
+
+    private Portfolio portfolio;
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    private Deposit deposit(Portfolio owner, LocalDateTime datetime, long amount) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(owner)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(amount))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        portfolio = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "indexed");
+    }
+
+    @Test
+    public void actionsSavedOutOfOrder_findAllActionsOf_returnedInTimeOrder() {
+        Deposit third = deposit(portfolio, base.plusHours(2), 3);
+        Deposit first = deposit(portfolio, base, 1);
+        Deposit second = deposit(portfolio, base.plusHours(1), 2);
+        actionRepository.save(third);
+        actionRepository.save(first);
+        actionRepository.save(second);
+
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid()))
+                .containsExactly(first, second, third);
+    }
+
+    @Test
+    public void actionsOfSeveralPortfolios_findActionsOfBefore_onlyEarlierActionsOfPortfolioReturned() {
+        Portfolio other = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "other");
+        Deposit early = deposit(portfolio, base, 1);
+        Deposit atCutoff = deposit(portfolio, base.plusHours(1), 2);
+        Deposit foreign = deposit(other, base, 3);
+        actionRepository.save(early);
+        actionRepository.save(atCutoff);
+        actionRepository.save(foreign);
+
+        List<BaseAction> found = actionRepository.findActionsOfBefore(portfolio.getUuid(), base.plusHours(1));
+
+        assertThat(found).containsExactly(early);
+        assertThat(actionRepository.findActionsOfBetween(portfolio.getUuid(), base.plusHours(1), base.plusHours(2)))
+                .containsExactly(atCutoff);
+    }
+
+    @Test
+    public void actionResavedWithNewTime_findAllActionsOf_indexFollowsActionAndDeleteRemovesIt() {
+        Deposit deposit = deposit(portfolio, base, 1);
+        actionRepository.save(deposit);
+        Deposit moved = Deposit.builder()
+                .uuid(deposit.getUuid())
+                .portfolio(portfolio)
+                .datetime(base.plusDays(1))
+                .amount(BigInteger.ONE)
+                .actionType(ActionType.DEPOSIT)
+                .build();
+        actionRepository.save(moved);
+
+        assertThat(actionRepository.findActionsOfBefore(portfolio.getUuid(), base.plusHours(1))).isEmpty();
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).containsExactly(moved);
+
+        actionRepository.deleteById(deposit.getUuid());
+
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).isEmpty();
+        assertThat(actionRepository.findById(deposit.getUuid())).isEmpty();
+    }
+
+    @Test
+    public void logRejectsWrite_save_nothingStoredOrNotified() {
+        ActionRepository repository = new ActionRepository();
+        List<BaseAction> notified = new ArrayList<>();
+        repository.subscribe(recordingListener(notified));
+        repository.attach(new ActionLog() {
+            @Override
+            public void saving(BaseAction action) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+
+            @Override
+            public void deleting(String uuid) {
+            }
+        });
+        Deposit deposit = deposit(portfolio, base, 1);
+
+        assertThrows(UncheckedIOException.class, () -> repository.save(deposit));
+
+        assertThat(repository.findById(deposit.getUuid())).isEmpty();
+        assertThat(repository.findAllActionsOf(portfolio.getUuid())).isEmpty();
+        assertThat(notified).isEmpty();
+    }
+
+    @Test
+    public void listenerThrows_save_writeLoggedAndStored() {
+        ActionRepository repository = new ActionRepository();
+        List<String> logged = new ArrayList<>();
+        repository.attach(new ActionLog() {
+            @Override
+            public void saving(BaseAction action) {
+                logged.add(action.getUuid());
+            }
+
+            @Override
+            public void deleting(String uuid) {
+                logged.add(uuid);
+            }
+        });
+        repository.subscribe(new ActionChangeListener() {
+            @Override
+            public void onSaved(BaseAction action, BaseAction replaced) {
+                throw new IllegalStateException("projection failed");
+            }
+
+            @Override
+            public void onDeleted(BaseAction action) {
+            }
+        });
+        Deposit deposit = deposit(portfolio, base, 1);
+
+        assertThrows(IllegalStateException.class, () -> repository.save(deposit));
+
+        assertThat(logged).containsExactly(deposit.getUuid());
+        assertThat(repository.findById(deposit.getUuid())).contains(deposit);
+        assertThat(repository.findAllActionsOf(portfolio.getUuid())).containsExactly(deposit);
+
+        repository.deleteById("missing");
+        assertThat(logged).containsExactly(deposit.getUuid());
+    }
+
+    private static ActionChangeListener recordingListener(List<BaseAction> notified) {
+        return new ActionChangeListener() {
+            @Override
+            public void onSaved(BaseAction action, BaseAction replaced) {
+                notified.add(action);
+            }
+
+            @Override
+            public void onDeleted(BaseAction action) {
+                notified.add(action);
+            }
+        };
+    }
+}
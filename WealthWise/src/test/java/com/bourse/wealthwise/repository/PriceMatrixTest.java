@@ -0,0 +1,98 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class PriceMatrixTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    private Path directory;
+
+    private final SecurityPriceRepository heap = new SecurityPriceRepository();
+    private Path file;
+
+    @BeforeEach
+    public void setUp() {
+        // Each security skips some days, and one ISIN is not ASCII
+        Random random = new Random(3);
+        for (int s = 0; s < 40; s++) {
+            String isin = s == 7 ? "IRO1ÄPFEL01" : "IRO1SEC" + s;
+            for (int d = 0; d < 120; d++) {
+                if (random.nextInt(4) > 0) {
+                    heap.addPrice(isin, FIRST_DAY.plusDays(d), (double) (100 + random.nextInt(900)));
+                }
+            }
+        }
+        Map<String, PriceSeries> series = new HashMap<>();
+        heap.forEachSeries(series::put);
+        file = directory.resolve("prices.matrix");
+        PriceMatrix.write(file, series);
+    }
+
+    @Test
+    public void mappedMatrix_lookups_sameAsHeapSeries() {
+        SecurityPriceRepository mapped = new SecurityPriceRepository();
+        mapped.loadMatrix(file);
+
+        for (int s = 0; s < 40; s++) {
+            String isin = s == 7 ? "IRO1ÄPFEL01" : "IRO1SEC" + s;
+            for (int d = -3; d < 125; d++) {
+                LocalDate date = FIRST_DAY.plusDays(d);
+                assertThat(mapped.getPrice(isin, date)).as("%s on %s", isin, date).isEqualTo(heap.getPrice(isin, date));
+                assertThat(mapped.getPriceAsOf(isin, date)).as("%s as of %s", isin, date).isEqualTo(heap.getPriceAsOf(isin, date));
+            }
+            assertThat(mapped.getPricesForSecurity(isin))
+                    .extracting(SecurityPrice::getDate, SecurityPrice::getPrice)
+                    .containsExactlyElementsOf(heap.getPricesForSecurity(isin).stream()
+                            .map(price -> tuple(price.getDate(), price.getPrice())).toList());
+        }
+        assertThat(mapped.getPrice("UNKNOWN", FIRST_DAY)).isNull();
+        assertThat(mapped.pricePointCount()).isEqualTo(heap.pricePointCount());
+    }
+
+    @Test
+    public void heapPricesOverMatrix_lookups_heapWinsOnSharedAndLaterDays() {
+        SecurityPriceRepository mapped = new SecurityPriceRepository();
+        mapped.loadMatrix(file);
+        LocalDate last = FIRST_DAY.plusDays(119);
+        double matrixPrice = mapped.getPriceAsOf("IRO1SEC1", last);
+
+        mapped.addPrice("IRO1SEC1", FIRST_DAY, 1.0);
+        mapped.addPrice("IRO1SEC1", last.plusDays(10), 2.0);
+        mapped.addPrice("IRO1NEW", last, 3.0);
+
+        assertThat(mapped.getPrice("IRO1SEC1", FIRST_DAY)).isEqualTo(1.0);
+        assertThat(mapped.getPriceAsOf("IRO1SEC1", last)).isEqualTo(matrixPrice);
+        assertThat(mapped.getPriceAsOf("IRO1SEC1", last.plusDays(30))).isEqualTo(2.0);
+        int added = (heap.getPrice("IRO1SEC1", FIRST_DAY) == null ? 1 : 0) + 1;
+        assertThat(mapped.getSeries("IRO1SEC1").size()).isEqualTo(heap.getSeries("IRO1SEC1").size() + added);
+
+        Set<String> isins = new HashSet<>();
+        mapped.forEachSeries((isin, series) -> isins.add(isin));
+        assertThat(isins).hasSize(41).contains("IRO1NEW", "IRO1ÄPFEL01");
+    }
+
+    @Test
+    public void truncatedFile_loadMatrix_rejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThatThrownBy(() -> new SecurityPriceRepository().loadMatrix(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("truncated");
+    }
+}
@@ -0,0 +1,81 @@
+package com.bourse.wealthwise.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceSnapshotTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    private final SecurityPriceRepository repository = new SecurityPriceRepository();
+
+    @Test
+    public void pinnedSnapshot_laterWrites_unchanged() {
+        repository.addPrice("IRO1SEC1", FIRST_DAY, 100.0);
+        PriceSnapshot pinned = repository.snapshot();
+
+        repository.addPrice("IRO1SEC1", FIRST_DAY, 101.0);
+        repository.addDay(FIRST_DAY.plusDays(1), new String[]{"IRO1SEC1", "IRO1SEC2"}, new double[]{110.0, 50.0}, 2);
+
+        assertThat(pinned.getPrice("IRO1SEC1", FIRST_DAY)).isEqualTo(100.0);
+        assertThat(pinned.getPriceAsOf("IRO1SEC1", FIRST_DAY.plusDays(5))).isEqualTo(100.0);
+        assertThat(pinned.getPriceAsOf("IRO1SEC2", FIRST_DAY.plusDays(5))).isNull();
+        assertThat(pinned.getSeries("IRO1SEC1").size()).isEqualTo(1);
+        assertThat(repository.getPrice("IRO1SEC1", FIRST_DAY)).isEqualTo(101.0);
+        assertThat(repository.getPriceAsOf("IRO1SEC2", FIRST_DAY.plusDays(5))).isEqualTo(50.0);
+        assertThat(repository.snapshot().version()).isEqualTo(pinned.version() + 2);
+    }
+
+    @Test
+    public void daysLoadedConcurrently_pinnedSnapshot_seesEachDayWholeOrNotAtAll() throws Exception {
+        int securities = 500;
+        int days = 400;
+        String[] isins = new String[securities];
+        for (int s = 0; s < securities; s++) {
+            isins[s] = "IRO1SEC" + s;
+        }
+        double[] prices = new double[securities];
+        repository.addDay(FIRST_DAY, isins, prices, securities);
+        AtomicBoolean loading = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] checks = new Future<?>[4];
+            for (int r = 0; r < checks.length; r++) {
+                checks[r] = readers.submit(() -> {
+                    // Every security is priced d on day d, so one snapshot must agree on the latest day
+                    long lastVersion = -1;
+                    while (loading.get()) {
+                        PriceSnapshot snapshot = repository.snapshot();
+                        assertThat(snapshot.version()).isGreaterThanOrEqualTo(lastVersion);
+                        lastVersion = snapshot.version();
+                        double latest = snapshot.getPriceAsOfOrNaN(isins[0], FIRST_DAY.plusDays(days));
+                        for (String isin : isins) {
+                            assertThat(snapshot.getPriceAsOfOrNaN(isin, FIRST_DAY.plusDays(days))).isEqualTo(latest);
+                        }
+                    }
+                });
+            }
+
+            for (int d = 1; d < days; d++) {
+                Arrays.fill(prices, d);
+                repository.addDay(FIRST_DAY.plusDays(d), isins, prices, securities);
+            }
+            loading.set(false);
+            for (Future<?> check : checks) {
+                check.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+        assertThat(repository.getSeries(isins[securities - 1]).size()).isEqualTo(days);
+    }
+}
@@ -0,0 +1,56 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+public class SecurityPriceRepositoryTest {
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private static final String ISIN = "IRO1PRICE001";
+    private final LocalDate wednesday = LocalDate.of(2025, 1, 1);
+
+    @BeforeEach
+    public void setUp() {
+        // Added out of order on purpose; the series keeps itself sorted
+        securityPriceRepository.addPrice(ISIN, wednesday.plusDays(2), 120.0);
+        securityPriceRepository.addPrice(ISIN, wednesday, 100.0);
+        securityPriceRepository.addPrice(ISIN, wednesday.plusDays(1), 110.0);
+    }
+
+    @Test
+    public void pricedDays_getPriceOnHoliday_noExactPriceButAsOfPriceFromLastTradingDay() {
+        LocalDate weekend = wednesday.plusDays(4);
+
+        assertNull(securityPriceRepository.getPrice(ISIN, weekend));
+        assertEquals(120.0, securityPriceRepository.getPriceAsOf(ISIN, weekend));
+        assertEquals(110.0, securityPriceRepository.getPriceAsOf(ISIN, wednesday.plusDays(1)));
+    }
+
+    @Test
+    public void pricedDays_getPriceAsOfBeforeFirstPrice_nullReturned() {
+        assertNull(securityPriceRepository.getPriceAsOf(ISIN, wednesday.minusDays(1)));
+        assertNull(securityPriceRepository.getPriceAsOf("UNKNOWN", wednesday));
+    }
+
+    @Test
+    public void pricedDays_getPricesInRange_inclusiveRangeInDateOrder() {
+        List<SecurityPrice> prices = securityPriceRepository.getPrices(ISIN, wednesday.plusDays(1), wednesday.plusDays(5));
+
+        assertThat(prices).extracting(SecurityPrice::getDate)
+                .containsExactly(wednesday.plusDays(1), wednesday.plusDays(2));
+        assertThat(securityPriceRepository.getPricesForSecurity(ISIN)).extracting(SecurityPrice::getPrice)
+                .containsExactly(100.0, 110.0, 120.0);
+    }
+}
@@ -39,5 +39,21 @@ public class SecurityRepositoryTest {
         assertNull(foundSecurity);
     }
 
+    @Test
+    public void someSecurityExists_tryToGetSecurityBySymbolInOtherCase_securityReturnedCorrectly(){
+        Security foundSecurity = securityRepository.getSecurityBySymbol("FOOLAD");
+
+        assertThat(foundSecurity.getIsin()).isEqualTo("1234567890");
+    }
+
+    @Test
+    public void securityReplacedWithNewSymbol_tryToGetSecurityByOldSymbol_noSecurityFound(){
+        Security renamed = Security.builder().isin("1234567890").name("foolad-mobarake").symbol("foolad2").build();
+        securityRepository.addSecurity(renamed);
+
+        assertNull(securityRepository.getSecurityBySymbol("foolad"));
+        assertThat(securityRepository.getSecurityBySymbol("foolad2")).isSameAs(renamed);
+    }
+
 
 }
@@ -0,0 +1,149 @@
+package com.bourse.wealthwise.repository.codec;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActionCodecTest {
+
+    private final Portfolio portfolio = new Portfolio(UUID.randomUUID().toString(),
+            User.builder().uuid("u1").firstName("Sara").lastName("Ahmadi").build(), "encoded");
+    private final Security security = Security.builder().name("Codec Co").symbol("CODC1").isin("IRO1CODC0001").build();
+    private final Security right = Security.builder().name("HCodec Co").symbol("HCODC1").isin("HIRO1CODC0001")
+            .securityType(SecurityType.STOCK_RIGHT).build();
+    private final LocalDateTime base = LocalDateTime.of(2025, 2, 1, 9, 30, 15, 123_456_789);
+
+    private List<BaseAction> everyKind() {
+        StockRightUsage usage = StockRightUsage.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio)
+                .datetime(base.plusHours(5)).stockRightSecurity(right).mainSecurity(security)
+                .volume(BigInteger.TWO).pricePerRight(BigInteger.valueOf(100)).actionType(ActionType.STOCK_RIGHT_USAGE).build();
+        usage.setActor(Actor.MANUAL);
+        return List.of(
+                Deposit.builder().uuid("deposit-1").portfolio(portfolio).datetime(base).tracing_number("TR-1")
+                        .amount(BigInteger.valueOf(1_000_000)).actionType(ActionType.DEPOSIT).build(),
+                Buy.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(base.plusHours(1))
+                        .security(security).volume(BigInteger.TEN).price(50.5).totalValue(BigInteger.valueOf(505))
+                        .actionType(ActionType.BUY).build(),
+                Sale.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(base.plusHours(2))
+                        .security(security).volume(BigInteger.TWO).price(null).totalValue(BigInteger.valueOf(-100))
+                        .actionType(ActionType.SALE).build(),
+                Withdrawal.builder().uuid(UUID.randomUUID().toString().toUpperCase()).portfolio(portfolio)
+                        .datetime(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1))
+                        .amount(new BigInteger("-123456789012345678901234567890")).actionType(ActionType.WITHDRAWAL).build(),
+                CapitalRaise.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(base.plusHours(4))
+                        .HSecurity(right).securityCurrentVolume(BigInteger.ONE.shiftLeft(62)).stockRightAmountPerShare(0.5)
+                        .actionType(ActionType.CAPITAL_RAISE).build(),
+                usage);
+    }
+
+    private static List<BaseAction> roundTrip(List<BaseAction> actions) {
+        ActionCodec encoder = new ActionCodec(new CodecDictionary());
+        List<byte[]> encoded = new ArrayList<>();
+        for (BaseAction action : actions) {
+            encoded.add(encoder.encode(action));
+        }
+        ActionCodec decoder = new ActionCodec(new CodecDictionary());
+        List<BaseAction> decoded = new ArrayList<>();
+        for (byte[] bytes : encoded) {
+            BinaryReader in = BinaryReader.of(bytes);
+            decoded.add(decoder.decode(in));
+            assertFalse(in.hasRemaining());
+        }
+        return decoded;
+    }
+
+    @Test
+    public void everyActionKind_roundTrip_fieldsPreserved() {
+        List<BaseAction> actions = everyKind();
+
+        List<BaseAction> decoded = roundTrip(actions);
+
+        for (int i = 0; i < actions.size(); i++) {
+            BaseAction expected = actions.get(i);
+            BaseAction actual = decoded.get(i);
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getUuid(), actual.getUuid());
+            assertEquals(expected.getDatetime(), actual.getDatetime());
+            assertEquals(expected.getTracing_number(), actual.getTracing_number());
+            assertEquals(expected.getActionType(), actual.getActionType());
+            assertEquals(expected.getActor(), actual.getActor());
+            assertEquals(expected.getPortfolio().getUuid(), actual.getPortfolio().getUuid());
+        }
+        Buy buy = (Buy) decoded.get(1);
+        assertEquals(BigInteger.TEN, buy.getVolume());
+        assertEquals(50.5, buy.getPrice());
+        assertEquals("CODC1", buy.getSecurity().getSymbol());
+        assertNull(((Sale) decoded.get(2)).getPrice());
+        assertEquals(BigInteger.valueOf(-100), ((Sale) decoded.get(2)).getTotalValue());
+        assertEquals(new BigInteger("-123456789012345678901234567890"), ((Withdrawal) decoded.get(3)).getAmount());
+        CapitalRaise capitalRaise = (CapitalRaise) decoded.get(4);
+        assertEquals(BigInteger.ONE.shiftLeft(62), capitalRaise.getSecurityCurrentVolume());
+        assertEquals(SecurityType.STOCK_RIGHT, capitalRaise.getHSecurity().getSecurityType());
+        StockRightUsage usage = (StockRightUsage) decoded.get(5);
+        assertEquals(Actor.MANUAL, usage.getActor());
+        assertEquals("Sara", usage.getPortfolio().getPortfolioManager().getFirstName());
+    }
+
+    @Test
+    public void repeatedPortfolioAndSecurity_decode_sharedInstancesAndShortRecords() {
+        List<BaseAction> actions = everyKind();
+        ActionCodec encoder = new ActionCodec(new CodecDictionary());
+        byte[] first = encoder.encode(actions.get(1));
+        byte[] second = encoder.encode(actions.get(1));
+
+        assertThat(second.length).isLessThan(first.length).isLessThanOrEqualTo(48);
+        List<BaseAction> decoded = roundTrip(actions);
+        assertSame(decoded.get(0).getPortfolio(), decoded.get(5).getPortfolio());
+        assertSame(((Buy) decoded.get(1)).getSecurity(), ((StockRightUsage) decoded.get(5)).getMainSecurity());
+    }
+
+    @Test
+    public void resolvers_decode_definitionsReplacedBySharedInstances() {
+        Portfolio shared = new Portfolio(portfolio.getUuid(), null, "already loaded");
+        ActionCodec decoder = new ActionCodec(new CodecDictionary(p -> shared, s -> s));
+
+        BaseAction decoded = decoder.decode(BinaryReader.of(new ActionCodec(new CodecDictionary()).encode(everyKind().get(0))));
+
+        assertSame(shared, decoded.getPortfolio());
+    }
+
+    @Test
+    public void unsupportedVersion_decode_rejected() {
+        byte[] bytes = new ActionCodec(new CodecDictionary()).encode(everyKind().get(0));
+        bytes[0] = ActionCodec.VERSION + 1;
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new ActionCodec(new CodecDictionary()).decode(BinaryReader.of(bytes)));
+    }
+
+    @Test
+    public void failedEncode_encode_dictionaryRolledBack() {
+        CodecDictionary dictionary = new CodecDictionary();
+        ActionCodec codec = new ActionCodec(dictionary);
+        codec.encode(everyKind().get(1));
+        Portfolio unreadable = new Portfolio(UUID.randomUUID().toString(), null, "unreadable") {
+            @Override
+            public String getName() {
+                throw new IllegalStateException("unreadable");
+            }
+        };
+        Deposit deposit = Deposit.builder().uuid("unreadable").portfolio(unreadable).datetime(base)
+                .amount(BigInteger.ONE).actionType(ActionType.DEPOSIT).build();
+
+        assertThrows(IllegalStateException.class, () -> codec.encode(deposit));
+
+        assertEquals(new CodecDictionary.Mark(1, 1), dictionary.mark());
+    }
+}
@@ -0,0 +1,168 @@
+package com.bourse.wealthwise.repository.columnar;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.BalanceLedger;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.ActionKey;
+import com.bourse.wealthwise.repository.ActionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarActionStoreTest {
+
+    private final ColumnarActionStore store = new ColumnarActionStore();
+    private final ActionRepository columnar = new ActionRepository(store);
+    private final ActionRepository heap = new ActionRepository();
+    private final Portfolio portfolio = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "columnar");
+    private final Portfolio other = new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "other");
+    private final List<Security> securities = List.of(
+            Security.builder().name("Alpha").symbol("ALPH1").isin("IRO1ALPH0001").build(),
+            Security.builder().name("Beta").symbol("BETA1").isin("IRO1BETA0001").build(),
+            Security.builder().name("HAlpha").symbol("HALPH1").isin("IRO1HALP0001").build());
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    private Deposit deposit(Portfolio owner, LocalDateTime datetime, BigInteger amount) {
+        return Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(owner).datetime(datetime)
+                .amount(amount).actionType(ActionType.DEPOSIT).build();
+    }
+
+    private Buy buy(String uuid, LocalDateTime datetime, Security security, BigInteger volume) {
+        return Buy.builder().uuid(uuid).portfolio(portfolio).datetime(datetime).security(security)
+                .volume(volume).price(1.0).totalValue(volume).actionType(ActionType.BUY).build();
+    }
+
+    private BaseAction randomAction(SplittableRandom random, String uuid) {
+        // Few distinct instants, so that many actions share one and are ordered by uuid
+        LocalDateTime datetime = base.plusHours(random.nextInt(20));
+        Security security = securities.get(random.nextInt(securities.size()));
+        BigInteger volume = BigInteger.valueOf(1 + random.nextInt(100));
+        return switch (random.nextInt(4)) {
+            case 0 -> Deposit.builder().uuid(uuid).portfolio(portfolio).datetime(datetime)
+                    .amount(BigInteger.valueOf(random.nextInt(1000))).actionType(ActionType.DEPOSIT).build();
+            case 1 -> buy(uuid, datetime, security, volume);
+            case 2 -> Sale.builder().uuid(uuid).portfolio(portfolio).datetime(datetime).security(security)
+                    .volume(volume).price(1.0).totalValue(volume).actionType(ActionType.SALE).build();
+            default -> StockRightUsage.builder().uuid(uuid).portfolio(portfolio).datetime(datetime)
+                    .stockRightSecurity(securities.get(2)).mainSecurity(securities.get(0))
+                    .volume(volume).pricePerRight(BigInteger.TEN).actionType(ActionType.STOCK_RIGHT_USAGE).build();
+        };
+    }
+
+    private static List<String> uuids(List<BaseAction> actions) {
+        return actions.stream().map(BaseAction::getUuid).toList();
+    }
+
+    private static Map<String, BigInteger> byIsin(Map<Security, BigInteger> volumes) {
+        Map<String, BigInteger> byIsin = new LinkedHashMap<>();
+        volumes.forEach((security, volume) -> byIsin.put(security.getIsin(), volume));
+        return byIsin;
+    }
+
+    @Test
+    public void savesReplacesAndDeletes_sameOperationsOnHeapStore_sameTimelines() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<String> saved = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int op = random.nextInt(10);
+            if (op == 0 && !saved.isEmpty()) {
+                String uuid = saved.remove(random.nextInt(saved.size()));
+                heap.deleteById(uuid);
+                columnar.deleteById(uuid);
+                continue;
+            }
+            String uuid = op == 1 && !saved.isEmpty() ? saved.get(random.nextInt(saved.size())) : UUID.randomUUID().toString();
+            BaseAction action = randomAction(random, uuid);
+            heap.save(action);
+            columnar.save(action);
+            if (!saved.contains(uuid)) {
+                saved.add(uuid);
+            }
+        }
+
+        String id = portfolio.getUuid();
+        assertEquals(uuids(heap.findAllActionsOf(id)), uuids(columnar.findAllActionsOf(id)));
+        for (int hour = 0; hour <= 20; hour += 3) {
+            LocalDateTime at = base.plusHours(hour);
+            assertEquals(uuids(heap.findActionsOfBefore(id, at)), uuids(columnar.findActionsOfBefore(id, at)));
+            assertEquals(uuids(heap.findActionsOfBetween(id, at, at.plusHours(2))),
+                    uuids(columnar.findActionsOfBetween(id, at, at.plusHours(2))));
+        }
+        BaseAction middle = heap.findAllActionsOf(id).get(saved.size() / 2);
+        assertEquals(uuids(heap.findActionsOfAfter(id, ActionKey.of(middle), base.plusHours(15))),
+                uuids(columnar.findActionsOfAfter(id, ActionKey.of(middle), base.plusHours(15))));
+        for (boolean newestFirst : new boolean[]{false, true}) {
+            assertEquals(uuids(heap.findActionPage(id, base.plusHours(15), null, newestFirst, 17)),
+                    uuids(columnar.findActionPage(id, base.plusHours(15), null, newestFirst, 17)));
+            assertEquals(uuids(heap.findActionPage(id, base.plusHours(15), ActionKey.of(middle), newestFirst, 17)),
+                    uuids(columnar.findActionPage(id, base.plusHours(15), ActionKey.of(middle), newestFirst, 17)));
+        }
+        assertEquals(heap.count(), columnar.count());
+        for (String uuid : saved) {
+            assertEquals(heap.findById(uuid).orElseThrow().getDatetime(), columnar.findById(uuid).orElseThrow().getDatetime());
+        }
+        assertTrue(columnar.findById(UUID.randomUUID().toString()).isEmpty());
+    }
+
+    @Test
+    public void randomHistory_columnarScans_matchProjections() {
+        BalanceLedger balanceLedger = new BalanceLedger(heap);
+        HoldingsProjection holdingsProjection = new HoldingsProjection(heap, 16);
+        BalanceLedger columnarLedger = new BalanceLedger(columnar);
+        HoldingsProjection columnarHoldings = new HoldingsProjection(columnar, 16);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 500; i++) {
+            BaseAction action = randomAction(random, UUID.randomUUID().toString());
+            heap.save(action);
+            columnar.save(action);
+        }
+        columnar.save(deposit(other, base, BigInteger.valueOf(5)));
+
+        for (int hour = 0; hour <= 20; hour++) {
+            LocalDateTime at = base.plusHours(hour);
+            BigInteger balance = balanceLedger.balanceBefore(portfolio.getUuid(), at);
+            assertEquals(balance, store.balanceBefore(portfolio.getUuid(), at));
+            assertEquals(balance, columnarLedger.balanceBefore(portfolio.getUuid(), at));
+            Map<String, BigInteger> holdings = byIsin(holdingsProjection.holdingsBefore(portfolio.getUuid(), at));
+            assertEquals(holdings, byIsin(store.holdingsBefore(portfolio.getUuid(), at)));
+            assertEquals(holdings, byIsin(columnarHoldings.holdingsBefore(portfolio.getUuid(), at)));
+            assertEquals(holdings, byIsin(columnarHoldings.volumesBefore(portfolio.getUuid(), at).toMap()));
+        }
+        assertEquals(BigInteger.valueOf(5), store.balanceBefore(other.getUuid(), LocalDateTime.MAX));
+        assertThat(store.holdingsBefore(other.getUuid(), LocalDateTime.MAX)).isEmpty();
+        assertThat(store.offHeapBytes()).isPositive();
+    }
+
+    @Test
+    public void valuesBeyondLongAndSecurityWithoutIsin_scan_readBackFromActions() {
+        BigInteger huge = BigInteger.valueOf(Long.MAX_VALUE);
+        Security unlisted = Security.builder().name("Unlisted").symbol("UNL1").build();
+        columnar.save(deposit(portfolio, base, huge));
+        columnar.save(deposit(portfolio, base.plusHours(1), huge));
+        columnar.save(deposit(portfolio, base.plusHours(2), huge.pow(2)));
+        columnar.save(buy(UUID.randomUUID().toString(), base.plusHours(3), securities.get(0), huge));
+        columnar.save(buy(UUID.randomUUID().toString(), base.plusHours(4), securities.get(0), huge));
+        columnar.save(buy(UUID.randomUUID().toString(), base.plusHours(5), unlisted, BigInteger.TEN));
+
+        assertEquals(huge.add(huge).add(huge.pow(2)), store.balanceBefore(portfolio.getUuid(), base.plusHours(3)));
+        Map<Security, BigInteger> holdings = store.holdingsBefore(portfolio.getUuid(), base.plusDays(1));
+        assertThat(holdings.values()).containsExactly(huge.add(huge), BigInteger.TEN);
+        assertEquals("UNL1", holdings.keySet().stream().toList().get(1).getSymbol());
+    }
+
+    @Test
+    public void datetimeOutsideNanosecondRange_save_rejected() {
+        Deposit ancient = deposit(portfolio, LocalDateTime.of(1500, 1, 1, 0, 0), BigInteger.ONE);
+
+        assertThrows(IllegalArgumentException.class, () -> columnar.save(ancient));
+        assertThat(columnar.findAllActionsOf(portfolio.getUuid())).isEmpty();
+    }
+}
@@ -0,0 +1,100 @@
+package com.bourse.wealthwise.repository.ingest;
+
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class EndOfDayPriceLoaderTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @TempDir
+    private Path directory;
+
+    private final SecurityPriceRepository repository = new SecurityPriceRepository();
+    private final EndOfDayPriceLoader loader = new EndOfDayPriceLoader(repository);
+
+    @Test
+    public void csvFile_load_sameAsAddingEachPrice() throws IOException {
+        // Days out of order, CRLF, a price the fast path cannot parse and one corrected later in the file
+        Path file = directory.resolve("prices.csv");
+        Files.writeString(file, """
+                isin,date,close
+                IRO1SEC1,2025-03-04,1210.5\r
+                IRO1SEC2,2025-03-04,88
+                IRO1SEC1,2025-03-03,1200.25
+                IRO1SEC2,2025-03-03,8.7e1
+
+                IRO1ÄPFEL01,2025-03-03,0.0001
+                IRO1SEC1,2025-03-04,1215
+                """, StandardCharsets.UTF_8);
+        SecurityPriceRepository expected = new SecurityPriceRepository();
+        expected.addPrice("IRO1SEC1", MONDAY.plusDays(1), 1215.0);
+        expected.addPrice("IRO1SEC2", MONDAY.plusDays(1), 88.0);
+        expected.addPrice("IRO1SEC1", MONDAY, 1200.25);
+        expected.addPrice("IRO1SEC2", MONDAY, 87.0);
+        expected.addPrice("IRO1ÄPFEL01", MONDAY, 0.0001);
+
+        EndOfDayPriceLoader.LoadResult result = loader.load(file);
+
+        assertThat(result.days()).isEqualTo(2);
+        assertThat(result.prices()).isEqualTo(6);
+        for (String isin : new String[]{"IRO1SEC1", "IRO1SEC2", "IRO1ÄPFEL01"}) {
+            assertThat(repository.getPricesForSecurity(isin))
+                    .extracting(SecurityPrice::getDate, SecurityPrice::getPrice)
+                    .as(isin)
+                    .containsExactlyElementsOf(expected.getPricesForSecurity(isin).stream()
+                            .map(price -> tuple(price.getDate(), price.getPrice())).toList());
+        }
+    }
+
+    @Test
+    public void binaryFile_loadAfterHistory_appendsDays() {
+        repository.addPrice("IRO1SEC1", MONDAY.minusDays(3), 1000.0);
+        Map<LocalDate, Map<String, Double>> prices = new TreeMap<>();
+        for (int d = 0; d < 5; d++) {
+            Map<String, Double> day = new LinkedHashMap<>();
+            for (int s = 0; s < 300; s++) {
+                day.put("IRO1SEC" + s, 100.0 + s + d / 4.0);
+            }
+            prices.put(MONDAY.plusDays(d), day);
+        }
+        Path file = directory.resolve("prices.bin");
+        BinaryPriceFile.write(file, prices);
+
+        EndOfDayPriceLoader.LoadResult result = loader.load(file);
+
+        assertThat(result.days()).isEqualTo(5);
+        assertThat(result.prices()).isEqualTo(1500);
+        assertThat(repository.getSeries("IRO1SEC1").size()).isEqualTo(6);
+        assertThat(repository.getPrice("IRO1SEC1", MONDAY.minusDays(3))).isEqualTo(1000.0);
+        assertThat(repository.getPrice("IRO1SEC299", MONDAY.plusDays(4))).isEqualTo(400.0);
+        assertThat(repository.getPriceAsOf("IRO1SEC7", MONDAY.plusDays(30))).isEqualTo(108.0);
+        assertThat(repository.pricePointCount()).isEqualTo(1501);
+    }
+
+    @Test
+    public void malformedLine_load_rejectedWithLineNumberAndNothingLoaded() throws IOException {
+        Path file = directory.resolve("prices.csv");
+        Files.writeString(file, "IRO1SEC1,2025-03-03,1200\nIRO1SEC2,2025-02-30,88\n");
+
+        assertThatThrownBy(() -> loader.load(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+        assertThat(repository.getPrice("IRO1SEC1", MONDAY)).isNull();
+    }
+}
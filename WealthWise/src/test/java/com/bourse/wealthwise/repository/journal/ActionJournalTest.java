@@ -0,0 +1,219 @@
+package com.bourse.wealthwise.repository.journal;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActionJournalTest {
+    @TempDir
+    Path directory;
+
+    private ActionRepository actionRepository;
+    private PortfolioRepository portfolioRepository;
+    private SecurityRepository securityRepository;
+    private ActionJournal journal;
+
+    private final Portfolio portfolio = new Portfolio(UUID.randomUUID().toString(),
+            User.builder().uuid("u1").firstName("Sara").lastName("Ahmadi").build(), "journaled");
+    private final Security security = Security.builder().name("Journal Co").symbol("JRNL1").isin("IRO1JRNL0001").build();
+    private final Security right = Security.builder().name("HJournal Co").symbol("HJRNL1").isin("HIRO1JRNL0001")
+            .securityType(SecurityType.STOCK_RIGHT).build();
+    private final LocalDateTime base = LocalDateTime.of(2025, 2, 1, 9, 30, 15, 123_456_789);
+
+    private ActionJournal start(DataSize segmentSize) {
+        actionRepository = new ActionRepository();
+        portfolioRepository = new PortfolioRepository();
+        securityRepository = new SecurityRepository();
+        ActionJournal started = new ActionJournal(actionRepository, portfolioRepository, securityRepository,
+                directory, segmentSize, 5, false, null);
+        started.afterSingletonsInstantiated();
+        return started;
+    }
+
+    private ActionJournal restart(DataSize segmentSize) {
+        journal.destroy();
+        return start(segmentSize);
+    }
+
+    private Deposit deposit(int i) {
+        return Deposit.builder()
+                .uuid("deposit-" + i)
+                .portfolio(portfolio)
+                .datetime(base.plusMinutes(i))
+                .amount(BigInteger.valueOf(1000 + i))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        journal = start(DataSize.ofMegabytes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        journal.destroy();
+    }
+
+    @Test
+    public void everyActionKind_restart_actionsAndRepositoriesRebuilt() {
+        actionRepository.save(deposit(0));
+        actionRepository.save(Buy.builder().uuid("buy").portfolio(portfolio).datetime(base.plusHours(1))
+                .security(security).volume(BigInteger.TEN).price(50.5).totalValue(BigInteger.valueOf(505))
+                .actionType(ActionType.BUY).build());
+        actionRepository.save(Sale.builder().uuid("sale").portfolio(portfolio).datetime(base.plusHours(2))
+                .security(security).volume(BigInteger.TWO).price(null).totalValue(BigInteger.valueOf(100))
+                .actionType(ActionType.SALE).build());
+        actionRepository.save(Withdrawal.builder().uuid("withdrawal").portfolio(portfolio).datetime(base.plusHours(3))
+                .amount(new BigInteger("123456789012345678901234567890")).actionType(ActionType.WITHDRAWAL).build());
+        actionRepository.save(CapitalRaise.builder().uuid("capital-raise").portfolio(portfolio).datetime(base.plusHours(4))
+                .HSecurity(right).securityCurrentVolume(BigInteger.valueOf(8)).stockRightAmountPerShare(0.5)
+                .actionType(ActionType.CAPITAL_RAISE).build());
+        StockRightUsage usage = StockRightUsage.builder().uuid("usage").portfolio(portfolio).datetime(base.plusHours(5))
+                .stockRightSecurity(right).mainSecurity(security).volume(BigInteger.TWO).pricePerRight(BigInteger.valueOf(100))
+                .actionType(ActionType.STOCK_RIGHT_USAGE).build();
+        usage.setActor(Actor.MANUAL);
+        actionRepository.save(usage);
+
+        journal = restart(DataSize.ofMegabytes(1));
+
+        List<BaseAction> actions = actionRepository.findAllActionsOf(portfolio.getUuid());
+        assertThat(actions).extracting(BaseAction::getUuid)
+                .containsExactly("deposit-0", "buy", "sale", "withdrawal", "capital-raise", "usage");
+        assertEquals(base, actions.get(0).getDatetime());
+        Buy buy = (Buy) actions.get(1);
+        assertEquals(BigInteger.TEN, buy.getVolume());
+        assertEquals(50.5, buy.getPrice());
+        assertNull(((Sale) actions.get(2)).getPrice());
+        assertEquals(new BigInteger("123456789012345678901234567890"), ((Withdrawal) actions.get(3)).getAmount());
+        CapitalRaise capitalRaise = (CapitalRaise) actions.get(4);
+        assertEquals(0.5, capitalRaise.getStockRightAmountPerShare());
+        assertEquals(SecurityType.STOCK_RIGHT, capitalRaise.getHSecurity().getSecurityType());
+        StockRightUsage replayedUsage = (StockRightUsage) actions.get(5);
+        assertEquals(Actor.MANUAL, replayedUsage.getActor());
+
+        // Portfolios and securities come back once each, shared by every action that refers to them
+        Portfolio replayedPortfolio = portfolioRepository.findById(portfolio.getUuid()).orElseThrow();
+        assertEquals("journaled", replayedPortfolio.getName());
+        assertEquals("Sara", replayedPortfolio.getPortfolioManager().getFirstName());
+        assertSame(replayedPortfolio, buy.getPortfolio());
+        assertSame(securityRepository.findSecurityByIsin(security.getIsin()), buy.getSecurity());
+        assertSame(buy.getSecurity(), replayedUsage.getMainSecurity());
+        assertSame(securityRepository.getSecurityBySymbol("HJRNL1"), replayedUsage.getStockRightSecurity());
+    }
+
+    @Test
+    public void deletedAndReplacedActions_restart_latestStateRebuilt() {
+        actionRepository.save(deposit(0));
+        actionRepository.save(deposit(1));
+        actionRepository.deleteById("deposit-0");
+        actionRepository.save(Deposit.builder().uuid("deposit-1").portfolio(portfolio).datetime(base)
+                .amount(BigInteger.ONE).actionType(ActionType.DEPOSIT).build());
+
+        journal = restart(DataSize.ofMegabytes(1));
+
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).extracting(BaseAction::getUuid)
+                .containsExactly("deposit-1");
+        assertEquals(BigInteger.ONE, ((Deposit) actionRepository.findById("deposit-1").orElseThrow()).getAmount());
+    }
+
+    @Test
+    public void manyActions_smallSegments_rolledAndReplayedInOrder() throws IOException {
+        // A directory of its own, as the segment setUp created keeps its 1MB size
+        journal.destroy();
+        directory = directory.resolve("small-segments");
+        journal = start(DataSize.ofKilobytes(4));
+        for (int i = 0; i < 200; i++) {
+            actionRepository.save(deposit(i));
+        }
+
+        journal = restart(DataSize.ofKilobytes(4));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isGreaterThan(1);
+        }
+        assertEquals(200, actionRepository.findAllActionsOf(portfolio.getUuid()).size());
+        actionRepository.save(deposit(200));
+        journal = restart(DataSize.ofKilobytes(4));
+        assertEquals(201, actionRepository.findAllActionsOf(portfolio.getUuid()).size());
+    }
+
+    @Test
+    public void tornLastRecord_restart_recordDroppedAndJournalReusable() throws IOException {
+        actionRepository.save(deposit(0));
+        actionRepository.save(deposit(1));
+        long end = journal.endOffset();
+        journal.destroy();
+
+        // Corrupt the last byte of the second record, as a crash in the middle of the write would
+        Path segment = directory.resolve(JournalSegment.fileName(0));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end - 1);
+            int last = file.read();
+            file.seek(end - 1);
+            file.write(last ^ 0xFF);
+        }
+        journal = start(DataSize.ofMegabytes(1));
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).extracting(BaseAction::getUuid)
+                .containsExactly("deposit-0");
+
+        actionRepository.save(deposit(2));
+        journal = restart(DataSize.ofMegabytes(1));
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).extracting(BaseAction::getUuid)
+                .containsExactly("deposit-0", "deposit-2");
+    }
+
+    @Test
+    public void damagedRecordBeforeValidOnes_restart_startupFailsAndNothingDiscarded() throws IOException {
+        actionRepository.save(deposit(0));
+        long end = journal.endOffset();
+        actionRepository.save(deposit(1));
+        actionRepository.save(deposit(2));
+        journal.destroy();
+
+        // Damage the first byte of the second record's payload, which is followed by a valid record
+        Path segment = directory.resolve(JournalSegment.fileName(0));
+        long damaged = end + JournalSegment.HEADER_SIZE;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(damaged);
+            int first = file.read();
+            file.seek(damaged);
+            file.write(first ^ 0xFF);
+        }
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> start(DataSize.ofMegabytes(1)));
+        assertThat(failure.getMessage()).contains("corrupt at offset " + end);
+
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(damaged);
+            int first = file.read();
+            file.seek(damaged);
+            file.write(first ^ 0xFF);
+        }
+        journal = start(DataSize.ofMegabytes(1));
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).extracting(BaseAction::getUuid)
+                .containsExactly("deposit-0", "deposit-1", "deposit-2");
+    }
+}
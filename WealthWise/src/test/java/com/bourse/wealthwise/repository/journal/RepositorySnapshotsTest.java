@@ -0,0 +1,210 @@
+package com.bourse.wealthwise.repository.journal;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.BalanceLedger;
+import com.bourse.wealthwise.domain.projection.HoldingsProjection;
+import com.bourse.wealthwise.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepositorySnapshotsTest {
+    @TempDir
+    Path directory;
+
+    private ActionRepository actionRepository;
+    private PortfolioRepository portfolioRepository;
+    private SecurityRepository securityRepository;
+    private SecurityPriceRepository securityPriceRepository;
+    private HoldingsProjection holdingsProjection;
+    private BalanceLedger balanceLedger;
+    private RepositorySnapshots snapshots;
+    private ActionJournal journal;
+
+    private final Portfolio portfolio = new Portfolio(UUID.randomUUID().toString(),
+            User.builder().uuid("u1").firstName("Sara").lastName("Ahmadi").build(), "snapshotted");
+    private final Security security = Security.builder().name("Snapshot Co").symbol("SNAP1").isin("IRO1SNAP0001").build();
+    private final LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private void start() {
+        actionRepository = new ActionRepository();
+        portfolioRepository = new PortfolioRepository();
+        securityRepository = new SecurityRepository();
+        securityPriceRepository = new SecurityPriceRepository();
+        holdingsProjection = new HoldingsProjection(actionRepository, 4);
+        balanceLedger = new BalanceLedger(actionRepository);
+        snapshots = new RepositorySnapshots(actionRepository, portfolioRepository, securityRepository,
+                securityPriceRepository, holdingsProjection, directory.resolve("snapshots"), 3_600_000, 2);
+        journal = new ActionJournal(actionRepository, portfolioRepository, securityRepository,
+                directory.resolve("journal"), DataSize.ofKilobytes(4), 5, false, snapshots);
+        journal.afterSingletonsInstantiated();
+    }
+
+    private void stop() {
+        snapshots.destroy();
+        journal.destroy();
+    }
+
+    private void restart() {
+        stop();
+        start();
+    }
+
+    private Buy buy(int i) {
+        return Buy.builder()
+                .uuid("buy-" + i)
+                .portfolio(portfolio)
+                .datetime(base.plusMinutes(i))
+                .security(security)
+                .volume(BigInteger.TEN)
+                .price(10.0)
+                .totalValue(BigInteger.valueOf(100))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Deposit deposit(String uuid, LocalDateTime datetime) {
+        return Deposit.builder()
+                .uuid(uuid)
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(1_000_000))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private BigInteger volumeOf(String isin) {
+        return holdingsProjection.holdingsBefore(portfolio.getUuid(), LocalDateTime.MAX).entrySet().stream()
+                .filter(entry -> isin.equals(entry.getKey().getIsin()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(BigInteger.ZERO);
+    }
+
+    private List<Path> files(String subdirectory) throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve(subdirectory))) {
+            return files.sorted().toList();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        start();
+        securityRepository.addSecurity(security);
+        portfolioRepository.save(portfolio);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stop();
+    }
+
+    @Test
+    public void snapshotThenMoreWrites_restart_snapshotLoadedAndOnlyTailReplayed() throws IOException {
+        actionRepository.save(deposit("deposit", base.minusDays(1)));
+        for (int i = 0; i < 100; i++) {
+            actionRepository.save(buy(i));
+        }
+        securityPriceRepository.addPrice(security.getIsin(), LocalDate.of(2025, 3, 1), 11.0);
+        securityPriceRepository.addPrice(security.getIsin(), LocalDate.of(2025, 3, 3), 12.5);
+        long covered = RepositorySnapshots.journalOffsetOf(snapshots.snapshot());
+        actionRepository.save(buy(100));
+        actionRepository.deleteById("buy-0");
+
+        // Drop the journal segments the snapshot covers entirely: startup must not need them
+        stop();
+        List<Path> segments = files("journal");
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (JournalSegment.baseOffsetOf(segments.get(i + 1)) <= covered) {
+                Files.delete(segments.get(i));
+            }
+        }
+        assertThat(files("journal").size()).isLessThan(segments.size());
+        start();
+
+        List<BaseAction> actions = actionRepository.findAllActionsOf(portfolio.getUuid());
+        assertEquals(101, actions.size());
+        assertEquals("buy-1", actions.get(1).getUuid());
+        assertEquals("buy-100", actions.getLast().getUuid());
+        assertSame(portfolioRepository.findById(portfolio.getUuid()).orElseThrow(), actions.getLast().getPortfolio());
+        assertEquals("SNAP1", securityRepository.findSecurityByIsin(security.getIsin()).getSymbol());
+        assertEquals(12.5, securityPriceRepository.getPriceAsOf(security.getIsin(), LocalDate.of(2025, 3, 5)));
+        assertEquals(11.0, securityPriceRepository.getPrice(security.getIsin(), LocalDate.of(2025, 3, 1)));
+        assertEquals(BigInteger.valueOf(1000), volumeOf(security.getIsin()));
+        assertEquals(BigInteger.valueOf(1_000_000 - 100 * 100),
+                balanceLedger.balanceBefore(portfolio.getUuid(), LocalDateTime.MAX));
+    }
+
+    @Test
+    public void corruptLatestSnapshot_restart_olderSnapshotAndJournalUsed() throws IOException {
+        actionRepository.save(buy(0));
+        snapshots.snapshot();
+        actionRepository.save(buy(1));
+        snapshots.snapshot();
+        actionRepository.save(buy(2));
+        Path latest = snapshots.snapshot();
+        actionRepository.save(buy(3));
+        assertEquals(2, files("snapshots").size());
+
+        stop();
+        try (RandomAccessFile file = new RandomAccessFile(latest.toFile(), "rw")) {
+            long middle = file.length() / 2;
+            file.seek(middle);
+            int value = file.read();
+            file.seek(middle);
+            file.write(value ^ 0xFF);
+        }
+        start();
+
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).extracting(BaseAction::getUuid)
+                .containsExactly("buy-0", "buy-1", "buy-2", "buy-3");
+        assertEquals(BigInteger.valueOf(40), volumeOf(security.getIsin()));
+    }
+
+    @Test
+    public void writesDuringSnapshot_restart_noWriteLostOrDuplicated() throws InterruptedException {
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                actionRepository.save(buy(i));
+                if (i % 3 == 0) {
+                    actionRepository.deleteById("buy-" + (i / 2));
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            snapshots.snapshot();
+        }
+        writer.join();
+        List<BaseAction> expected = actionRepository.findAllActionsOf(portfolio.getUuid());
+        BigInteger expectedVolume = volumeOf(security.getIsin());
+
+        restart();
+
+        assertThat(actionRepository.findAllActionsOf(portfolio.getUuid())).extracting(BaseAction::getUuid)
+                .containsExactlyElementsOf(expected.stream().map(BaseAction::getUuid).toList());
+        assertEquals(expectedVolume, volumeOf(security.getIsin()));
+        assertEquals(BigInteger.valueOf(-100L * expected.size()),
+                balanceLedger.balanceBefore(portfolio.getUuid(), LocalDateTime.MAX));
+    }
+}
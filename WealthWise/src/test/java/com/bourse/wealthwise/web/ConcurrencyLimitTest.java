@@ -0,0 +1,34 @@
+package com.bourse.wealthwise.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitTest {
+
+    @Test
+    public void allPermitsHeld_call_rejectedAfterTimeout() throws Exception {
+        ConcurrencyLimit limit = new ConcurrencyLimit("test", 1, 20);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> limit.call(() -> {
+            entered.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ConcurrencyLimitExceededException.class, () -> limit.call(() -> "rejected"));
+
+        release.countDown();
+        holder.join();
+        assertEquals("served", limit.call(() -> "served"));
+        assertEquals(1, limit.available());
+    }
+}
@@ -0,0 +1,117 @@
+package com.bourse.wealthwise.web;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PortfolioQueryControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private Portfolio portfolio;
+    private final LocalDateTime base = LocalDateTime.of(2025, 4, 1, 10, 0);
+
+    @BeforeEach
+    public void setUp() {
+        portfolio = portfolioRepository.save(new Portfolio(UUID.randomUUID().toString(), User.builder().build(), "http"));
+        Security security = Security.builder().name("Http Co").symbol("HTTP1").isin("IRO1HTTP" + portfolio.getUuid().substring(0, 4)).build();
+        securityPriceRepository.addPrice(security.getIsin(), LocalDate.of(2025, 4, 1), 12.0);
+        actionRepository.save(Deposit.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(base)
+                .amount(BigInteger.valueOf(1000)).actionType(ActionType.DEPOSIT).build());
+        actionRepository.save(Buy.builder().uuid(UUID.randomUUID().toString()).portfolio(portfolio).datetime(base.plusMinutes(1))
+                .security(security).volume(BigInteger.TEN).price(12.0).totalValue(BigInteger.valueOf(120))
+                .actionType(ActionType.BUY).build());
+    }
+
+    @Test
+    public void portfolioWithTrades_getHoldingsBalanceAndActions_jsonReturned() throws Exception {
+        String path = "/api/portfolios/" + portfolio.getUuid();
+
+        mockMvc.perform(get(path + "/holdings").param("at", "2025-04-01T12:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].security.symbol").value("HTTP1"))
+                .andExpect(jsonPath("$[0].volume").value(10))
+                .andExpect(jsonPath("$[0].value").value(120.0));
+        mockMvc.perform(get(path + "/balance").param("at", "2025-04-01T12:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(880));
+        mockMvc.perform(get(path + "/actions").param("at", "2025-04-01T10:00:30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void portfolioWithTrades_getTopHoldingsByValue_weightedRowsReturned() throws Exception {
+        mockMvc.perform(get("/api/portfolios/" + portfolio.getUuid() + "/holdings")
+                        .param("at", "2025-04-01T12:00:00").param("orderBy", "VALUE").param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].weight").value(1.0));
+    }
+
+    @Test
+    public void portfolioWithTrades_getValuations_dailyPointsReturned() throws Exception {
+        String path = "/api/portfolios/" + portfolio.getUuid() + "/valuations";
+
+        mockMvc.perform(get(path).param("from", "2025-03-31").param("to", "2025-04-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].totalValue").value(0.0))
+                .andExpect(jsonPath("$[1].date").value("2025-04-01"))
+                .andExpect(jsonPath("$[1].totalValue").value(120.0))
+                .andExpect(jsonPath("$[2].securities[0].volume").value(10));
+        mockMvc.perform(get(path).param("from", "2025-04-02").param("to", "2025-04-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(path).param("from", "2025-04-01").param("to", "2025-04-02").param("step", "daily"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void unknownPortfolio_getBalance_notFound() throws Exception {
+        mockMvc.perform(get("/api/portfolios/" + UUID.randomUUID() + "/balance"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void nonPositiveLimits_getHoldingsAndActionPage_badRequest() throws Exception {
+        String path = "/api/portfolios/" + portfolio.getUuid();
+
+        mockMvc.perform(get(path + "/holdings").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Limit must be positive: 0"));
+        mockMvc.perform(get(path + "/actions/page").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Page size must be positive: 0"));
+        mockMvc.perform(get("/api/portfolios/" + UUID.randomUUID() + "/actions/page"))
+                .andExpect(status().isNotFound());
+    }
+}